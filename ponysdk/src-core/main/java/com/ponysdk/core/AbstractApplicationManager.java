@@ -1,12 +1,11 @@
 
 package com.ponysdk.core;
 
-import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.ServletException;
 
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.slf4j.Logger;
@@ -16,6 +15,7 @@ import com.ponysdk.core.main.EntryPoint;
 import com.ponysdk.core.servlet.Request;
 import com.ponysdk.core.servlet.Response;
 import com.ponysdk.core.servlet.Session;
+import com.ponysdk.core.servlet.SessionManager;
 import com.ponysdk.core.stm.Txn;
 import com.ponysdk.core.stm.TxnContextHttp;
 import com.ponysdk.ui.server.basic.PCookies;
@@ -28,6 +28,10 @@ public abstract class AbstractApplicationManager {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractApplicationManager.class);
 
+    // Lock of a session starting an application, a monitor would pin the carrier of a virtual thread during the whole
+    // start
+    private static final String SESSION_LOCK = AbstractApplicationManager.class.getCanonicalName() + ".sessionLock";
+
     private final ApplicationManagerOption options;
 
     public AbstractApplicationManager() {
@@ -51,7 +55,9 @@ public abstract class AbstractApplicationManager {
     public void startApplication(final JSONObject data, final Request request, final Response response) throws Exception {
         final Session session = request.getSession();
 
-        synchronized (session) {
+        final ReentrantLock sessionLock = getSessionLock(session);
+        sessionLock.lock();
+        try {
             Long reloadedViewID = null;
             boolean isNewHttpSession = false;
             Application application = (Application) session.getAttribute(Application.class.getCanonicalName());
@@ -60,6 +66,7 @@ public abstract class AbstractApplicationManager {
                 application = new Application(session, options);
                 session.setUserAgent(request.getHeader("User-Agent"));
                 session.setAttribute(Application.class.getCanonicalName(), application);
+                SessionManager.get().registerApplication(application);
                 isNewHttpSession = true;
             } else {
                 if (data.has(APPLICATION.VIEW_ID)) reloadedViewID = data.getLong(APPLICATION.VIEW_ID);
@@ -109,6 +116,20 @@ public abstract class AbstractApplicationManager {
             } finally {
                 UIContext.remove();
             }
+        } finally {
+            sessionLock.unlock();
+        }
+    }
+
+    private static ReentrantLock getSessionLock(final Session session) {
+        // The monitor only guards the creation of the lock
+        synchronized (session) {
+            ReentrantLock sessionLock = (ReentrantLock) session.getAttribute(SESSION_LOCK);
+            if (sessionLock == null) {
+                sessionLock = new ReentrantLock();
+                session.setAttribute(SESSION_LOCK, sessionLock);
+            }
+            return sessionLock;
         }
     }
 
@@ -129,17 +150,7 @@ public abstract class AbstractApplicationManager {
             final Txn txn = Txn.get();
             txn.begin(new TxnContextHttp(false, request, response));
             try {
-                final Long receivedSeqNum = checkClientMessage(request.getSession(), data, uiContext);
-
-                if (receivedSeqNum != null) {
-                    process(uiContext, data);
-
-                    final List<JSONObject> datas = uiContext.expungeIncomingMessageQueue(receivedSeqNum);
-                    for (final JSONObject jsoObject : datas) {
-                        process(uiContext, jsoObject);
-                    }
-                }
-
+                uiContext.fireClientMessage(data);
                 txn.commit();
             } catch (final Throwable e) {
                 log.error("Cannot process client instruction", e);
@@ -151,56 +162,6 @@ public abstract class AbstractApplicationManager {
         }
     }
 
-    private Long checkClientMessage(final Session session, final JSONObject data, final UIContext uiContext) throws JSONException {
-        printClientErrorMessage(data);
-
-        final long receivedSeqNum = data.getLong(APPLICATION.SEQ_NUM);
-        if (!uiContext.updateIncomingSeqNum(receivedSeqNum)) {
-            final long key = data.getLong(APPLICATION.VIEW_ID);
-            uiContext.stackIncomingMessage(receivedSeqNum, data);
-            if (options.maxOutOfSyncDuration > 0 && uiContext.getLastSyncErrorTimestamp() > 0) {
-                if (System.currentTimeMillis() - uiContext.getLastSyncErrorTimestamp() > options.maxOutOfSyncDuration) {
-                    log.info("Unable to sync message for " + (System.currentTimeMillis() - uiContext.getLastSyncErrorTimestamp()) + " ms. Dropping connection (viewID #" + key + ").");
-                    uiContext.destroy();
-                    return null;
-                }
-            }
-            log.info("Stacking incoming message #" + receivedSeqNum + ". Data #" + data + " (viewID #" + key + ")");
-            return null;
-        }
-        return receivedSeqNum;
-
-    }
-
-    private void printClientErrorMessage(final JSONObject data) {
-        try {
-            final JSONArray errors = data.getJSONArray(APPLICATION.ERRORS);
-            for (int i = 0; i < errors.length(); i++) {
-                final JSONObject jsoObject = errors.getJSONObject(i);
-                final String message = jsoObject.getString("message");
-                final String details = jsoObject.getString("details");
-                log.error("There was an unexpected error on the terminal. Message: " + message + ". Details: " + details);
-            }
-        } catch (final Throwable e) {
-            log.error("Failed to display errors", e);
-        }
-    }
-
-    private void process(final UIContext uiContext, final JSONObject jsoObject) throws JSONException {
-        if (jsoObject.has(APPLICATION.INSTRUCTIONS)) {
-            final JSONArray instructions = jsoObject.getJSONArray(APPLICATION.INSTRUCTIONS);
-            for (int i = 0; i < instructions.length(); i++) {
-                JSONObject jsonObject = null;
-                try {
-                    jsonObject = instructions.getJSONObject(i);
-                    uiContext.fireClientData(jsonObject);
-                } catch (final Throwable e) {
-                    log.error("Failed to process instruction: " + jsonObject, e);
-                }
-            }
-        }
-    }
-
     protected abstract EntryPoint initializePonySession(final UIContext ponySession) throws ServletException;
 
 }
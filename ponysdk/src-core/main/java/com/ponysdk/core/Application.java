@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ponysdk.core.servlet.Session;
+import com.ponysdk.core.servlet.SessionManager;
 
 /**
  * <p>
@@ -54,10 +55,12 @@ public class Application {
 
     void registerUIContext(final UIContext uiContext) {
         uiContexts.put(uiContext.getUiContextID(), uiContext);
+        SessionManager.get().registerUIContext(uiContext);
     }
 
     void unregisterUIContext(final long uiContextID) {
         uiContexts.remove(uiContextID);
+        SessionManager.get().unregisterUIContext(uiContextID);
         if (uiContexts.isEmpty()) {
             log.info("Invalidate session, all ui contexts have been destroyed");
             session.invalidate();
@@ -1,12 +1,28 @@
 
 package com.ponysdk.core;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import com.ponysdk.core.concurrent.ExecutionMode;
+import com.ponysdk.core.socket.Codec;
+import com.ponysdk.core.socket.OverflowPolicy;
+
 public class ApplicationManagerOption {
 
     public long maxOutOfSyncDuration = -1;
     public long heartBeatPeriod = 0;// seconds
+    public Codec codec = Codec.JSON;
+    public boolean instructionCoalescing = false;
+    public long pushFlushMaxDelay = 0;// milliseconds
+    public int pushFlushMaxBatchSize = 0;
+    public long outboundQueueMaxBytes = 0;
+    public OverflowPolicy outboundOverflowPolicy = OverflowPolicy.BLOCK;
+    public int replayBufferSize = 0;
+    public long resumeTimeout = 0;// milliseconds
+    public ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    private ExecutorService executor;
 
     public void setHeartBeatPeriod(final long heartBeatPeriod, final TimeUnit timeUnit) {
         this.heartBeatPeriod = TimeUnit.SECONDS.convert(heartBeatPeriod, timeUnit);
@@ -15,4 +31,102 @@ public class ApplicationManagerOption {
     public long getHeartBeatPeriod() {
         return heartBeatPeriod;
     }
+
+    public void setCodec(final Codec codec) {
+        this.codec = codec;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Rewrites the instructions of each transaction before they are sent, see
+     * {@link com.ponysdk.core.stm.InstructionCoalescer} (disabled by default)
+     */
+    public void setInstructionCoalescing(final boolean instructionCoalescing) {
+        this.instructionCoalescing = instructionCoalescing;
+    }
+
+    public boolean isInstructionCoalescing() {
+        return instructionCoalescing;
+    }
+
+    /**
+     * Merges the push transactions committed within maxDelay into a single frame, up to maxBatchSize instructions (0
+     * for no limit)
+     */
+    public void setPushFlushWindow(final long maxDelay, final TimeUnit timeUnit, final int maxBatchSize) {
+        this.pushFlushMaxDelay = TimeUnit.MILLISECONDS.convert(maxDelay, timeUnit);
+        this.pushFlushMaxBatchSize = maxBatchSize;
+    }
+
+    public long getPushFlushMaxDelay() {
+        return pushFlushMaxDelay;
+    }
+
+    public int getPushFlushMaxBatchSize() {
+        return pushFlushMaxBatchSize;
+    }
+
+    /**
+     * Bounds the frames waiting to be written on each push connection, a slow client then applies the overflow policy
+     * instead of blocking the committing thread on the network (0 to write frames synchronously)
+     */
+    public void setOutboundQueue(final long maxBytes, final OverflowPolicy overflowPolicy) {
+        this.outboundQueueMaxBytes = maxBytes;
+        this.outboundOverflowPolicy = overflowPolicy;
+    }
+
+    public long getOutboundQueueMaxBytes() {
+        return outboundQueueMaxBytes;
+    }
+
+    public OverflowPolicy getOutboundOverflowPolicy() {
+        return outboundOverflowPolicy;
+    }
+
+    /**
+     * Keeps the last replayBufferSize frames sent on each push connection, a terminal losing its connection
+     * reconnects within resumeTimeout and receives the frames it missed instead of reloading the application
+     */
+    public void setResumableSocket(final int replayBufferSize, final long resumeTimeout, final TimeUnit timeUnit) {
+        this.replayBufferSize = replayBufferSize;
+        this.resumeTimeout = TimeUnit.MILLISECONDS.convert(resumeTimeout, timeUnit);
+    }
+
+    public int getReplayBufferSize() {
+        return replayBufferSize;
+    }
+
+    public long getResumeTimeout() {
+        return resumeTimeout;
+    }
+
+    /**
+     * Threads running the work handed off by the UIContexts (mailbox batches, commands, scheduled tasks)
+     */
+    public void setExecutionMode(final ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @return the executor of the execution mode, created on first use and shared by the applications using these
+     *         options
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) executor = executionMode.newExecutor();
+        return executor;
+    }
+
+    @Override
+    public String toString() {
+        return "ApplicationManagerOption [maxOutOfSyncDuration=" + maxOutOfSyncDuration + ", heartBeatPeriod=" + heartBeatPeriod + ", codec=" + codec + ", instructionCoalescing=" + instructionCoalescing + ", pushFlushMaxDelay=" + pushFlushMaxDelay
+                + ", pushFlushMaxBatchSize=" + pushFlushMaxBatchSize + ", outboundQueueMaxBytes=" + outboundQueueMaxBytes + ", outboundOverflowPolicy=" + outboundOverflowPolicy
+                + ", replayBufferSize=" + replayBufferSize + ", resumeTimeout=" + resumeTimeout + ", executionMode=" + executionMode + "]";
+    }
 }
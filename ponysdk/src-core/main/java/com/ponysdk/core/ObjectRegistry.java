@@ -0,0 +1,257 @@
+
+package com.ponysdk.core;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.instruction.GCBatch;
+import com.ponysdk.core.stm.TxnContext;
+import com.ponysdk.ui.server.basic.PObject;
+import com.ponysdk.ui.server.basic.PWidget;
+
+/**
+ * Registry of the objects of a UIContext by object ID.
+ * <p>
+ * Open addressing table (linear probing) on primitive keys, each object has a single entry which is also its weak
+ * reference. The references cleared by the JVM are polled in the background by {@link #sweep()}, the next commit
+ * releases all their terminal counterparts with a single {@link GCBatch} instruction and removes their entries once
+ * the instructions are flushed. Apart from {@link #sweep()}, the registry is accessed under the UIContext lock.
+ * </p>
+ */
+public class ObjectRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ObjectRegistry.class);
+
+    private static final long NO_PARENT = -1;
+
+    private final ReferenceQueue<PObject> queue = new ReferenceQueue<PObject>();
+
+    private long[] keys;
+
+    private Entry[] entries;
+
+    private int mask;
+
+    private int size;
+
+    private List<Entry> garbage = new ArrayList<Entry>();
+
+    // Entries released by the transaction being committed, given back to the garbage if it rolls back
+    private List<Entry> releasing = new ArrayList<Entry>();
+
+    private long[] garbageIDs = new long[64];
+
+    public ObjectRegistry() {
+        this(1024);
+    }
+
+    public ObjectRegistry(final int initialCapacity) {
+        int capacity = 16;
+        while (capacity < initialCapacity << 1) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        entries = new Entry[capacity];
+        mask = capacity - 1;
+    }
+
+    public PObject get(final long objectID) {
+        final Entry entry = entries[indexOf(objectID)];
+        return entry == null ? null : entry.get();
+    }
+
+    public void put(final long objectID, final PObject object) {
+        final Entry entry = new Entry(objectID, object, queue);
+
+        if (log.isDebugEnabled()) log.debug("Registering object: " + object);
+
+        if (object instanceof PWidget) {
+            final PWidget widget = (PWidget) object;
+            if (widget.getParent() != null) {
+                if (log.isDebugEnabled()) log.debug("Attaching object #" + objectID + " to parent: " + widget);
+                entry.parentID = widget.getParent().getID();
+            }
+        }
+
+        final int index = indexOf(objectID);
+        if (entries[index] == null) {
+            if (size + 1 > entries.length >> 1) {
+                resize(entries.length << 1);
+                insert(entry);
+            } else {
+                keys[index] = objectID;
+                entries[index] = entry;
+            }
+            size++;
+        } else {
+            entries[index] = entry;
+        }
+    }
+
+    public PObject remove(final long objectID) {
+        final int index = indexOf(objectID);
+        final Entry entry = entries[index];
+
+        if (log.isDebugEnabled()) log.debug("Removing reference on object #" + objectID);
+        if (entry == null) return null;
+
+        delete(index);
+        return entry.get();
+    }
+
+    public void assignParentID(final long objectID, final long parentObjectID) {
+        final Entry entry = entries[indexOf(objectID)];
+        if (entry == null) {
+            log.warn("Unkwnown reference to object: " + objectID);
+            return;
+        }
+        entry.parentID = parentObjectID;
+    }
+
+    /**
+     * @return the number of entries, including the ones of the objects reclaimed since the last commit
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves the references cleared by the JVM aside for the next commit, may be called from any thread
+     */
+    public void sweep() {
+        Entry entry = (Entry) queue.poll();
+        if (entry == null) return;
+
+        synchronized (queue) {
+            while (entry != null) {
+                garbage.add(entry);
+                entry = (Entry) queue.poll();
+            }
+        }
+    }
+
+    /**
+     * Releases the terminal counterparts of the objects reclaimed by the JVM, their entries are removed by
+     * {@link #commitGarbage()} once the transaction is flushed
+     */
+    public void collectGarbage(final TxnContext txnContext) {
+        sweep();
+        // A previous commit failed without rolling back
+        rollbackGarbage();
+
+        synchronized (queue) {
+            if (garbage.isEmpty()) return;
+            final List<Entry> entries = garbage;
+            garbage = releasing;
+            releasing = entries;
+        }
+
+        int count = 0;
+        for (final Entry entry : releasing) {
+            // The object ID may have been registered again in the meantime
+            if (this.entries[indexOf(entry.objectID)] != entry) continue;
+            // The objects never attached to a parent are not released on the terminal
+            if (entry.parentID == NO_PARENT) continue;
+            if (count == garbageIDs.length) garbageIDs = Arrays.copyOf(garbageIDs, count << 1);
+            garbageIDs[count++] = entry.objectID;
+        }
+
+        if (count > 0) txnContext.save(new GCBatch(garbageIDs, count));
+    }
+
+    /**
+     * Removes the entries released by the transaction, its instructions have been flushed
+     */
+    public void commitGarbage() {
+        if (releasing.isEmpty()) return;
+
+        for (final Entry entry : releasing) {
+            final int index = indexOf(entry.objectID);
+            if (entries[index] != entry) continue;
+
+            delete(index);
+            if (log.isDebugEnabled()) log.debug("Removing reference on object #" + entry.objectID);
+        }
+        releasing.clear();
+    }
+
+    /**
+     * Gives the entries released by the transaction back to the garbage, the next commit releases them again
+     */
+    public void rollbackGarbage() {
+        if (releasing.isEmpty()) return;
+
+        synchronized (queue) {
+            garbage.addAll(releasing);
+        }
+        releasing.clear();
+    }
+
+    /**
+     * @return the slot of the object ID or the empty slot where it would be inserted
+     */
+    private int indexOf(final long objectID) {
+        int index = hash(objectID) & mask;
+        while (entries[index] != null && keys[index] != objectID) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void insert(final Entry entry) {
+        final int index = indexOf(entry.objectID);
+        keys[index] = entry.objectID;
+        entries[index] = entry;
+    }
+
+    // Backward shift deletion, the probe sequences stay free of tombstones
+    private void delete(final int index) {
+        int hole = index;
+        int next = (index + 1) & mask;
+        while (entries[next] != null) {
+            final int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                entries[hole] = entries[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        entries[hole] = null;
+        size--;
+    }
+
+    private void resize(final int capacity) {
+        final Entry[] oldEntries = entries;
+        keys = new long[capacity];
+        entries = new Entry[capacity];
+        mask = capacity - 1;
+        for (final Entry entry : oldEntries) {
+            if (entry != null) insert(entry);
+        }
+    }
+
+    private static int hash(final long objectID) {
+        final long h = objectID * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static class Entry extends WeakReference<PObject> {
+
+        private final long objectID;
+
+        private long parentID = NO_PARENT;
+
+        Entry(final long objectID, final PObject object, final ReferenceQueue<PObject> queue) {
+            super(object, queue);
+            this.objectID = objectID;
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+
+package com.ponysdk.core;
+
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls in the background the objects of a UIContext reclaimed by the JVM, so that the commits only have to release
+ * them (see {@link ObjectRegistry#collectGarbage(com.ponysdk.core.stm.TxnContext)}).
+ */
+public class ObjectSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ObjectSweeper.class);
+
+    private static final int SWEEP_PERIOD = 1000;
+
+    private static final ScheduledThreadPoolExecutor sweeperTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        private final AtomicInteger i = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName(ObjectSweeper.class.getName() + "-" + i.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final ObjectRegistry objectRegistry;
+
+    private RunnableScheduledFuture<?> sweeper;
+
+    public ObjectSweeper(final ObjectRegistry objectRegistry) {
+        this.objectRegistry = objectRegistry;
+    }
+
+    public synchronized void start() {
+        if (sweeper != null) return;
+        sweeper = (RunnableScheduledFuture<?>) sweeperTimer.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    objectRegistry.sweep();
+                } catch (final Throwable e) {
+                    log.error("Cannot sweep the reclaimed objects", e);
+                }
+            }
+        }, SWEEP_PERIOD, SWEEP_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (sweeper == null) return;
+        sweeper.cancel(false);
+        sweeperTimer.remove(sweeper);
+        sweeper = null;
+    }
+
+}
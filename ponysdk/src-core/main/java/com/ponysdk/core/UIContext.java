@@ -29,14 +29,25 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ponysdk.core.concurrent.ExecutionMode;
+import com.ponysdk.core.concurrent.MailboxTask;
 import com.ponysdk.core.event.BroadcastEventHandler;
 import com.ponysdk.core.event.Event;
 import com.ponysdk.core.event.Event.Type;
@@ -50,11 +61,13 @@ import com.ponysdk.core.security.Permission;
 import com.ponysdk.core.servlet.CommunicationSanityChecker;
 import com.ponysdk.core.servlet.Session;
 import com.ponysdk.core.stm.Txn;
+import com.ponysdk.core.stm.TxnContext;
 import com.ponysdk.ui.server.basic.PCookies;
 import com.ponysdk.ui.server.basic.PHistory;
 import com.ponysdk.ui.server.basic.PObject;
 import com.ponysdk.ui.server.basic.PPusher;
 import com.ponysdk.ui.server.basic.PWindow;
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
 import com.ponysdk.ui.terminal.Dictionnary.HANDLER;
 import com.ponysdk.ui.terminal.Dictionnary.HISTORY;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
@@ -75,13 +88,33 @@ public class UIContext {
 
     private static ThreadLocal<UIContext> currentContext = new ThreadLocal<UIContext>();
 
+    private static final int MAILBOX_BATCH_SIZE = 1024;
+
+    // A drain finding the screen busy is retried later instead of parking a thread shared by all the screens
+    private static final long LOCK_RETRY_DELAY = 5;// milliseconds
+
+    private static final ScheduledThreadPoolExecutor drainRetryTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        private final AtomicInteger i = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName(UIContext.class.getName() + "-" + i.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
     private final Logger log = LoggerFactory.getLogger(UIContext.class);
 
     private long objectCounter = 1;
 
     private long streamRequestCounter = 0;
 
-    private final WeakHashMap weakReferences = new WeakHashMap();
+    private final ObjectRegistry objectRegistry = new ObjectRegistry();
+
+    private final ObjectSweeper objectSweeper = new ObjectSweeper(objectRegistry);
 
     // private final Map<Long, PTimer> timers = new ConcurrentHashMap<Long, PTimer>();
 
@@ -102,9 +135,33 @@ public class UIContext {
 
     private final ReentrantLock lock = new ReentrantLock();
 
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final Runnable mailboxDrainer = new Runnable() {
+
+        @Override
+        public void run() {
+            drainMailbox(false);
+        }
+    };
+
+    private final Runnable mailboxDrainRetry = new Runnable() {
+
+        @Override
+        public void run() {
+            submitDrain(true);
+        }
+    };
+
+    // Tasks of the mailbox batch being committed, accessed by the draining thread only
+    private final List<MailboxTask> committingTasks = new ArrayList<MailboxTask>();
+
     private long lastReceived = -1;
     private long lastSyncErrorTimestamp = 0;
     private long nextSent = 0;
+    private Runnable pendingFlush;
     private final Map<Long, JSONObject> incomingMessageQueue = new HashMap<Long, JSONObject>();
 
     private final long uiContextID;
@@ -120,12 +177,72 @@ public class UIContext {
         this.communicationSanityChecker = new CommunicationSanityChecker(this);
         this.application.registerUIContext(this);
         this.communicationSanityChecker.start();
+        this.objectSweeper.start();
     }
 
     public long getUiContextID() {
         return uiContextID;
     }
 
+    /**
+     * Processes a message sent by the terminal, whatever the channel it used (HTTP or WebSocket). Out of order
+     * messages are stacked until the missing ones are received.
+     */
+    public void fireClientMessage(final JSONObject data) throws JSONException {
+        printClientErrorMessage(data);
+
+        final long receivedSeqNum = data.getLong(APPLICATION.SEQ_NUM);
+        if (!updateIncomingSeqNum(receivedSeqNum)) {
+            stackIncomingMessage(receivedSeqNum, data);
+            final long maxOutOfSyncDuration = application.getOptions().maxOutOfSyncDuration;
+            if (maxOutOfSyncDuration > 0 && lastSyncErrorTimestamp > 0) {
+                if (System.currentTimeMillis() - lastSyncErrorTimestamp > maxOutOfSyncDuration) {
+                    log.info("Unable to sync message for " + (System.currentTimeMillis() - lastSyncErrorTimestamp) + " ms. Dropping connection (viewID #" + uiContextID + ").");
+                    destroy();
+                    return;
+                }
+            }
+            log.info("Stacking incoming message #" + receivedSeqNum + ". Data #" + data + " (viewID #" + uiContextID + ")");
+            return;
+        }
+
+        processInstructions(data);
+
+        final List<JSONObject> datas = expungeIncomingMessageQueue(receivedSeqNum);
+        for (final JSONObject jsoObject : datas) {
+            processInstructions(jsoObject);
+        }
+    }
+
+    private void printClientErrorMessage(final JSONObject data) {
+        try {
+            final JSONArray errors = data.getJSONArray(APPLICATION.ERRORS);
+            for (int i = 0; i < errors.length(); i++) {
+                final JSONObject jsoObject = errors.getJSONObject(i);
+                final String message = jsoObject.getString("message");
+                final String details = jsoObject.getString("details");
+                log.error("There was an unexpected error on the terminal. Message: " + message + ". Details: " + details);
+            }
+        } catch (final Throwable e) {
+            log.error("Failed to display errors", e);
+        }
+    }
+
+    private void processInstructions(final JSONObject jsoObject) throws JSONException {
+        if (jsoObject.has(APPLICATION.INSTRUCTIONS)) {
+            final JSONArray instructions = jsoObject.getJSONArray(APPLICATION.INSTRUCTIONS);
+            for (int i = 0; i < instructions.length(); i++) {
+                JSONObject jsonObject = null;
+                try {
+                    jsonObject = instructions.getJSONObject(i);
+                    fireClientData(jsonObject);
+                } catch (final Throwable e) {
+                    log.error("Failed to process instruction: " + jsonObject, e);
+                }
+            }
+        }
+    }
+
     public void fireClientData(final JSONObject instruction) throws JSONException {
         if (instruction.has(TYPE.KEY)) {
             if (instruction.get(TYPE.KEY).equals(TYPE.KEY_.CLOSE)) {
@@ -141,13 +258,13 @@ public class UIContext {
             }
         }
 
-        final PObject object = weakReferences.get(instruction.getLong(PROPERTY.OBJECT_ID));
+        final PObject object = objectRegistry.get(instruction.getLong(PROPERTY.OBJECT_ID));
 
         if (object == null) {
             log.warn("unknown reference from the browser. Unable to execute instruction: " + instruction);
             try {
                 if (instruction.has(PROPERTY.PARENT_ID)) {
-                    final PObject parentOfGarbageObject = weakReferences.get(instruction.getLong(PROPERTY.PARENT_ID));
+                    final PObject parentOfGarbageObject = objectRegistry.get(instruction.getLong(PROPERTY.PARENT_ID));
                     log.warn("parent: " + parentOfGarbageObject);
                 }
             } catch (final Exception e) {}
@@ -165,14 +282,178 @@ public class UIContext {
         lock.lock();
     }
 
+    /**
+     * @return true if the lock of the screen was free and is now held by the current thread
+     */
+    public boolean tryAcquire() {
+        return lock.tryLock();
+    }
+
     public void release() {
         lock.unlock();
     }
 
+    public boolean isAcquiredByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+
     public long nextID() {
         return objectCounter++;
     }
 
+    /**
+     * Queues the task in the mailbox of the screen and lets the executor drain it. The tasks queued until the drain
+     * starts are committed within a single transaction.
+     */
+    public void execute(final Runnable task, final Executor drainExecutor) {
+        if (getPusher() == null) {
+            executeLocked(task);
+            return;
+        }
+
+        mailbox.offer(task);
+        if (draining.compareAndSet(false, true)) drainExecutor.execute(mailboxDrainer);
+    }
+
+    /**
+     * Runs the task serially with the other tasks of the screen, without parking the calling thread.
+     * <p>
+     * The task is queued in the mailbox of the screen, the thread setting the draining flag first runs all the queued
+     * tasks, the others return immediately. The tasks drained together are committed within a single transaction on
+     * the pusher channel, a {@link MailboxTask} is told if the commit fails. A task submitted from a transaction of the
+     * screen runs immediately, a task submitted from another screen (or any task with the {@link ExecutionMode#VIRTUAL}
+     * mode) is drained by a thread of the execution mode.
+     * </p>
+     * <p>
+     * HTTP requests and WebSocket messages still take the lock of the screen. When one of them holds it, the drain is
+     * handed to a thread of the execution mode which retries it shortly after, no thread waits for the lock. Without a
+     * pusher the task runs under the lock of the screen, as the HTTP requests do.
+     * </p>
+     */
+    public void execute(final Runnable task) {
+        final UIContext current = UIContext.get();
+        if (current == this) {
+            task.run();
+            return;
+        }
+
+        if (getPusher() == null) {
+            executeLocked(task);
+            return;
+        }
+
+        mailbox.offer(task);
+
+        final ExecutionMode executionMode = application.getOptions().getExecutionMode();
+        if (current != null || executionMode.isVirtual()) {
+            if (draining.compareAndSet(false, true)) submitDrain(true);
+        } else if (draining.compareAndSet(false, true)) {
+            drainMailbox(true);
+        }
+    }
+
+    private void executeLocked(final Runnable task) {
+        final UIContext current = UIContext.get();
+        acquire();
+        UIContext.setCurrent(this);
+        try {
+            task.run();
+        } finally {
+            if (current != null) UIContext.setCurrent(current);
+            else UIContext.remove();
+            release();
+        }
+    }
+
+    /**
+     * Drains the mailbox with the draining flag held by the caller, the flag is reset or handed over with the drain
+     * whatever happens.
+     * 
+     * @param inline
+     *            true if the submitting thread drains, it neither waits for the lock of the screen nor for the
+     *            connection
+     */
+    private void drainMailbox(final boolean inline) {
+        do {
+            boolean handedOver = false;
+            PPusher pusher = null;
+            try {
+                pusher = getPusher();
+                if (pusher == null) {
+                    discardMailbox();
+                } else if (!tryAcquire()) {
+                    handedOver = true;
+                    submitDrain(inline);
+                    return;
+                } else {
+                    UIContext.setCurrent(this);
+                    try {
+                        commitMailbox(pusher);
+                    } finally {
+                        UIContext.remove();
+                        release();
+                    }
+                }
+            } finally {
+                if (!handedOver) draining.set(false);
+            }
+            // The connection is waited for outside of the lock, the other tasks of the screen keep running
+            if (!inline && pusher != null) pusher.getTxContext().awaitOutboundQueue();
+            // A task queued after the last poll did not get the flag
+        } while (!mailbox.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Hands the drain, and the draining flag, over to a thread of the execution mode
+     * 
+     * @param now
+     *            false to retry shortly after a drain which found the screen busy
+     */
+    private void submitDrain(final boolean now) {
+        try {
+            if (now) application.getOptions().getExecutor().execute(mailboxDrainer);
+            else drainRetryTimer.schedule(mailboxDrainRetry, LOCK_RETRY_DELAY, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            log.error("Cannot drain the mailbox of the ViewID #" + uiContextID, e);
+            draining.set(false);
+        }
+    }
+
+    // The screen has been destroyed, nothing will commit the queued tasks
+    private void discardMailbox() {
+        Runnable task;
+        while ((task = mailbox.poll()) != null) {
+            log.warn("Discarding task " + task + ", the pusher of the ViewID #" + uiContextID + " is gone");
+            if (task instanceof MailboxTask) ((MailboxTask) task).onCommitFailure(new IllegalStateException("PPusher not initialized"));
+        }
+    }
+
+    private void commitMailbox(final PPusher pusher) {
+        final Txn txn = Txn.get();
+        txn.begin(pusher.getTxContext());
+        try {
+            Runnable task;
+            int count = 0;
+            while (count++ < MAILBOX_BATCH_SIZE && (task = mailbox.poll()) != null) {
+                if (task instanceof MailboxTask) committingTasks.add((MailboxTask) task);
+                try {
+                    task.run();
+                } catch (final Throwable e) {
+                    log.error("Cannot run task " + task, e);
+                }
+            }
+            txn.commit();
+        } catch (final Throwable e) {
+            log.error("Cannot commit the tasks of the mailbox", e);
+            txn.rollback();
+            for (final MailboxTask task : committingTasks) {
+                task.onCommitFailure(e);
+            }
+        } finally {
+            committingTasks.clear();
+        }
+    }
+
     public PPusher getPusher() {
         return getAttribute(PPusher.PUSHER);
     }
@@ -182,21 +463,42 @@ public class UIContext {
     }
 
     public void registerObject(final PObject object) {
-        weakReferences.put(object.getID(), object);
+        objectRegistry.put(object.getID(), object);
     }
 
     // public void unRegisterObject(final PObject object) {
     // timers.remove(object.getID());
-    // weakReferences.remove(object.getID());
+    // objectRegistry.remove(object.getID());
     // }
 
     public void assignParentID(final long objectID, final long parentID) {
-        weakReferences.assignParentID(objectID, parentID);
+        objectRegistry.assignParentID(objectID, parentID);
+    }
+
+    /**
+     * Releases the terminal counterparts of the objects reclaimed by the JVM, called by each commit
+     */
+    public void collectGarbage(final TxnContext txnContext) {
+        objectRegistry.collectGarbage(txnContext);
+    }
+
+    /**
+     * Forgets the objects released by the transaction, called once its instructions are flushed
+     */
+    public void commitGarbage() {
+        objectRegistry.commitGarbage();
+    }
+
+    /**
+     * Releases again with the next commit the objects released by a transaction rolled back
+     */
+    public void rollbackGarbage() {
+        objectRegistry.rollbackGarbage();
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getObject(final long objectID) {
-        return (T) weakReferences.get(objectID);
+        return (T) objectRegistry.get(objectID);
     }
 
     public Session getSession() {
@@ -379,7 +681,20 @@ public class UIContext {
         return true;
     }
 
+    /**
+     * Registers instructions held back by a flush window, they are sent before any other batch takes a seq num so
+     * that the terminal receives the instructions in the order they were committed.
+     */
+    public void setPendingFlush(final Runnable pendingFlush) {
+        this.pendingFlush = pendingFlush;
+    }
+
     public long getAndIncrementNextSentSeqNum() {
+        if (pendingFlush != null) {
+            final Runnable flush = pendingFlush;
+            pendingFlush = null;
+            flush.run();
+        }
         final long n = nextSent;
         nextSent++;
         return n;
@@ -410,6 +725,7 @@ public class UIContext {
     public void destroy() {
         log.info("Destroying UIContext ViewID #{} from the Session #{}", uiContextID, application.getSession().getId());
         communicationSanityChecker.stop();
+        objectSweeper.stop();
         application.unregisterUIContext(uiContextID);
 
         for (final UIContextListener listener : uiContextListeners) {
@@ -423,6 +739,10 @@ public class UIContext {
         uiContextListeners.add(listener);
     }
 
+    public void removeUIContextListener(final UIContextListener listener) {
+        uiContextListeners.remove(listener);
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -25,6 +25,7 @@ package com.ponysdk.core.command;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -86,6 +87,31 @@ public abstract class AbstractServiceCommand<T> implements AsyncCallback<T>, Com
         }
     }
 
+    /**
+     * Runs the command on the bulkhead of its service, the callbacks are then notified on the UIContext through the
+     * pusher channel. The UIContext lock is not held while the command runs.
+     */
+    public Future<T> executeAsync() {
+        return executeAsync(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param timeout
+     *            the callbacks are notified of a {@link java.util.concurrent.TimeoutException} if the command has not
+     *            completed in time, 0 for no timeout
+     */
+    public Future<T> executeAsync(final long timeout, final TimeUnit unit) {
+        return AsyncCommandExecutor.get().submit(getServiceName(), this, timeout, unit);
+    }
+
+    /**
+     * @return the name of the bulkhead running the command asynchronously, the commands calling the same backend
+     *         should share it
+     */
+    protected String getServiceName() {
+        return getClass().getName();
+    }
+
     protected abstract T execute0() throws Exception;
 
     protected void doAfterSuccess(final T result) {
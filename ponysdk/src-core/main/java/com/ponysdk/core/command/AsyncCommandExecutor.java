@@ -0,0 +1,285 @@
+
+package com.ponysdk.core.command;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.UIContextListener;
+
+/**
+ * Runs the service commands out of the UIContext lock.
+ * <p>
+ * Each service has its own bounded pool (bulkhead), a slow backend only exhausts the threads of its service and the
+ * commands beyond the queue of a bulkhead are rejected immediately, their failure is applied afterwards like any other
+ * outcome. The outcome of a command is applied back on its UIContext
+ * through the pusher channel. The pending commands of a UIContext are cancelled when it is destroyed.
+ * </p>
+ */
+public class AsyncCommandExecutor implements UIContextListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncCommandExecutor.class);
+
+    private static final AsyncCommandExecutor INSTANCE = new AsyncCommandExecutor();
+
+    private static final long TIMEOUT_PURGE_PERIOD = 10;// seconds
+
+    private static final ScheduledThreadPoolExecutor timeoutTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        private final AtomicInteger i = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName(AsyncCommandExecutor.class.getName() + "-timeout-" + i.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    // The timeouts of the commands completed in time, still queued in the timer until purged
+    private static final AtomicInteger cancelledTimeouts = new AtomicInteger();
+
+    static {
+        timeoutTimer.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                if (cancelledTimeouts.getAndSet(0) > 0) timeoutTimer.purge();
+            }
+        }, TIMEOUT_PURGE_PERIOD, TIMEOUT_PURGE_PERIOD, TimeUnit.SECONDS);
+    }
+
+    private int defaultThreads = Runtime.getRuntime().availableProcessors();
+
+    private int defaultQueueSize = 1000;
+
+    private final ConcurrentMap<String, ThreadPoolExecutor> bulkheads = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+
+    private final ConcurrentMap<UIContext, Set<CommandTask<?>>> tasksByUIContext = new ConcurrentHashMap<UIContext, Set<CommandTask<?>>>();
+
+    private AsyncCommandExecutor() {}
+
+    public static AsyncCommandExecutor get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Bounds of the bulkheads of the services without specific bounds, applies to the bulkheads created afterwards
+     */
+    public void setDefaultBulkhead(final int threads, final int queueSize) {
+        this.defaultThreads = threads;
+        this.defaultQueueSize = queueSize;
+    }
+
+    /**
+     * @param threads
+     *            maximum number of commands of the service running at the same time
+     * @param queueSize
+     *            maximum number of commands of the service waiting for a thread
+     */
+    public void setBulkhead(final String service, final int threads, final int queueSize) {
+        final ThreadPoolExecutor previous = bulkheads.put(service, newBulkhead(service, threads, queueSize));
+        if (previous != null) previous.shutdown();
+    }
+
+    /**
+     * Runs the command on the bulkhead of the service, must be called from UI client code
+     * 
+     * @param timeout
+     *            0 for no timeout
+     * @return cancelling the future discards the outcome of the command
+     */
+    public <T> Future<T> submit(final String service, final AbstractServiceCommand<T> command, final long timeout, final TimeUnit unit) {
+        final UIContext uiContext = UIContext.get();
+        if (uiContext == null) throw new IllegalStateException("AsyncCommandExecutor must be called from UI client code");
+        if (uiContext.getPusher() == null) throw new IllegalStateException("PPusher not initialized");
+
+        final CommandTask<T> task = new CommandTask<T>(uiContext, command);
+        register(task);
+        try {
+            getBulkhead(service).execute(task);
+        } catch (final RejectedExecutionException e) {
+            task.fail(new RejectedExecutionException("Bulkhead of service " + service + " is full"));
+            return task;
+        }
+        if (timeout > 0) {
+            task.timeout = timeoutTimer.schedule(task.timeoutTask, timeout, unit);
+            // The command may have completed in the meantime
+            if (task.isDone() && task.timeout.cancel(false)) cancelledTimeouts.incrementAndGet();
+        }
+        return task;
+    }
+
+    /**
+     * @return the number of commands of the service waiting for a thread
+     */
+    public int getQueuedCount(final String service) {
+        final ThreadPoolExecutor bulkhead = bulkheads.get(service);
+        return bulkhead == null ? 0 : bulkhead.getQueue().size();
+    }
+
+    /**
+     * @return the number of commands of the service running
+     */
+    public int getActiveCount(final String service) {
+        final ThreadPoolExecutor bulkhead = bulkheads.get(service);
+        return bulkhead == null ? 0 : bulkhead.getActiveCount();
+    }
+
+    private ThreadPoolExecutor getBulkhead(final String service) {
+        ThreadPoolExecutor bulkhead = bulkheads.get(service);
+        if (bulkhead != null) return bulkhead;
+
+        final ThreadPoolExecutor newBulkhead = newBulkhead(service, defaultThreads, defaultQueueSize);
+        bulkhead = bulkheads.putIfAbsent(service, newBulkhead);
+        if (bulkhead == null) return newBulkhead;
+        newBulkhead.shutdown();
+        return bulkhead;
+    }
+
+    private static ThreadPoolExecutor newBulkhead(final String service, final int threads, final int queueSize) {
+        final ThreadPoolExecutor bulkhead = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+
+            private final AtomicInteger i = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r);
+                t.setName(AsyncCommandExecutor.class.getName() + "-" + service + "-" + i.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        bulkhead.allowCoreThreadTimeOut(true);
+        return bulkhead;
+    }
+
+    private void register(final CommandTask<?> task) {
+        Set<CommandTask<?>> tasks = tasksByUIContext.get(task.uiContext);
+        if (tasks == null) {
+            final Set<CommandTask<?>> newTasks = Collections.newSetFromMap(new ConcurrentHashMap<CommandTask<?>, Boolean>());
+            tasks = tasksByUIContext.putIfAbsent(task.uiContext, newTasks);
+            if (tasks == null) {
+                tasks = newTasks;
+                task.uiContext.addUIContextListener(this);
+            }
+        }
+        tasks.add(task);
+    }
+
+    private void unregister(final CommandTask<?> task) {
+        final Set<CommandTask<?>> tasks = tasksByUIContext.get(task.uiContext);
+        if (tasks != null) tasks.remove(task);
+    }
+
+    @Override
+    public void onUIContextDestroyed(final UIContext uiContext) {
+        final Set<CommandTask<?>> tasks = tasksByUIContext.remove(uiContext);
+        if (tasks == null) return;
+        for (final CommandTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    private class CommandTask<T> extends FutureTask<T> {
+
+        private final UIContext uiContext;
+
+        private final AbstractServiceCommand<T> command;
+
+        private volatile boolean timedOut;
+
+        private volatile ScheduledFuture<?> timeout;
+
+        private final Runnable timeoutTask = new Runnable() {
+
+            @Override
+            public void run() {
+                timedOut = true;
+                cancel(true);
+            }
+        };
+
+        CommandTask(final UIContext uiContext, final AbstractServiceCommand<T> command) {
+            super(new Callable<T>() {
+
+                @Override
+                public T call() throws Exception {
+                    final long start = System.nanoTime();
+                    try {
+                        return command.execute0();
+                    } finally {
+                        command.executionTime = System.nanoTime() - start;
+                    }
+                }
+            });
+            this.uiContext = uiContext;
+            this.command = command;
+        }
+
+        void fail(final Throwable e) {
+            setException(e);
+        }
+
+        @Override
+        protected void done() {
+            final ScheduledFuture<?> timeout = this.timeout;
+            if (timeout != null && timeout.cancel(false)) cancelledTimeouts.incrementAndGet();
+            unregister(this);
+
+            // Cancelled by the caller or by the destruction of the UIContext
+            if (isCancelled() && !timedOut) return;
+
+            final Runnable applyTask = new Runnable() {
+
+                @Override
+                public void run() {
+                    apply();
+                }
+            };
+            try {
+                if (UIContext.get() == uiContext) {
+                    // Rejected by the bulkhead within submit, applied once the caller is done with the screen
+                    uiContext.execute(applyTask, uiContext.getApplication().getOptions().getExecutor());
+                } else {
+                    uiContext.execute(applyTask);
+                }
+            } catch (final Exception e) {
+                log.error("Cannot apply the outcome of command " + command + " on " + uiContext, e);
+            }
+        }
+
+        private void apply() {
+            try {
+                command.onSuccess(get());
+            } catch (final ExecutionException e) {
+                command.onFailure(e.getCause());
+            } catch (final CancellationException e) {
+                command.onFailure(new TimeoutException("Command " + command.getClass().getName() + " timed out"));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
@@ -12,6 +12,8 @@ import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ponysdk.core.UIContext;
+
 public class CommandQueue<T> {
 
     private static final Logger log = LoggerFactory.getLogger(CommandQueue.class);
@@ -31,7 +33,7 @@ public class CommandQueue<T> {
         List<CommandResult<T>> results = new ArrayList<CommandResult<T>>();
         List<Future<CommandResult<T>>> all;
         try {
-            all = executorService.invokeAll(queue);
+            all = getExecutorService().invokeAll(queue);
             for (Future<CommandResult<T>> future : all) {
                 results.add(future.get());
             }
@@ -44,6 +46,12 @@ public class CommandQueue<T> {
         return results;
     }
 
+    private static ExecutorService getExecutorService() {
+        final UIContext uiContext = UIContext.get();
+        if (uiContext != null && uiContext.getApplication().getOptions().getExecutionMode().isVirtual()) return uiContext.getApplication().getOptions().getExecutor();
+        return executorService;
+    }
+
     private class CallableCommand<R> implements Callable<CommandResult<R>> {
 
         private final Command<R> command;
@@ -0,0 +1,124 @@
+
+package com.ponysdk.core.command;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.UIContextListener;
+import com.ponysdk.core.event.HandlerRegistration;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.stm.FrameTemplate;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.ui.server.basic.PObject;
+
+/**
+ * Multicasts messages to the objects of many screens.
+ * <p>
+ * Unlike {@link PushListenerCollection}, where each screen builds and serializes its own instructions, a published
+ * message is rendered once into a {@link FrameTemplate}. Each subscriber gets the shared encoding with the ID of its
+ * object spliced in, queued in the mailbox of its UIContext and drained by the threads of its execution mode, the
+ * publisher never runs the deliveries itself. A subscription ends with the UIContext or once its object has been
+ * garbage collected.
+ * </p>
+ */
+public class PushTopic<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(PushTopic.class);
+
+    private final TopicRenderer<T> renderer;
+
+    // Iterated in subscription order, the UIContexts are visited in allocation order
+    private final Collection<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+    public PushTopic(final TopicRenderer<T> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Subscribes an object of the current UIContext, the topic does not keep the object from being garbage collected
+     */
+    public HandlerRegistration subscribe(final PObject object) {
+        final UIContext uiContext = UIContext.get();
+        if (uiContext == null) throw new IllegalStateException("PushTopic.subscribe must be called from UI client code");
+
+        final Subscription subscription = new Subscription(uiContext, object);
+        subscriptions.add(subscription);
+        uiContext.addUIContextListener(subscription);
+        return subscription;
+    }
+
+    public void publish(final T msg) {
+        final Update update = new Update(0);
+        renderer.render(msg, update);
+
+        final FrameTemplate template;
+        try {
+            template = new FrameTemplate(update);
+        } catch (final Exception e) {
+            log.error("Cannot render message " + msg, e);
+            return;
+        }
+
+        for (final Subscription subscription : subscriptions) {
+            final UIContext uiContext = subscription.uiContext;
+            try {
+                uiContext.execute(subscription.newDelivery(template), uiContext.getApplication().getOptions().getExecutor());
+            } catch (final Exception e) {
+                log.error("Cannot deliver message to " + subscription.uiContext, e);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private class Subscription implements HandlerRegistration, UIContextListener {
+
+        private final UIContext uiContext;
+
+        private final WeakReference<PObject> object;
+
+        private final long objectID;
+
+        Subscription(final UIContext uiContext, final PObject object) {
+            this.uiContext = uiContext;
+            this.object = new WeakReference<PObject>(object);
+            this.objectID = object.getID();
+        }
+
+        Runnable newDelivery(final FrameTemplate template) {
+            return new Runnable() {
+
+                @Override
+                public void run() {
+                    if (object.get() == null) {
+                        removeHandler();
+                        return;
+                    }
+                    template.save(Txn.get().getTxnContext(), objectID);
+                }
+            };
+        }
+
+        /**
+         * Must be called from the UIContext of the subscription
+         */
+        @Override
+        public void removeHandler() {
+            subscriptions.remove(this);
+            uiContext.removeUIContextListener(this);
+        }
+
+        @Override
+        public void onUIContextDestroyed(final UIContext uiContext) {
+            subscriptions.remove(this);
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+
+package com.ponysdk.core.command;
+
+import com.ponysdk.core.instruction.Update;
+
+public interface TopicRenderer<T> {
+
+    /**
+     * Puts the properties sent to all the subscribers of the topic, called once per published message
+     */
+    public void render(T msg, Update update);
+}
@@ -0,0 +1,211 @@
+
+package com.ponysdk.core.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Threads running the work of the UIContexts handed off by the framework : mailbox batches, {@code CommandQueue}
+ * commands and {@link UIScheduledThreadPoolExecutor} tasks.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Daemon platform threads, the submitting thread drains the mailbox of a UIContext itself when it can
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per task (never pooled), blocking sections (lock waits, DAO calls, socket writes) only park
+     * the virtual thread. Requires a Java 21 runtime, the platform threads are used otherwise.
+     */
+    VIRTUAL;
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionMode.class);
+
+    private static final ThreadFactory virtualThreadFactory = newVirtualThreadFactory();
+
+    /**
+     * @return true if the runtime provides virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+        return virtualThreadFactory != null;
+    }
+
+    public boolean isVirtual() {
+        return this == VIRTUAL && virtualThreadFactory != null;
+    }
+
+    /**
+     * @return a new executor running the tasks on the threads of this mode, owned (and shut down) by the caller
+     */
+    public ExecutorService newExecutor() {
+        if (this == VIRTUAL && virtualThreadFactory == null) log.warn("Virtual threads are not supported by this runtime (Java " + System.getProperty("java.version")
+                + "), using platform threads");
+        if (isVirtual()) return new ThreadPerTaskExecutor(virtualThreadFactory);
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger i = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r);
+                t.setName(ExecutionMode.class.getName() + "-" + i.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Starts a new thread for each task, virtual threads are cheap to create and must not be pooled. The live threads
+     * are tracked so that the executor terminates once they are all done.
+     */
+    private static class ThreadPerTaskExecutor extends AbstractExecutorService {
+
+        private final ThreadFactory threadFactory;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition terminated = lock.newCondition();
+
+        private final Set<Thread> threads = new HashSet<Thread>();
+
+        private boolean shutdown;
+
+        ThreadPerTaskExecutor(final ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            final Thread thread = threadFactory.newThread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        onTaskDone(Thread.currentThread());
+                    }
+                }
+            });
+
+            lock.lock();
+            try {
+                if (shutdown) throw new RejectedExecutionException("Executor shut down");
+                threads.add(thread);
+            } finally {
+                lock.unlock();
+            }
+            thread.start();
+        }
+
+        private void onTaskDone(final Thread thread) {
+            lock.lock();
+            try {
+                threads.remove(thread);
+                if (shutdown && threads.isEmpty()) terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            lock.lock();
+            try {
+                shutdown = true;
+                if (threads.isEmpty()) terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // The tasks are never queued, they all run already
+        @Override
+        public List<Runnable> shutdownNow() {
+            final List<Thread> running;
+            lock.lock();
+            try {
+                shutdown();
+                running = new ArrayList<Thread>(threads);
+            } finally {
+                lock.unlock();
+            }
+            for (final Thread thread : running) {
+                thread.interrupt();
+            }
+            return new ArrayList<Runnable>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            lock.lock();
+            try {
+                return shutdown;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            lock.lock();
+            try {
+                return shutdown && threads.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (!(shutdown && threads.isEmpty())) {
+                    if (nanos <= 0) return false;
+                    nanos = terminated.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Thread.ofVirtual().name(prefix, 0).factory(), looked up at runtime since the sources target older Java versions
+    private static ThreadFactory newVirtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(name.invoke(builder, ExecutionMode.class.getName() + "-virtual-", 0L));
+        } catch (final NoSuchMethodException e) {
+            return null;
+        } catch (final ClassNotFoundException e) {
+            return null;
+        } catch (final Exception e) {
+            log.warn("Cannot create virtual threads", e);
+            return null;
+        }
+    }
+
+}
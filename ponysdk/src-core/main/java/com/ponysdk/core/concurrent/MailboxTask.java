@@ -0,0 +1,12 @@
+
+package com.ponysdk.core.concurrent;
+
+/**
+ * Task queued in the mailbox of a UIContext (see {@link com.ponysdk.core.UIContext#execute(Runnable)}) which is told
+ * when the transaction it ran in fails to commit.
+ */
+public interface MailboxTask extends Runnable {
+
+    void onCommitFailure(Throwable e);
+
+}
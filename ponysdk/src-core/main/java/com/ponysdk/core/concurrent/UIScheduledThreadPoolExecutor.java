@@ -1,13 +1,18 @@
 
 package com.ponysdk.core.concurrent;
 
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,18 +21,40 @@ import com.ponysdk.core.UIContext;
 import com.ponysdk.core.UIContextListener;
 import com.ponysdk.ui.server.basic.PWindow;
 
+/**
+ * Schedules tasks on behalf of the UIContexts, the tasks run serially with the other tasks of their screen.
+ * <p>
+ * Cancelling a task only flags it, the cancelled tasks are dropped when they come due or by the compaction that purges
+ * the executor queue periodically. With tick batching, the tasks of a screen coming due together are committed within a
+ * single transaction. A task failing to run or to commit is cancelled, a periodic task skips its runs while the
+ * previous one is still waiting for the screen.
+ * </p>
+ */
 public class UIScheduledThreadPoolExecutor implements UIScheduledExecutorService, UIContextListener {
 
     private static Logger log = LoggerFactory.getLogger(UIScheduledThreadPoolExecutor.class);
 
+    private static final long COMPACTION_PERIOD = 10;// seconds
+
     private static UIScheduledThreadPoolExecutor INSTANCE;
 
     protected final ScheduledThreadPoolExecutor executor;
-    protected Map<UIContext, Set<UIRunnable>> runnablesByUIContexts = new ConcurrentHashMap<UIContext, Set<UIRunnable>>();
+    protected ConcurrentMap<UIContext, Set<UIRunnable>> runnablesByUIContexts = new ConcurrentHashMap<UIContext, Set<UIRunnable>>();
+
+    private final AtomicInteger cancellations = new AtomicInteger();
+
+    private volatile boolean tickBatching;
 
     private UIScheduledThreadPoolExecutor(final ScheduledThreadPoolExecutor executor) {
         log.info("Initializing UIScheduledThreadPoolExecutor");
         this.executor = executor;
+        this.executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                compact();
+            }
+        }, COMPACTION_PERIOD, COMPACTION_PERIOD, TimeUnit.SECONDS);
     }
 
     public static UIScheduledThreadPoolExecutor initDefault() {
@@ -46,6 +73,43 @@ public class UIScheduledThreadPoolExecutor implements UIScheduledExecutorService
         return INSTANCE;
     }
 
+    /**
+     * With tick batching, the tasks of a screen coming due together are queued in its mailbox and drained by a single
+     * executor task, under a single lock acquisition and a single transaction commit. Otherwise each task is
+     * committed on its own.
+     */
+    public void setTickBatching(final boolean tickBatching) {
+        this.tickBatching = tickBatching;
+    }
+
+    public boolean isTickBatching() {
+        return tickBatching;
+    }
+
+    /**
+     * Removes the cancelled tasks from the executor queue, if any task has been cancelled since the last compaction.
+     * Also runs every {@value #COMPACTION_PERIOD} seconds.
+     * 
+     * @return the number of tasks removed from the executor queue
+     */
+    public int compact() {
+        final int cancelled = cancellations.getAndSet(0);
+        if (cancelled == 0) return 0;
+        final int size = executor.getQueue().size();
+        executor.purge();
+        final int left = executor.getQueue().size();
+        if (log.isDebugEnabled()) log.debug("Purged the executor queue after " + cancelled + " cancellations, " + left + " tasks left");
+        return Math.max(0, size - left);
+    }
+
+    /**
+     * @return the number of tasks of the screen neither cancelled nor run (for the one-shot tasks)
+     */
+    public int getTaskCount(final UIContext uiContext) {
+        final Set<UIRunnable> runnables = runnablesByUIContexts.get(uiContext);
+        return runnables == null ? 0 : runnables.size();
+    }
+
     private void checkUIState() {
         if (UIContext.get() == null) throw new IllegalAccessError("UIScheduledThreadPoolExecutor must be called from UI client code");
         if (UIContext.get().getPusher() == null) throw new IllegalAccessError("PPusher not initialized");
@@ -55,34 +119,47 @@ public class UIScheduledThreadPoolExecutor implements UIScheduledExecutorService
     public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
         checkUIState();
         final UIRunnable runnable = new UIRunnable(command);
-        final ScheduledFuture<?> future = executor.schedule(runnable, delay, unit);
-        runnable.setFuture(future);
+        // Registered first, a one-shot task may run before schedule() returns
         registerTask(runnable);
+        try {
+            runnable.setFuture(executor.schedule(runnable, delay, unit));
+        } catch (final RuntimeException e) {
+            unregisterTask(runnable);
+            throw e;
+        }
 
-        return future;
+        return runnable;
     }
 
     @Override
     public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period, final TimeUnit unit) {
         checkUIState();
-        final UIRunnable runnable = new UIRunnable(command);
-        final ScheduledFuture<?> future = executor.scheduleAtFixedRate(runnable, initialDelay, period, unit);
-        runnable.setFuture(future);
+        final UIRunnable runnable = new UIRunnable(command, true);
         registerTask(runnable);
+        try {
+            runnable.setFuture(executor.scheduleAtFixedRate(runnable, initialDelay, period, unit));
+        } catch (final RuntimeException e) {
+            unregisterTask(runnable);
+            throw e;
+        }
 
-        return future;
+        return runnable;
     }
 
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay, final TimeUnit unit) {
         checkUIState();
 
-        final UIRunnable runnable = new UIRunnable(command);
-        final ScheduledFuture<?> future = executor.scheduleWithFixedDelay(runnable, initialDelay, delay, unit);
-        runnable.setFuture(future);
+        final UIRunnable runnable = new UIRunnable(command, true);
         registerTask(runnable);
+        try {
+            runnable.setFuture(executor.scheduleWithFixedDelay(runnable, initialDelay, delay, unit));
+        } catch (final RuntimeException e) {
+            unregisterTask(runnable);
+            throw e;
+        }
 
-        return future;
+        return runnable;
     }
 
     static class WindowUIRunnable implements Runnable {
@@ -109,16 +186,31 @@ public class UIScheduledThreadPoolExecutor implements UIScheduledExecutorService
         }
     }
 
-    protected class UIRunnable implements Runnable {
+    /**
+     * Task of a screen, also the future returned to the caller : cancelling it unregisters the task and counts for the
+     * compaction
+     */
+    protected class UIRunnable implements Runnable, ScheduledFuture<Object> {
 
         private final Runnable runnable;
         private final UIContext uiContext;
 
-        private boolean cancelled;
-        private ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+        // Null until the task has been handed to the executor
+        private volatile ScheduledFuture<?> future;
         private final PWindow window;
+        private final boolean periodic;
+        // Set while a run waits in the mailbox of the screen
+        private final AtomicBoolean pending = new AtomicBoolean();
+        // Set once a one-shot task has been handed to its screen, it may run before its future completes
+        private volatile boolean handed;
 
         public UIRunnable(final Runnable runnable) {
+            this(runnable, false);
+        }
+
+        public UIRunnable(final Runnable runnable, final boolean periodic) {
+            this.periodic = periodic;
             this.uiContext = UIContext.get();
 
             this.window = UIContext.getCurrentWindow();
@@ -129,20 +221,95 @@ public class UIScheduledThreadPoolExecutor implements UIScheduledExecutorService
             }
         }
 
+        private final MailboxTask task = new MailboxTask() {
+
+            @Override
+            public void run() {
+                try {
+                    if (!cancelled) runnable.run();
+                } catch (final Throwable e) {
+                    log.error("Cannot run UIRunnable, cancelling it", e);
+                    cancel(false);
+                } finally {
+                    pending.set(false);
+                }
+            }
+
+            @Override
+            public void onCommitFailure(final Throwable e) {
+                log.error("Cannot commit UIRunnable, cancelling it", e);
+                cancel(false);
+            }
+        };
+
         @Override
         public void run() {
             if (cancelled) return;
-            if (!uiContext.getPusher().execute(runnable)) cancel();
+            // The previous run is still queued behind the other tasks of the screen, the periodic runs do not pile up
+            if (!pending.compareAndSet(false, true)) return;
+            if (!periodic) {
+                handed = true;
+                unregisterTask(this);
+            }
+            if (tickBatching) uiContext.execute(task, executor);
+            else uiContext.execute(task);
         }
 
         public void cancel() {
+            flagCancelled(true);
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            // A one-shot task already handed to its screen
+            if (handed && !cancelled) return false;
+            flagCancelled(mayInterruptIfRunning);
+            unregisterTask(this);
+            return true;
+        }
+
+        // The future is cancelled by whichever of this method and setFuture() comes last
+        private void flagCancelled(final boolean mayInterruptIfRunning) {
+            if (cancelled) return;
             this.cancelled = true;
-            this.future.cancel(true);
-            executor.purge();
+            final ScheduledFuture<?> f = future;
+            if (f != null) f.cancel(mayInterruptIfRunning);
+            cancellations.incrementAndGet();
         }
 
         public void setFuture(final ScheduledFuture<?> future) {
             this.future = future;
+            if (cancelled) future.cancel(false);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return cancelled || handed || future.isDone();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        @Override
+        public Object get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return future.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return future.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(final Delayed o) {
+            return future.compareTo(o);
         }
 
         public UIContext getUiContext() {
@@ -153,15 +320,23 @@ public class UIScheduledThreadPoolExecutor implements UIScheduledExecutorService
 
     protected void registerTask(final UIRunnable runnable) {
         final UIContext uiContext = runnable.getUiContext();
-        uiContext.addUIContextListener(this);
         Set<UIRunnable> runnables = runnablesByUIContexts.get(uiContext);
         if (runnables == null) {
-            runnables = new HashSet<UIScheduledThreadPoolExecutor.UIRunnable>();
-            runnablesByUIContexts.put(uiContext, runnables);
+            final Set<UIRunnable> newRunnables = Collections.newSetFromMap(new ConcurrentHashMap<UIRunnable, Boolean>());
+            runnables = runnablesByUIContexts.putIfAbsent(uiContext, newRunnables);
+            if (runnables == null) {
+                runnables = newRunnables;
+                uiContext.addUIContextListener(this);
+            }
         }
         runnables.add(runnable);
     }
 
+    protected void unregisterTask(final UIRunnable runnable) {
+        final Set<UIRunnable> runnables = runnablesByUIContexts.get(runnable.getUiContext());
+        if (runnables != null) runnables.remove(runnable);
+    }
+
     @Override
     public void onUIContextDestroyed(final UIContext uiContext) {
         final Set<UIRunnable> runnables = runnablesByUIContexts.remove(uiContext);
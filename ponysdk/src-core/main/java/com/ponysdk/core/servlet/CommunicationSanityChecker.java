@@ -1,43 +1,58 @@
 
 package com.ponysdk.core.servlet;
 
-import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ponysdk.core.UIContext;
 
+/**
+ * Destroys the UIContext when no message has been received from the terminal during two heartbeat periods. The
+ * started checkers share a single {@link SanityCheckerWheel}, ticking on the sanity checker timer.
+ */
 public class CommunicationSanityChecker {
 
     protected static final Logger log = LoggerFactory.getLogger(CommunicationSanityChecker.class);
 
     private static final int CHECK_PERIOD = 1000;
+    private static final int TICK_DURATION = 50;
     public static final String THREAD_COUNT_SYSTEM_PROPERTY = "communication.sanity.checker.thread.count";
     private static final int MAX_THREAD_CHECKER = Integer.parseInt(System.getProperty(THREAD_COUNT_SYSTEM_PROPERTY, "" + Runtime.getRuntime().availableProcessors()));
 
     protected static final ScheduledThreadPoolExecutor sanityCheckerTimer = new ScheduledThreadPoolExecutor(MAX_THREAD_CHECKER, new ThreadFactory() {
 
-        private int i = 0;
+        private final AtomicInteger i = new AtomicInteger();
 
         @Override
         public Thread newThread(final Runnable r) {
             final Thread t = new Thread(r);
-            t.setName(CommunicationSanityChecker.class.getName() + "-" + i++);
+            t.setName(CommunicationSanityChecker.class.getName() + "-" + i.getAndIncrement());
             t.setDaemon(true);
             return t;
         }
     });
 
+    private static final SanityCheckerWheel wheel = new SanityCheckerWheel(CHECK_PERIOD / TICK_DURATION);
+
+    static {
+        sanityCheckerTimer.scheduleAtFixedRate(wheel, TICK_DURATION, TICK_DURATION, TimeUnit.MILLISECONDS);
+    }
+
     protected final UIContext uiContext;
     protected long heartBeatPeriod; // In MilliSeconds
     protected long lastReceivedTime;
     protected final AtomicBoolean started = new AtomicBoolean(false);
-    private RunnableScheduledFuture<?> sanityChecker;
+
+    // Links of the wheel, guarded by the slot
+    SanityCheckerWheel.Slot wheelSlot;
+    CommunicationSanityChecker wheelPrevious;
+    CommunicationSanityChecker wheelNext;
 
     protected enum CommunicationState {
         OK, SUSPECT, KO
@@ -51,33 +66,25 @@ public class CommunicationSanityChecker {
         setHeartBeatPeriod(uiContext.getApplication().getOptions().getHeartBeatPeriod());
     }
 
-    private boolean isStarted() {
-        return started.get();
-    }
-
     private boolean isSanityCheckEnabled() {
         return heartBeatPeriod > 0;
     }
 
+    // The wheel re-checks the started flag under the monitor of the slot, a stop racing with a start always leaves the
+    // checker armed if and only if it is started
     public void start() {
         final long now = System.currentTimeMillis();
         lastReceivedTime = now;
-        if (isSanityCheckEnabled() && !isStarted()) {
+        if (isSanityCheckEnabled() && started.compareAndSet(false, true)) {
             currentState = CommunicationState.OK;
-            sanityChecker = (RunnableScheduledFuture<?>) sanityCheckerTimer.scheduleWithFixedDelay(new SanityChecker(), 0, CHECK_PERIOD, TimeUnit.MILLISECONDS);
-            started.set(true);
+            wheel.arm(this);
             log.error("[" + uiContext + "] Started. HeartbeatPeriod: " + heartBeatPeriod + " ms.");
         }
     }
 
     public void stop() {
-        if (isSanityCheckEnabled() && isStarted()) {
-            if (sanityChecker != null) {
-                sanityChecker.cancel(false);
-                sanityCheckerTimer.remove(sanityChecker);
-                sanityChecker = null;
-            }
-            started.set(false);
+        if (isSanityCheckEnabled() && started.compareAndSet(true, false)) {
+            wheel.disarm(this);
             log.error("[" + uiContext + "] Stopped.");
         }
     }
@@ -112,7 +119,14 @@ public class CommunicationSanityChecker {
                         // functional
                         currentState = CommunicationState.KO;
                         stop();
-                        uiContext.destroy();
+                        // Out of the wheel tick, the destruction may take a while
+                        sanityCheckerTimer.execute(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                uiContext.destroy();
+                            }
+                        });
                     }
                 } else {
                     currentState = CommunicationState.OK;
@@ -124,16 +138,11 @@ public class CommunicationSanityChecker {
         }
     }
 
-    public class SanityChecker implements Runnable {
-
-        @Override
-        public void run() {
-            try {
-                checkCommunicationState();
-            } catch (final Throwable e) {
-                log.error("[" + uiContext + "] Error while checking communication state", e);
-            }
-        }
+    /**
+     * @return the number of started checkers
+     */
+    public static int getStartedCount() {
+        return wheel.size();
     }
 
 }
\ No newline at end of file
@@ -2,6 +2,7 @@
 package com.ponysdk.core.servlet;
 
 import java.io.IOException;
+import java.io.Writer;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -24,6 +25,11 @@ public class HttpResponse implements Response {
         this.response.getWriter().write(s);
     }
 
+    @Override
+    public Writer getWriter() throws IOException {
+        return this.response.getWriter();
+    }
+
     @Override
     public void flush() throws IOException {
         this.response.getWriter().flush();
@@ -2,11 +2,14 @@
 package com.ponysdk.core.servlet;
 
 import java.io.IOException;
+import java.io.Writer;
 
 public interface Response {
 
     void write(String s) throws IOException;
 
+    Writer getWriter() throws IOException;
+
     void flush() throws IOException;
 
 }
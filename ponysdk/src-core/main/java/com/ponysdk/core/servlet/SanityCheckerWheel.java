@@ -0,0 +1,108 @@
+
+package com.ponysdk.core.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel of the started {@link CommunicationSanityChecker}s.
+ * <p>
+ * Each checker is linked in the slot of its UIContext ID and stays there until stopped, each tick sweeps one slot so
+ * that a checker is checked once per revolution. Arming and disarming are O(1) and the cost of a tick only depends on
+ * the checkers of the swept slot.
+ * </p>
+ */
+class SanityCheckerWheel implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(SanityCheckerWheel.class);
+
+    private final Slot[] slots;
+
+    // Only accessed by the ticking thread
+    private int cursor;
+
+    SanityCheckerWheel(final int size) {
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Links the checker unless it has been stopped meanwhile, a concurrent {@link #disarm(CommunicationSanityChecker)}
+     * may have run first
+     */
+    void arm(final CommunicationSanityChecker checker) {
+        final Slot slot = slotOf(checker);
+        synchronized (slot) {
+            if (!checker.started.get() || checker.wheelSlot != null) return;
+            checker.wheelPrevious = null;
+            checker.wheelNext = slot.head;
+            if (slot.head != null) slot.head.wheelPrevious = checker;
+            slot.head = checker;
+            slot.size++;
+            checker.wheelSlot = slot;
+        }
+    }
+
+    /**
+     * Unlinks the checker unless it has been started again meanwhile
+     */
+    void disarm(final CommunicationSanityChecker checker) {
+        final Slot slot = slotOf(checker);
+        synchronized (slot) {
+            if (checker.started.get() || checker.wheelSlot != slot) return;
+            if (checker.wheelPrevious != null) checker.wheelPrevious.wheelNext = checker.wheelNext;
+            else slot.head = checker.wheelNext;
+            if (checker.wheelNext != null) checker.wheelNext.wheelPrevious = checker.wheelPrevious;
+            checker.wheelPrevious = null;
+            checker.wheelSlot = null;
+            slot.size--;
+        }
+    }
+
+    private Slot slotOf(final CommunicationSanityChecker checker) {
+        return slots[(int) ((checker.uiContext.getUiContextID() & Long.MAX_VALUE) % slots.length)];
+    }
+
+    /**
+     * @return the number of armed checkers
+     */
+    int size() {
+        int size = 0;
+        for (final Slot slot : slots) {
+            synchronized (slot) {
+                size += slot.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void run() {
+        final Slot slot = slots[cursor];
+        cursor = (cursor + 1) % slots.length;
+
+        synchronized (slot) {
+            CommunicationSanityChecker checker = slot.head;
+            while (checker != null) {
+                // The checker may disarm itself
+                final CommunicationSanityChecker next = checker.wheelNext;
+                try {
+                    checker.checkCommunicationState();
+                } catch (final Throwable e) {
+                    log.error("[" + checker.uiContext + "] Error while checking communication state", e);
+                }
+                checker = next;
+            }
+        }
+    }
+
+    static class Slot {
+
+        private CommunicationSanityChecker head;
+
+        private int size;
+    }
+
+}
@@ -1,19 +1,35 @@
-
 package com.ponysdk.core.servlet;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ponysdk.core.Application;
+import com.ponysdk.core.UIContext;
 import com.ponysdk.core.tools.ListenerCollection;
+import com.ponysdk.core.useragent.UserAgent;
 
+/**
+ * Live indexes of the sessions, their applications and UIContexts.
+ * <p>
+ * The collections returned are views of the indexes, iterated concurrently with the registrations without being
+ * copied. The lookups do not go through the HTTP session attributes.
+ * </p>
+ */
 public class SessionManager {
 
     private final Map<String, Session> sessionsById = new ConcurrentHashMap<String, Session>();
 
+    private final Map<String, Application> applicationsBySessionID = new ConcurrentHashMap<String, Application>();
+
+    private final Map<Long, UIContext> uiContextsByID = new ConcurrentHashMap<Long, UIContext>();
+
+    private final ConcurrentMap<Integer, AtomicInteger> applicationCountByUserAgentID = new ConcurrentHashMap<Integer, AtomicInteger>();
+
     private static SessionManager INSTANCE = new SessionManager();
     private final ListenerCollection<SessionListener> sessionListeners = new ListenerCollection<SessionListener>();
 
@@ -30,16 +46,39 @@ public class SessionManager {
     }
 
     public Collection<Application> getApplications() {
-        final List<Application> applications = new ArrayList<Application>();
-        for (final Session session : sessionsById.values()) {
-            final Application application = (Application) session.getAttribute(Application.class.getCanonicalName());
-            if (application != null) applications.add(application);
-        }
-        return applications;
+        return Collections.unmodifiableCollection(applicationsBySessionID.values());
     }
 
     public Application getApplication(final Session session) {
-        return (Application) session.getAttribute(Application.class.getCanonicalName());
+        return applicationsBySessionID.get(session.getId());
+    }
+
+    public int getApplicationCount() {
+        return applicationsBySessionID.size();
+    }
+
+    public Collection<UIContext> getUIContexts() {
+        return Collections.unmodifiableCollection(uiContextsByID.values());
+    }
+
+    public UIContext findUIContext(final long uiContextID) {
+        return uiContextsByID.get(uiContextID);
+    }
+
+    public int getUIContextCount() {
+        return uiContextsByID.size();
+    }
+
+    /**
+     * @return the IDs of the user agents of the live applications, see {@link UserAgent#valueOf(int)}
+     */
+    public Set<Integer> getUserAgentIDs() {
+        return Collections.unmodifiableSet(applicationCountByUserAgentID.keySet());
+    }
+
+    public int getApplicationCount(final UserAgent userAgent) {
+        final AtomicInteger count = applicationCountByUserAgentID.get(userAgent.getId());
+        return count == null ? 0 : count.get();
     }
 
     public void registerSessionListener(final SessionListener listener) {
@@ -50,6 +89,44 @@ public class SessionManager {
         sessionListeners.unregister(listener);
     }
 
+    /**
+     * Indexes the application of a session, called once the application is attached to the session
+     */
+    public void registerApplication(final Application application) {
+        final Session session = application.getSession();
+        if (applicationsBySessionID.put(session.getId(), application) != null) return;
+
+        final UserAgent userAgent = session.getUserAgent();
+        if (userAgent == null) return;
+        while (true) {
+            final AtomicInteger count = applicationCountByUserAgentID.get(userAgent.getId());
+            if (count == null) {
+                if (applicationCountByUserAgentID.putIfAbsent(userAgent.getId(), new AtomicInteger(1)) == null) return;
+            } else if (increment(count)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the count dropped to zero, it is removed from the index and must be replaced
+     */
+    private static boolean increment(final AtomicInteger count) {
+        while (true) {
+            final int value = count.get();
+            if (value == 0) return false;
+            if (count.compareAndSet(value, value + 1)) return true;
+        }
+    }
+
+    public void registerUIContext(final UIContext uiContext) {
+        uiContextsByID.put(uiContext.getUiContextID(), uiContext);
+    }
+
+    public void unregisterUIContext(final long uiContextID) {
+        uiContextsByID.remove(uiContextID);
+    }
+
     void registerSession(final Session session) {
         sessionsById.put(session.getId(), session);
         for (final SessionListener listener : sessionListeners) {
@@ -59,9 +136,25 @@ public class SessionManager {
 
     Session unregisterSession(final String sessionID) {
         final Session session = sessionsById.remove(sessionID);
+        unregisterApplication(sessionID);
         for (final SessionListener listener : sessionListeners) {
             listener.sessionDestroyed(session);
         }
         return session;
     }
+
+    private void unregisterApplication(final String sessionID) {
+        final Application application = applicationsBySessionID.remove(sessionID);
+        if (application == null) return;
+
+        // The UIContexts still alive when the session expires
+        for (final UIContext uiContext : application.getUIContexts()) {
+            uiContextsByID.remove(uiContext.getUiContextID());
+        }
+
+        final UserAgent userAgent = application.getSession().getUserAgent();
+        if (userAgent == null) return;
+        final AtomicInteger count = applicationCountByUserAgentID.get(userAgent.getId());
+        if (count != null && count.decrementAndGet() == 0) applicationCountByUserAgentID.remove(userAgent.getId(), count);
+    }
 }
@@ -29,11 +29,11 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ponysdk.core.Application;
 import com.ponysdk.core.UIContext;
 import com.ponysdk.core.event.StreamHandler;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
@@ -59,9 +59,10 @@ public class StreamServiceServlet extends HttpServlet {
 
     private void streamRequest(final HttpServletRequest req, final HttpServletResponse resp) {
         try {
-            final Application ponyApplicationSession = (Application) req.getSession().getAttribute(Application.class.getCanonicalName());
             final Long ponySessionID = Long.parseLong(req.getParameter("ponySessionID"));
-            final UIContext ponySession = ponyApplicationSession.getUIContext(ponySessionID);
+            final UIContext ponySession = SessionManager.get().findUIContext(ponySessionID);
+            final HttpSession httpSession = req.getSession(false);
+            if (ponySession == null || httpSession == null || !httpSession.getId().equals(ponySession.getSession().getId())) throw new IllegalStateException("Invalid view #" + ponySessionID);
             final StreamHandler streamHandler = ponySession.removeStreamListener(Long.parseLong(req.getParameter(PROPERTY.STREAM_REQUEST_ID)));
             streamHandler.onStream(req, resp);
         } catch (final Exception e) {
@@ -4,17 +4,19 @@ package com.ponysdk.core.servlet;
 import java.io.IOException;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 
 import org.eclipse.jetty.websocket.WebSocket;
+import org.eclipse.jetty.websocket.WebSocket.OnFrame;
 import org.eclipse.jetty.websocket.WebSocket.OnTextMessage;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ponysdk.core.Application;
 import com.ponysdk.core.UIContext;
 import com.ponysdk.core.socket.ConnectionListener;
+import com.ponysdk.core.socket.MessageListener;
 import com.ponysdk.ui.server.basic.PPusher;
 import com.ponysdk.ui.terminal.Dictionnary;
 import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
@@ -31,17 +33,24 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.WebSocketServl
     public WebSocket doWebSocketConnect(final HttpServletRequest req, final String arg1) {
         final long key = Long.parseLong(req.getParameter(APPLICATION.VIEW_ID));
 
-        final Application applicationSession = (Application) req.getSession().getAttribute(Application.class.getCanonicalName());
-        if (applicationSession == null) throw new RuntimeException("Invalid session, please reload your application");
+        final UIContext uiContext = SessionManager.get().findUIContext(key);
+        if (uiContext == null) throw new RuntimeException("Invalid view, please reload your application");
+        final HttpSession httpSession = req.getSession(false);
+        if (httpSession == null || !httpSession.getId().equals(uiContext.getSession().getId())) throw new RuntimeException("Invalid session, please reload your application");
 
         JettyWebSocket jettyWebSocket;
 
-        final UIContext uiContext = applicationSession.getUIContext(key);
+        final String lastSeqNum = req.getParameter(APPLICATION.LAST_SEQ_NUM);
         uiContext.acquire();
         try {
             UIContext.setCurrent(uiContext);
             jettyWebSocket = newJettyWebsocket();
-            PPusher.get().initialize(jettyWebSocket);
+            if (lastSeqNum == null) {
+                PPusher.get().initialize(jettyWebSocket);
+            } else if (!PPusher.get().resume(jettyWebSocket, Long.parseLong(lastSeqNum))) {
+                log.info("Cannot resume the ViewID #" + key + " from the seq num #" + lastSeqNum);
+                return null;
+            }
         } finally {
             UIContext.remove();
             uiContext.release();
@@ -54,10 +63,12 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.WebSocketServl
         return new JettyWebSocket();
     }
 
-    public class JettyWebSocket implements OnTextMessage, com.ponysdk.core.socket.WebSocket {
+    public class JettyWebSocket implements OnTextMessage, OnFrame, com.ponysdk.core.socket.WebSocket {
 
         protected Connection connection;
+        protected FrameConnection frameConnection;
         protected ConnectionListener connectionListener;
+        protected MessageListener messageListener;
         protected UIContext uiContext;
 
         public JettyWebSocket() {
@@ -72,21 +83,48 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.WebSocketServl
             this.connectionListener.onOpen();
         }
 
+        @Override
+        public void onHandshake(final FrameConnection frameConnection) {
+            this.frameConnection = frameConnection;
+        }
+
+        @Override
+        public boolean onFrame(final byte flags, final byte opcode, final byte[] data, final int offset, final int length) {
+            return false;
+        }
+
         @Override
         public void send(final String msg) throws IOException {
             connection.sendMessage(msg);
         }
 
+        @Override
+        public void send(final byte[] bytes, final int offset, final int length) throws IOException {
+            connection.sendMessage(bytes, offset, length);
+        }
+
+        @Override
+        public void sendText(final byte[] utf8, final int offset, final int length) throws IOException {
+            frameConnection.sendFrame(frameConnection.finMask(), frameConnection.textOpcode(), utf8, offset, length);
+        }
+
         @Override
         public void addConnectionListener(final ConnectionListener connectionListener) {
             this.connectionListener = connectionListener;
         }
 
+        @Override
+        public void addMessageListener(final MessageListener messageListener) {
+            this.messageListener = messageListener;
+        }
+
         @Override
         public void onClose(final int closeCode, final String message) {
             log.info("Connection lost from: " + connection.toString() + ". Code: " + closeCode + ". Message: " + message);
             connectionListener.onClose();
-            uiContext.destroy();
+            // A resumable pusher keeps the view until the terminal reconnects or the resume timeout expires
+            final PPusher pusher = uiContext.getPusher();
+            if (pusher == null || !pusher.isResumable()) uiContext.destroy();
         }
 
         @Override
@@ -94,6 +132,13 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.WebSocketServl
             try {
                 uiContext.notifyMessageReceived();
 
+                final JSONObject data = new JSONObject(message);
+                if (!data.has(Dictionnary.APPLICATION.PING)) {
+                    // Terminal events, same payload as the HTTP channel
+                    if (messageListener != null) messageListener.onMessage(data);
+                    return;
+                }
+
                 final JSONObject jso = new JSONObject();
                 jso.put(Dictionnary.APPLICATION.PING, (int) (System.currentTimeMillis() * .001));
                 connection.sendMessage(jso.toString());
@@ -0,0 +1,270 @@
+
+package com.ponysdk.core.socket;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.ponysdk.core.stm.InstructionRecorder;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+import com.ponysdk.ui.terminal.socket.BinaryFormat;
+
+/**
+ * Encodes a batch of instructions into a binary frame (see {@link BinaryFormat}).
+ * <p>
+ * The encoder owns a growable buffer which is reused from one frame to the next, it is not thread safe.
+ * </p>
+ */
+public class BinaryEncoder {
+
+    private byte[] buffer;
+
+    private int position;
+
+    private final Map<String, Integer> symbols = new HashMap<String, Integer>();
+
+    public BinaryEncoder() {
+        this(4096);
+    }
+
+    public BinaryEncoder(final int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public void encode(final long seqNum, final InstructionRecorder recorder) {
+        position = 0;
+        symbols.clear();
+
+        writeByte(BinaryFormat.VERSION);
+        writeVarLong(seqNum);
+        writeVarLong(recorder.size());
+        for (int i = 0; i < recorder.size(); i++) {
+            final byte kind = recorder.getKind(i);
+            if (kind == InstructionRecorder.INSTRUCTION) writeInstruction(recorder.getInstruction(i));
+            else if (kind == InstructionRecorder.TEMPLATE) writeTemplate(recorder.getTemplate(i).getUpdate(), recorder.getObjectID(i));
+            else writeUpdate(recorder, i);
+        }
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return position;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeInstruction(final JSONObject instruction) {
+        final Object type = instruction.opt(TYPE.KEY);
+        final Object objectID = instruction.opt(PROPERTY.OBJECT_ID);
+        final boolean hasType = type instanceof String;
+        final boolean hasObjectID = objectID instanceof Number;
+
+        int flags = 0;
+        int propertyCount = instruction.length();
+        if (hasType) {
+            flags |= BinaryFormat.FLAG_TYPE;
+            propertyCount--;
+        }
+        if (hasObjectID) {
+            flags |= BinaryFormat.FLAG_OBJECT_ID;
+            propertyCount--;
+        }
+
+        writeByte(flags);
+        if (hasType) writeSymbol((String) type);
+        if (hasObjectID) writeVarLong(zigzag(((Number) objectID).longValue()));
+        writeVarLong(propertyCount);
+
+        final Iterator<String> keys = instruction.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            if (hasType && TYPE.KEY.equals(key)) continue;
+            if (hasObjectID && PROPERTY.OBJECT_ID.equals(key)) continue;
+            writeSymbol(key);
+            writeValue(instruction.opt(key));
+        }
+    }
+
+    // The properties of the shared update with the object ID of the screen, the symbols belong to the frame
+    @SuppressWarnings("unchecked")
+    private void writeTemplate(final JSONObject update, final long objectID) {
+        writeByte(BinaryFormat.FLAG_TYPE | BinaryFormat.FLAG_OBJECT_ID);
+        writeSymbol(TYPE.KEY_.UPDATE);
+        writeVarLong(zigzag(objectID));
+        int propertyCount = update.length();
+        if (update.has(TYPE.KEY)) propertyCount--;
+        if (update.has(PROPERTY.OBJECT_ID)) propertyCount--;
+        writeVarLong(propertyCount);
+
+        final Iterator<String> keys = update.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            if (TYPE.KEY.equals(key) || PROPERTY.OBJECT_ID.equals(key)) continue;
+            writeSymbol(key);
+            writeValue(update.opt(key));
+        }
+    }
+
+    private void writeUpdate(final InstructionRecorder recorder, final int index) {
+        writeByte(BinaryFormat.FLAG_TYPE | BinaryFormat.FLAG_OBJECT_ID);
+        writeSymbol(TYPE.KEY_.UPDATE);
+        writeVarLong(zigzag(recorder.getObjectID(index)));
+        writeVarLong(1);
+        writeSymbol(recorder.getKey(index));
+        switch (recorder.getKind(index)) {
+            case InstructionRecorder.BOOLEAN:
+                writeByte(recorder.getBoolean(index) ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+                break;
+            case InstructionRecorder.LONG:
+                writeByte(BinaryFormat.INTEGER);
+                writeVarLong(zigzag(recorder.getLong(index)));
+                break;
+            default:
+                writeValue(recorder.getObject(index));
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(final Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            writeByte(BinaryFormat.NULL);
+        } else if (value instanceof Boolean) {
+            writeByte(((Boolean) value) ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeByte(BinaryFormat.INTEGER);
+            writeVarLong(zigzag(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            writeByte(BinaryFormat.DOUBLE);
+            writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof JSONObject) {
+            final JSONObject object = (JSONObject) value;
+            writeByte(BinaryFormat.OBJECT);
+            writeVarLong(object.length());
+            final Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                writeSymbol(key);
+                writeValue(object.opt(key));
+            }
+        } else if (value instanceof Map) {
+            final Map<Object, Object> map = (Map<Object, Object>) value;
+            writeByte(BinaryFormat.OBJECT);
+            writeVarLong(map.size());
+            for (final Map.Entry<Object, Object> entry : map.entrySet()) {
+                writeSymbol(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+        } else if (value instanceof JSONArray) {
+            final JSONArray array = (JSONArray) value;
+            writeByte(BinaryFormat.ARRAY);
+            writeVarLong(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                writeValue(array.opt(i));
+            }
+        } else if (value instanceof Collection) {
+            final Collection<Object> collection = (Collection<Object>) value;
+            writeByte(BinaryFormat.ARRAY);
+            writeVarLong(collection.size());
+            for (final Object item : collection) {
+                writeValue(item);
+            }
+        } else {
+            writeByte(BinaryFormat.STRING);
+            writeString(value.toString());
+        }
+    }
+
+    private void writeSymbol(final String symbol) {
+        final Integer index = symbols.get(symbol);
+        if (index != null) {
+            writeVarLong(index);
+        } else {
+            final int newIndex = symbols.size();
+            symbols.put(symbol, newIndex);
+            writeVarLong(newIndex);
+            writeString(symbol);
+        }
+    }
+
+    private void writeString(final String s) {
+        final int length = s.length();
+
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) utf8Length++;
+            else if (c < 0x800) utf8Length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else utf8Length += 3;
+        }
+
+        writeVarLong(utf8Length);
+        ensureCapacity(utf8Length);
+
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeByte(final int b) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeLong(final long v) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (v >>> shift);
+        }
+    }
+
+    private void writeVarLong(long v) {
+        ensureCapacity(10);
+        while ((v & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[position++] = (byte) v;
+    }
+
+    private static long zigzag(final long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private void ensureCapacity(final int size) {
+        if (position + size <= buffer.length) return;
+        int newCapacity = buffer.length << 1;
+        while (newCapacity < position + size)
+            newCapacity <<= 1;
+        final byte[] newBuffer = new byte[newCapacity];
+        System.arraycopy(buffer, 0, newBuffer, 0, position);
+        buffer = newBuffer;
+    }
+
+}
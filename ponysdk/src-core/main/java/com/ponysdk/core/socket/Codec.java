@@ -0,0 +1,9 @@
+
+package com.ponysdk.core.socket;
+
+/**
+ * Wire format of the instructions pushed on the WebSocket.
+ */
+public enum Codec {
+    JSON, BINARY
+}
@@ -0,0 +1,9 @@
+
+package com.ponysdk.core.socket;
+
+import org.json.JSONObject;
+
+public interface MessageListener {
+
+    public void onMessage(JSONObject message);
+}
@@ -0,0 +1,361 @@
+
+package com.ponysdk.core.socket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
+import com.ponysdk.ui.terminal.socket.BinaryFormat;
+
+/**
+ * Bounded queue of the frames waiting to be written on a connection.
+ * <p>
+ * Frames are written in order by a writer borrowed from a shared pool, only one writer drains a given queue at a time.
+ * The pool is bounded ({@value #WRITER_COUNT_SYSTEM_PROPERTY}), a writer blocked by a stalled client until the
+ * socket times out holds one of its threads while the queues of the other connections wait for a free writer.
+ * Queuing a frame never waits for the network, a producer exceeding the bound waits in {@link #awaitRoom()} once it
+ * has released the UIContext lock. The bound is expressed in bytes. Guarded by a lock rather than a monitor, a
+ * producer waiting for room does not pin the carrier of a virtual thread.
+ * </p>
+ */
+public class OutboundQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundQueue.class);
+
+    public static final String WRITER_COUNT_SYSTEM_PROPERTY = "outbound.queue.writer.count";
+    private static final int WRITER_COUNT = Integer.parseInt(System.getProperty(WRITER_COUNT_SYSTEM_PROPERTY, "" + 4 * Runtime.getRuntime().availableProcessors()));
+    private static final int FRAMES_PER_TURN = 64;
+
+    private static final ThreadPoolExecutor writers = new ThreadPoolExecutor(WRITER_COUNT, WRITER_COUNT, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+        private final AtomicInteger i = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName(OutboundQueue.class.getName() + "-" + i.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        writers.allowCoreThreadTimeOut(true);
+    }
+
+    private final WebSocket socket;
+
+    private final long maxBytes;
+
+    private final OverflowPolicy policy;
+
+    private final Runnable drainListener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition room = lock.newCondition();
+
+    private final LinkedList<Frame> frames = new LinkedList<Frame>();
+
+    private long pendingBytes;
+
+    private boolean writing;
+
+    private boolean closed;
+
+    private Throwable failure;
+
+    private int maxDepth;
+
+    private long sentFrames;
+
+    private long droppedFrames;
+
+    private final Runnable writer = new Runnable() {
+
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param drainListener
+     *            notified by the writer each time a frame has been written, may be null
+     */
+    public OutboundQueue(final WebSocket socket, final long maxBytes, final OverflowPolicy policy, final Runnable drainListener) {
+        this.socket = socket;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.drainListener = drainListener;
+    }
+
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return pendingBytes >= maxBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a copy of the frame, see {@link #offer(long, boolean, byte[], boolean)}
+     */
+    public void offer(final long seqNum, final boolean text, final byte[] bytes, final int offset, final int length, final boolean droppable) throws IOException {
+        offer(seqNum, text, Arrays.copyOfRange(bytes, offset, offset + length), droppable);
+    }
+
+    /**
+     * Queues the frame without copying it, the array must not be modified afterwards. If the queue is full and the
+     * policy is {@link OverflowPolicy#DROP_OLDEST}, the content of the oldest droppable frames is dropped first.
+     * 
+     * @param droppable
+     *            true if the frame only carries state updates (text, value, style ...) : dropping it leaves stale
+     *            values on the terminal but no missing object
+     * @throws IOException
+     *             if the writer failed to write a previous frame, the connection is being closed
+     */
+    public void offer(final long seqNum, final boolean text, final byte[] frame, final boolean droppable) throws IOException {
+        lock.lock();
+        try {
+            if (failure != null) throw new IOException("Cannot queue frame #" + seqNum + ", the connection failed", failure);
+            if (closed) return;
+
+            final int length = frame.length;
+            if (policy == OverflowPolicy.DROP_OLDEST && pendingBytes + length > maxBytes) dropOldest(length);
+
+            frames.add(new Frame(seqNum, text, frame, droppable));
+            pendingBytes += length;
+            if (frames.size() > maxDepth) maxDepth = frames.size();
+
+            if (!writing) {
+                writing = true;
+                writers.execute(writer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the queue is back under its bound. Must be called without holding the UIContext lock so that the
+     * other tasks of the screen keep running, does nothing with {@link OverflowPolicy#CONFLATE} since the
+     * instructions are held back instead. With {@link OverflowPolicy#DROP_OLDEST} it only waits when there was no
+     * droppable frame left to make room.
+     */
+    public void awaitRoom() throws InterruptedIOException {
+        lock.lock();
+        try {
+            if (policy == OverflowPolicy.CONFLATE) return;
+            while (!closed && pendingBytes > maxBytes) {
+                try {
+                    room.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the outbound queue");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The seq num of a dropped frame is still sent, the terminal would otherwise wait for it forever. Frames creating,
+    // attaching or releasing objects are never dropped, the terminal would lose track of them.
+    private void dropOldest(final int length) {
+        final Iterator<Frame> iterator = frames.iterator();
+        while (iterator.hasNext() && pendingBytes + length > maxBytes) {
+            final Frame frame = iterator.next();
+            if (frame.empty || !frame.droppable) continue;
+            final byte[] emptyFrame = emptyFrame(frame.seqNum, frame.text);
+            pendingBytes -= frame.bytes.length - emptyFrame.length;
+            frame.bytes = emptyFrame;
+            frame.empty = true;
+            droppedFrames++;
+        }
+    }
+
+    private void drain() {
+        for (int written = 0;; written++) {
+            // Gives the writer back to the queues of the other connections
+            if (written == FRAMES_PER_TURN) {
+                writers.execute(writer);
+                return;
+            }
+
+            final Frame frame;
+            lock.lock();
+            try {
+                frame = frames.poll();
+                if (frame == null || closed) {
+                    writing = false;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (frame.text) socket.sendText(frame.bytes, 0, frame.bytes.length);
+                else socket.send(frame.bytes, 0, frame.bytes.length);
+            } catch (final Throwable e) {
+                log.error("Cannot write frame #" + frame.seqNum + ", closing the connection", e);
+                fail(e);
+                return;
+            }
+
+            lock.lock();
+            try {
+                pendingBytes -= frame.bytes.length;
+                sentFrames++;
+                room.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            if (drainListener != null) drainListener.run();
+        }
+    }
+
+    // The connection is closed so that the session goes through its regular close path (destroy or resume)
+    private void fail(final Throwable e) {
+        lock.lock();
+        try {
+            failure = e;
+            writing = false;
+        } finally {
+            lock.unlock();
+        }
+        close();
+        socket.close();
+    }
+
+    /**
+     * Discards the queued frames and releases the threads waiting for room
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (final Frame frame : frames) {
+                pendingBytes -= frame.bytes.length;
+            }
+            frames.clear();
+            room.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getDepth() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPendingBytes() {
+        lock.lock();
+        try {
+            return pendingBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSentFrames() {
+        lock.lock();
+        try {
+            return sentFrames;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedFrames() {
+        lock.lock();
+        try {
+            return droppedFrames;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private static byte[] emptyFrame(final long seqNum, final boolean text) {
+        if (text) {
+            final String json = "{" + JSONObject.quote(APPLICATION.SEQ_NUM) + ":" + seqNum + "," + JSONObject.quote(APPLICATION.INSTRUCTIONS) + ":[]}";
+            final Utf8Writer writer = new Utf8Writer(json.length());
+            writer.write(json, 0, json.length());
+            return Arrays.copyOf(writer.getBuffer(), writer.getLength());
+        }
+
+        final byte[] buffer = new byte[12];
+        int position = 0;
+        buffer[position++] = BinaryFormat.VERSION;
+        long v = seqNum;
+        while ((v & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[position++] = (byte) v;
+        buffer[position++] = 0;
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static class Frame {
+
+        private final long seqNum;
+        private final boolean text;
+        private final boolean droppable;
+        private byte[] bytes;
+        private boolean empty;
+
+        Frame(final long seqNum, final boolean text, final byte[] bytes, final boolean droppable) {
+            this.seqNum = seqNum;
+            this.text = text;
+            this.bytes = bytes;
+            this.droppable = droppable;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OutboundQueue [policy=" + policy + ", maxBytes=" + maxBytes + ", depth=" + getDepth() + ", pendingBytes=" + getPendingBytes() + ", maxDepth=" + getMaxDepth() + ", sentFrames="
+                + getSentFrames() + ", droppedFrames=" + getDroppedFrames() + "]";
+    }
+
+}
@@ -0,0 +1,27 @@
+
+package com.ponysdk.core.socket;
+
+/**
+ * What to do when the outbound queue of a connection is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The producer waits until the connection has written enough frames, after having released the UIContext lock
+     */
+    BLOCK,
+
+    /**
+     * The content of the oldest queued frames carrying only state updates is dropped, their seq num is kept so that
+     * the terminal keeps processing the next ones. Frames creating, attaching or releasing objects are kept, the
+     * producer waits like with {@link #BLOCK} when nothing can be dropped. Only suitable for screens where losing
+     * intermediate values is acceptable.
+     */
+    DROP_OLDEST,
+
+    /**
+     * New instructions are held back until the queue has room, in the meantime only the latest value per (objectID,
+     * property) is kept
+     */
+    CONFLATE
+}
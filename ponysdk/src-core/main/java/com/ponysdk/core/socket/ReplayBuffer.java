@@ -0,0 +1,85 @@
+
+package com.ponysdk.core.socket;
+
+/**
+ * Ring buffer of the last frames sent on a connection, indexed by seq num.
+ * <p>
+ * A terminal reconnecting after a network failure presents the last seq num it received and gets the frames sent
+ * after it again. The seq nums of a connection are increasing but not contiguous, the frames sent over HTTP take their
+ * seq num from the same sequence. Not thread safe, accessed under the UIContext lock.
+ * </p>
+ */
+public class ReplayBuffer {
+
+    private final long[] seqNums;
+
+    private final boolean[] texts;
+
+    private final byte[][] frames;
+
+    private int head;
+
+    private int size;
+
+    private long evictedSeqNum = -1;
+
+    public ReplayBuffer(final int capacity) {
+        seqNums = new long[capacity];
+        texts = new boolean[capacity];
+        frames = new byte[capacity][];
+    }
+
+    /**
+     * Keeps the frame, the buffer takes ownership of the array
+     */
+    public void add(final long seqNum, final boolean text, final byte[] frame) {
+        final int index = (head + size) % frames.length;
+        if (size == frames.length) {
+            evictedSeqNum = seqNums[head];
+            head = (head + 1) % frames.length;
+        } else {
+            size++;
+        }
+        seqNums[index] = seqNum;
+        texts[index] = text;
+        frames[index] = frame;
+    }
+
+    /**
+     * @return true if all the frames sent after lastSeqNum are still in the buffer
+     */
+    public boolean covers(final long lastSeqNum) {
+        return evictedSeqNum <= lastSeqNum;
+    }
+
+    /**
+     * @return the position of the first frame sent after lastSeqNum, {@link #size()} if there is none
+     */
+    public int indexAfter(final long lastSeqNum) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getSeqNum(middle) <= lastSeqNum) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getSeqNum(final int position) {
+        return seqNums[(head + position) % frames.length];
+    }
+
+    public boolean isText(final int position) {
+        return texts[(head + position) % frames.length];
+    }
+
+    public byte[] getFrame(final int position) {
+        return frames[(head + position) % frames.length];
+    }
+
+}
@@ -0,0 +1,133 @@
+
+package com.ponysdk.core.socket;
+
+import java.io.Writer;
+
+/**
+ * {@link Writer} encoding characters as UTF-8 into a growable byte array which is reused from one frame to
+ * the next. Not thread safe.
+ */
+public class Utf8Writer extends Writer {
+
+    /**
+     * Byte written for a malformed surrogate, same as {@link String#getBytes(String)} with UTF-8
+     */
+    private static final byte REPLACEMENT = '?';
+
+    private byte[] buffer;
+
+    private int position;
+
+    private char pendingHighSurrogate;
+
+    public Utf8Writer() {
+        this(4096);
+    }
+
+    public Utf8Writer(final int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public void reset() {
+        position = 0;
+        pendingHighSurrogate = 0;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return position;
+    }
+
+    @Override
+    public void write(final int c) {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) {
+        ensureCapacity(len * 3);
+        for (int i = off; i < off + len; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len) {
+        ensureCapacity(len * 3);
+        for (int i = off; i < off + len; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    private void writeChar(final char c) {
+        ensureCapacity(4);
+        if (pendingHighSurrogate != 0) {
+            final char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[position++] = REPLACEMENT;
+        }
+
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[position++] = REPLACEMENT;
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * Appends bytes already encoded as UTF-8
+     */
+    public void writeUtf8(final byte[] utf8, final int off, final int len) {
+        flush();
+        ensureCapacity(len);
+        System.arraycopy(utf8, off, buffer, position, len);
+        position += len;
+    }
+
+    private void ensureCapacity(final int size) {
+        if (position + size <= buffer.length) return;
+        int newCapacity = buffer.length << 1;
+        while (newCapacity < position + size)
+            newCapacity <<= 1;
+        final byte[] newBuffer = new byte[newCapacity];
+        System.arraycopy(buffer, 0, newBuffer, 0, position);
+        buffer = newBuffer;
+    }
+
+    /**
+     * Writes the replacement of a high surrogate left without its low surrogate
+     */
+    @Override
+    public void flush() {
+        if (pendingHighSurrogate == 0) return;
+        pendingHighSurrogate = 0;
+        ensureCapacity(1);
+        buffer[position++] = REPLACEMENT;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+}
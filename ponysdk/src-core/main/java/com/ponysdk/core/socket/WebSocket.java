@@ -9,6 +9,12 @@ public interface WebSocket {
 
     void send(String msg) throws IOException;
 
+    void send(byte[] bytes, int offset, int length) throws IOException;
+
+    void sendText(byte[] utf8, int offset, int length) throws IOException;
+
     void addConnectionListener(ConnectionListener listener);
 
+    void addMessageListener(MessageListener listener);
+
 }
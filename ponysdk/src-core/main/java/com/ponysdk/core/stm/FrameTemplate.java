@@ -0,0 +1,129 @@
+
+package com.ponysdk.core.stm;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.socket.Utf8Writer;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+
+/**
+ * JSON encoding of a single update serialized once and sent to many screens.
+ * <p>
+ * The properties of the update are encoded when the template is built. The update of a screen is recorded in its
+ * transaction as the object ID of its widget and a reference to the template, nothing is allocated per screen : the
+ * JSON frame gets the update prefix, the object ID and the shared encoding written straight into it. Template updates
+ * are flushed with the other instructions and never coalesced. Immutable, may be used by several threads.
+ * </p>
+ */
+public class FrameTemplate {
+
+    private static final String OBJECT_ID_PREFIX = "{" + JSONObject.quote(TYPE.KEY) + ":" + JSONObject.quote(TYPE.KEY_.UPDATE) + "," + JSONObject.quote(PROPERTY.OBJECT_ID) + ":";
+
+    private final Update update;
+
+    // The properties followed by the end of the instruction, as chars and as UTF-8
+    private final String properties;
+
+    private final byte[] utf8Properties;
+
+    /**
+     * @param update
+     *            the update sent to the screens, its object ID is ignored
+     */
+    public FrameTemplate(final Update update) throws IOException {
+        this.update = update;
+
+        final StringWriter writer = new StringWriter(256);
+        try {
+            for (final Iterator<?> iterator = update.keys(); iterator.hasNext();) {
+                final String key = (String) iterator.next();
+                if (TYPE.KEY.equals(key) || PROPERTY.OBJECT_ID.equals(key)) continue;
+                writer.write(',');
+                InstructionWriter.writeString(writer, key);
+                writer.write(':');
+                InstructionWriter.writeValue(writer, update.get(key));
+            }
+        } catch (final JSONException e) {
+            throw new IOException("Cannot serialize update", e);
+        }
+        writer.write('}');
+        this.properties = writer.toString();
+
+        final Utf8Writer utf8Writer = new Utf8Writer(properties.length() * 3);
+        utf8Writer.write(properties);
+        utf8Writer.flush();
+        this.utf8Properties = Arrays.copyOf(utf8Writer.getBuffer(), utf8Writer.getLength());
+    }
+
+    /**
+     * Records the update of a screen in the transaction, see {@link InstructionRecorder#recordTemplate(long, FrameTemplate)}
+     */
+    public void save(final TxnContext txnContext, final long objectID) {
+        if (txnContext instanceof TxnSocketContext) ((TxnSocketContext) txnContext).saveTemplate(objectID, this);
+        else txnContext.save(newUpdate(objectID));
+    }
+
+    /**
+     * @return the update of a screen as an instruction, for the transactions not recording templates
+     */
+    public Update newUpdate(final long objectID) {
+        final TemplateUpdate copy = new TemplateUpdate(objectID);
+        for (final Iterator<?> iterator = update.keys(); iterator.hasNext();) {
+            final String key = (String) iterator.next();
+            if (TYPE.KEY.equals(key) || PROPERTY.OBJECT_ID.equals(key)) continue;
+            copy.put(key, update.opt(key));
+        }
+        return copy;
+    }
+
+    /**
+     * @return the update sent to the screens, its object ID is ignored
+     */
+    public Update getUpdate() {
+        return update;
+    }
+
+    /**
+     * @return the size of the shared encoding of the properties
+     */
+    public int getPropertiesLength() {
+        return utf8Properties.length;
+    }
+
+    void write(final Writer writer, final long objectID) throws IOException {
+        writer.write(OBJECT_ID_PREFIX);
+        InstructionWriter.writeLong(writer, objectID);
+        if (writer instanceof Utf8Writer) ((Utf8Writer) writer).writeUtf8(utf8Properties, 0, utf8Properties.length);
+        else writer.write(properties);
+    }
+
+    /**
+     * Update of a screen serialized with the shared encoding of its template
+     */
+    private class TemplateUpdate extends Update {
+
+        TemplateUpdate(final long objectID) {
+            super(objectID);
+        }
+
+        @Override
+        public Writer write(final Writer writer) throws JSONException {
+            try {
+                FrameTemplate.this.write(writer, getObjectID());
+                return writer;
+            } catch (final IOException e) {
+                throw new JSONException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+
+package com.ponysdk.core.stm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONArray;
+
+import com.ponysdk.core.instruction.Add;
+import com.ponysdk.core.instruction.AddHandler;
+import com.ponysdk.core.instruction.Create;
+import com.ponysdk.core.instruction.GC;
+import com.ponysdk.core.instruction.GCBatch;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Remove;
+import com.ponysdk.core.instruction.RemoveHandler;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+
+/**
+ * Rewrites the instructions of a transaction before they are flushed, the terminal reaches the same final state with
+ * less work :
+ * <ul>
+ * <li>only the last value of a state property (text, visibility, size, style property, attribute ...) is kept per
+ * object</li>
+ * <li>a style name added then removed (or removed then added) cancels out</li>
+ * <li>an object created and garbage collected (alone or within a batch) within the transaction is never sent</li>
+ * </ul>
+ * Commands (focus, clear, animate, scripts ...) and the updates of a {@link FrameTemplate}, recorded without a key, are
+ * never touched.
+ * <p>
+ * The coalescer keeps its working structures from one call to the next, it is not thread safe.
+ * </p>
+ */
+public class InstructionCoalescer {
+
+    private static final Set<String> STATE_KEYS = new HashSet<String>(Arrays.asList(PROPERTY.TEXT, PROPERTY.HTML, PROPERTY.VALUE, PROPERTY.ENABLED, PROPERTY.WIDGET_VISIBLE, PROPERTY.WIDGET_WIDTH,
+            PROPERTY.WIDGET_HEIGHT, PROPERTY.WIDGET_TITLE, PROPERTY.STYLE_NAME, PROPERTY.STYLE_PRIMARY_NAME, PROPERTY.ENSURE_DEBUG_ID, PROPERTY.WORD_WRAP, PROPERTY.HREF, PROPERTY.PLACEHOLDER,
+            PROPERTY.MAX_LENGTH, PROPERTY.VISIBLE_LENGTH, PROPERTY.VISIBLE_LINES, PROPERTY.TABINDEX, PROPERTY.NAME, PROPERTY.INNER_TEXT, PROPERTY.INNER_HTML));
+
+    private final Map<String, Integer> lastStates = new HashMap<String, Integer>();
+
+    private final Map<Long, Map<String, Integer>> pendingStyleNames = new HashMap<Long, Map<String, Integer>>();
+
+    private final Set<Long> created = new HashSet<Long>();
+
+    private final Set<Long> dead = new HashSet<Long>();
+
+    private boolean[] dropped = new boolean[256];
+
+    public void coalesce(final InstructionRecorder recorder) {
+        final int size = recorder.size();
+        if (size < 2) return;
+
+        if (dropped.length < size) dropped = new boolean[Math.max(size, dropped.length << 1)];
+        else Arrays.fill(dropped, 0, size, false);
+
+        try {
+            dropDeadObjects(recorder, size);
+            dropOverriddenUpdates(recorder, size);
+            recorder.retain(dropped);
+        } finally {
+            lastStates.clear();
+            pendingStyleNames.clear();
+            created.clear();
+            dead.clear();
+        }
+    }
+
+    private void dropDeadObjects(final InstructionRecorder recorder, final int size) {
+        for (int i = 0; i < size; i++) {
+            if (recorder.getKind(i) != InstructionRecorder.INSTRUCTION) continue;
+            final Instruction instruction = recorder.getInstruction(i);
+            if (instruction instanceof Create) {
+                if (!instruction.has("addOnSignature")) created.add(instruction.getObjectID());
+            } else if (instruction instanceof GC) {
+                final long objectID = instruction.getObjectID();
+                if (created.contains(objectID)) dead.add(objectID);
+            } else if (instruction instanceof GCBatch) {
+                final JSONArray objectIDs = instruction.optJSONArray(PROPERTY.OBJECT_IDS);
+                for (int j = 0; j < objectIDs.length(); j++) {
+                    final long objectID = objectIDs.optLong(j);
+                    if (created.contains(objectID)) dead.add(objectID);
+                }
+            }
+        }
+
+        if (dead.isEmpty()) return;
+
+        // An object receiving a command keeps its instructions, the command may have a visible side effect
+        for (int i = 0; i < size; i++) {
+            if (recorder.getKind(i) != InstructionRecorder.INSTRUCTION) {
+                if (!STATE_KEYS.contains(recorder.getKey(i)) && styleName(recorder, i) == null) dead.remove(recorder.getObjectID(i));
+                continue;
+            }
+            final Instruction instruction = recorder.getInstruction(i);
+            if (instruction instanceof Update) {
+                if (stateSlot(instruction) == null && styleName(recorder, i) == null) dead.remove(instruction.getObjectID());
+            } else if (!isStructural(instruction) && instruction.has(PROPERTY.OBJECT_ID)) {
+                dead.remove(instruction.getObjectID());
+            }
+        }
+
+        if (dead.isEmpty()) return;
+
+        for (int i = 0; i < size; i++) {
+            if (recorder.getKind(i) != InstructionRecorder.INSTRUCTION) {
+                if (dead.contains(recorder.getObjectID(i))) dropped[i] = true;
+                continue;
+            }
+            final Instruction instruction = recorder.getInstruction(i);
+            if (instruction instanceof GCBatch) {
+                dropped[i] = dropDeadObjectIDs(instruction);
+                continue;
+            }
+            if (!instruction.has(PROPERTY.OBJECT_ID)) continue;
+            if (dead.contains(instruction.getObjectID())) {
+                dropped[i] = true;
+            } else if ((instruction instanceof Add || instruction instanceof Remove) && instruction.has(PROPERTY.PARENT_ID) && dead.contains(instruction.getParentID())) {
+                dropped[i] = true;
+            }
+        }
+    }
+
+    /**
+     * @return true if the batch only released dead objects
+     */
+    private boolean dropDeadObjectIDs(final Instruction batch) {
+        final JSONArray objectIDs = batch.optJSONArray(PROPERTY.OBJECT_IDS);
+        final JSONArray kept = new JSONArray();
+        for (int i = 0; i < objectIDs.length(); i++) {
+            final long objectID = objectIDs.optLong(i);
+            if (!dead.contains(objectID)) kept.put(objectID);
+        }
+        if (kept.length() == 0) return true;
+        if (kept.length() != objectIDs.length()) batch.put(PROPERTY.OBJECT_IDS, kept);
+        return false;
+    }
+
+    /**
+     * @return true if every recorded instruction only sets a state property, dropping them leaves stale values on the
+     *         terminal but never a missing or leaked object
+     */
+    public static boolean isStateOnly(final InstructionRecorder recorder) {
+        for (int i = 0; i < recorder.size(); i++) {
+            if (recorder.getKind(i) != InstructionRecorder.INSTRUCTION) {
+                if (!STATE_KEYS.contains(recorder.getKey(i))) return false;
+                continue;
+            }
+            final Instruction instruction = recorder.getInstruction(i);
+            if (!(instruction instanceof Update) || stateSlot(instruction) == null) return false;
+        }
+        return true;
+    }
+
+    private void dropOverriddenUpdates(final InstructionRecorder recorder, final int size) {
+        for (int i = 0; i < size; i++) {
+            if (dropped[i]) continue;
+
+            final String slot;
+            final boolean styleReplacement;
+            if (recorder.getKind(i) == InstructionRecorder.INSTRUCTION) {
+                final Instruction instruction = recorder.getInstruction(i);
+                if (!(instruction instanceof Update)) continue;
+                slot = stateSlot(instruction);
+                styleReplacement = instruction.has(PROPERTY.STYLE_NAME) || instruction.has(PROPERTY.STYLE_PRIMARY_NAME);
+            } else {
+                final String key = recorder.getKey(i);
+                slot = STATE_KEYS.contains(key) ? recorder.getObjectID(i) + "|" + key : null;
+                styleReplacement = PROPERTY.STYLE_NAME.equals(key) || PROPERTY.STYLE_PRIMARY_NAME.equals(key);
+            }
+
+            final String styleName = styleName(recorder, i);
+            if (styleName != null) {
+                cancelStyleName(recorder, styleName, i);
+                continue;
+            }
+
+            if (slot == null) continue;
+
+            // Style name replacements override the style names previously added or removed
+            if (styleReplacement) pendingStyleNames.remove(recorder.getObjectID(i));
+
+            final Integer previous = lastStates.put(slot, i);
+            if (previous != null) dropped[previous] = true;
+        }
+    }
+
+    private void cancelStyleName(final InstructionRecorder recorder, final String styleName, final int index) {
+        final Long objectID = recorder.getObjectID(index);
+        Map<String, Integer> styleNames = pendingStyleNames.get(objectID);
+        if (styleNames == null) {
+            styleNames = new HashMap<String, Integer>();
+            pendingStyleNames.put(objectID, styleNames);
+        }
+
+        final Integer previous = styleNames.remove(styleName);
+        if (previous != null && isAddStyleName(recorder, previous) != isAddStyleName(recorder, index)) {
+            dropped[previous] = true;
+            dropped[index] = true;
+        } else {
+            styleNames.put(styleName, index);
+        }
+    }
+
+    private static boolean isStructural(final Instruction instruction) {
+        return instruction instanceof Create || instruction instanceof Add || instruction instanceof Remove || instruction instanceof GC || instruction instanceof GCBatch
+                || instruction instanceof AddHandler || instruction instanceof RemoveHandler;
+    }
+
+    private static boolean isAddStyleName(final InstructionRecorder recorder, final int index) {
+        if (recorder.getKind(index) != InstructionRecorder.INSTRUCTION) return PROPERTY.ADD_STYLE_NAME.equals(recorder.getKey(index));
+        return recorder.getInstruction(index).has(PROPERTY.ADD_STYLE_NAME);
+    }
+
+    private static String styleName(final InstructionRecorder recorder, final int index) {
+        if (recorder.getKind(index) != InstructionRecorder.INSTRUCTION) {
+            final String key = recorder.getKey(index);
+            if (PROPERTY.ADD_STYLE_NAME.equals(key) || PROPERTY.REMOVE_STYLE_NAME.equals(key)) return String.valueOf(recorder.getObject(index));
+            return null;
+        }
+        final Instruction instruction = recorder.getInstruction(index);
+        if (instruction.length() != 3) return null;
+        if (instruction.has(PROPERTY.ADD_STYLE_NAME)) return instruction.getString(PROPERTY.ADD_STYLE_NAME);
+        if (instruction.has(PROPERTY.REMOVE_STYLE_NAME)) return instruction.getString(PROPERTY.REMOVE_STYLE_NAME);
+        return null;
+    }
+
+    /**
+     * @return the (objectID, property) slot written by the update or null if the update is a command
+     */
+    @SuppressWarnings("unchecked")
+    private static String stateSlot(final Instruction instruction) {
+        final long objectID = instruction.getObjectID();
+        switch (instruction.length()) {
+            case 3:
+                if (instruction.has(PROPERTY.REMOVE_STYLE_KEY)) return objectID + "|style|" + instruction.getString(PROPERTY.REMOVE_STYLE_KEY);
+                if (instruction.has(PROPERTY.REMOVE_ATTRIBUTE_KEY)) return objectID + "|attribute|" + instruction.getString(PROPERTY.REMOVE_ATTRIBUTE_KEY);
+                final Iterator<String> keys = instruction.keys();
+                while (keys.hasNext()) {
+                    final String key = keys.next();
+                    if (TYPE.KEY.equals(key) || PROPERTY.OBJECT_ID.equals(key)) continue;
+                    return STATE_KEYS.contains(key) ? objectID + "|" + key : null;
+                }
+                return null;
+            case 4:
+                if (instruction.has(PROPERTY.PUT_STYLE_KEY) && instruction.has(PROPERTY.STYLE_VALUE)) return objectID + "|style|" + instruction.getString(PROPERTY.PUT_STYLE_KEY);
+                if (instruction.has(PROPERTY.PUT_ATTRIBUTE_KEY) && instruction.has(PROPERTY.ATTRIBUTE_VALUE)) return objectID + "|attribute|"
+                        + instruction.getString(PROPERTY.PUT_ATTRIBUTE_KEY);
+                if (instruction.has(PROPERTY.PUT_PROPERTY_KEY) && instruction.has(PROPERTY.PROPERTY_VALUE)) return objectID + "|property|" + instruction.getString(PROPERTY.PUT_PROPERTY_KEY);
+                return null;
+            default:
+                return null;
+        }
+    }
+
+}
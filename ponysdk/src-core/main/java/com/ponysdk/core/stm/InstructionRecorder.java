@@ -0,0 +1,252 @@
+
+package com.ponysdk.core.stm;
+
+import java.util.Arrays;
+
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Update;
+
+/**
+ * Records the instructions of a transaction in order.
+ * <p>
+ * Single property updates are appended as typed operands into growable parallel arrays, no {@link Update} (and no
+ * boxing for primitive values) is allocated until a consumer explicitly asks for one. The update of a
+ * {@link FrameTemplate} is recorded as its object ID and a reference to the template. Any other instruction is kept by
+ * reference. The arrays are reused from one transaction to the next, a recorder is not thread safe.
+ * </p>
+ */
+public class InstructionRecorder {
+
+    public static final byte INSTRUCTION = 0;
+    public static final byte BOOLEAN = 1;
+    public static final byte LONG = 2;
+    public static final byte OBJECT = 3;
+    public static final byte TEMPLATE = 4;
+
+    private static final ThreadLocal<InstructionRecorder> pool = new ThreadLocal<InstructionRecorder>();
+
+    private byte[] kinds;
+    private long[] objectIDs;
+    private String[] keys;
+    private long[] primitives;
+    private Object[] references;
+
+    private int size;
+
+    private boolean inUse;
+
+    public InstructionRecorder() {
+        this(64);
+    }
+
+    public InstructionRecorder(final int initialCapacity) {
+        kinds = new byte[initialCapacity];
+        objectIDs = new long[initialCapacity];
+        keys = new String[initialCapacity];
+        primitives = new long[initialCapacity];
+        references = new Object[initialCapacity];
+    }
+
+    /**
+     * @return the recorder cached by the current thread if it is free, a new one otherwise
+     */
+    public static InstructionRecorder acquire() {
+        final InstructionRecorder recorder = pool.get();
+        if (recorder == null || recorder.inUse) {
+            final InstructionRecorder newRecorder = new InstructionRecorder();
+            if (recorder == null) pool.set(newRecorder);
+            newRecorder.inUse = true;
+            return newRecorder;
+        }
+        recorder.inUse = true;
+        return recorder;
+    }
+
+    /**
+     * Clears the recorder and gives it back to the pool of the current thread
+     */
+    public void release() {
+        clear();
+        inUse = false;
+    }
+
+    public void record(final Instruction instruction) {
+        final int index = next();
+        kinds[index] = INSTRUCTION;
+        references[index] = instruction;
+    }
+
+    public void recordUpdate(final long objectID, final String key, final boolean value) {
+        final int index = next();
+        kinds[index] = BOOLEAN;
+        objectIDs[index] = objectID;
+        keys[index] = key;
+        primitives[index] = value ? 1 : 0;
+    }
+
+    public void recordUpdate(final long objectID, final String key, final long value) {
+        final int index = next();
+        kinds[index] = LONG;
+        objectIDs[index] = objectID;
+        keys[index] = key;
+        primitives[index] = value;
+    }
+
+    public void recordUpdate(final long objectID, final String key, final Object value) {
+        final int index = next();
+        kinds[index] = OBJECT;
+        objectIDs[index] = objectID;
+        keys[index] = key;
+        references[index] = value;
+    }
+
+    /**
+     * Records the update of a {@link FrameTemplate} for the given object, written from the shared encoding of the
+     * template. The record has no key.
+     */
+    public void recordTemplate(final long objectID, final FrameTemplate template) {
+        final int index = next();
+        kinds[index] = TEMPLATE;
+        objectIDs[index] = objectID;
+        references[index] = template;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public byte getKind(final int index) {
+        return kinds[index];
+    }
+
+    public Instruction getInstruction(final int index) {
+        return (Instruction) references[index];
+    }
+
+    public long getObjectID(final int index) {
+        return kinds[index] == INSTRUCTION ? getInstruction(index).getObjectID() : objectIDs[index];
+    }
+
+    public String getKey(final int index) {
+        return keys[index];
+    }
+
+    public boolean getBoolean(final int index) {
+        return primitives[index] != 0;
+    }
+
+    public long getLong(final int index) {
+        return primitives[index];
+    }
+
+    public Object getObject(final int index) {
+        return references[index];
+    }
+
+    public FrameTemplate getTemplate(final int index) {
+        return (FrameTemplate) references[index];
+    }
+
+    /**
+     * @return the recorded instruction, a single property update is materialized
+     */
+    public Instruction toInstruction(final int index) {
+        switch (kinds[index]) {
+            case INSTRUCTION:
+                return getInstruction(index);
+            case BOOLEAN:
+                final Update booleanUpdate = new Update(objectIDs[index]);
+                booleanUpdate.put(keys[index], getBoolean(index));
+                return booleanUpdate;
+            case LONG:
+                final Update longUpdate = new Update(objectIDs[index]);
+                longUpdate.put(keys[index], primitives[index]);
+                return longUpdate;
+            case TEMPLATE:
+                return getTemplate(index).newUpdate(objectIDs[index]);
+            default:
+                final Update update = new Update(objectIDs[index]);
+                update.put(keys[index], references[index]);
+                return update;
+        }
+    }
+
+    /**
+     * Replays the recorded instructions into another transaction context
+     */
+    public void replay(final TxnContext txnContext) {
+        for (int i = 0; i < size; i++) {
+            switch (kinds[i]) {
+                case INSTRUCTION:
+                    txnContext.save(getInstruction(i));
+                    break;
+                case BOOLEAN:
+                    txnContext.saveUpdate(objectIDs[i], keys[i], getBoolean(i));
+                    break;
+                case LONG:
+                    txnContext.saveUpdate(objectIDs[i], keys[i], primitives[i]);
+                    break;
+                case TEMPLATE:
+                    getTemplate(i).save(txnContext, objectIDs[i]);
+                    break;
+                default:
+                    txnContext.saveUpdate(objectIDs[i], keys[i], references[i]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Removes the records flagged as dropped, keeping the order of the others
+     */
+    public void retain(final boolean[] dropped) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (dropped[i]) continue;
+            if (kept != i) {
+                kinds[kept] = kinds[i];
+                objectIDs[kept] = objectIDs[i];
+                keys[kept] = keys[i];
+                primitives[kept] = primitives[i];
+                references[kept] = references[i];
+            }
+            kept++;
+        }
+        Arrays.fill(keys, kept, size, null);
+        Arrays.fill(references, kept, size, null);
+        size = kept;
+    }
+
+    /**
+     * Discards the records after the given size
+     */
+    public void truncate(final int newSize) {
+        if (newSize >= size) return;
+        Arrays.fill(keys, newSize, size, null);
+        Arrays.fill(references, newSize, size, null);
+        size = newSize;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(references, 0, size, null);
+        size = 0;
+    }
+
+    private int next() {
+        if (size == kinds.length) {
+            final int capacity = Math.max(size << 1, 16);
+            kinds = Arrays.copyOf(kinds, capacity);
+            objectIDs = Arrays.copyOf(objectIDs, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            references = Arrays.copyOf(references, capacity);
+        }
+        return size++;
+    }
+
+}
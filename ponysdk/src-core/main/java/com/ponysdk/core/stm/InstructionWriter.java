@@ -0,0 +1,158 @@
+
+package com.ponysdk.core.stm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+
+/**
+ * Streams a batch of instructions as JSON directly into a {@link Writer}, one instruction at a time, without
+ * building the wrapping JSON tree or the whole payload as a String.
+ * <p>
+ * Single property updates recorded as typed operands are written straight from the {@link InstructionRecorder}.
+ * </p>
+ */
+public class InstructionWriter {
+
+    private static final String VIEW_ID_KEY = JSONObject.quote(APPLICATION.VIEW_ID) + ":";
+    private static final String SEQ_NUM_KEY = JSONObject.quote(APPLICATION.SEQ_NUM) + ":";
+    private static final String INSTRUCTIONS_KEY = JSONObject.quote(APPLICATION.INSTRUCTIONS) + ":[";
+    private static final String UPDATE_PREFIX = "{" + JSONObject.quote(TYPE.KEY) + ":" + JSONObject.quote(TYPE.KEY_.UPDATE) + "," + JSONObject.quote(PROPERTY.OBJECT_ID) + ":";
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final char[] DIGITS_HEX = "0123456789abcdef".toCharArray();
+
+    private InstructionWriter() {}
+
+    public static void write(final Writer writer, final Long viewID, final long seqNum, final InstructionRecorder recorder) throws IOException {
+        writer.write('{');
+        if (viewID != null) {
+            writer.write(VIEW_ID_KEY);
+            writeLong(writer, viewID);
+            writer.write(',');
+        }
+        writer.write(SEQ_NUM_KEY);
+        writeLong(writer, seqNum);
+        writer.write(',');
+        writer.write(INSTRUCTIONS_KEY);
+        try {
+            for (int i = 0; i < recorder.size(); i++) {
+                if (i > 0) writer.write(',');
+                final byte kind = recorder.getKind(i);
+                if (kind == InstructionRecorder.INSTRUCTION) recorder.getInstruction(i).write(writer);
+                else if (kind == InstructionRecorder.TEMPLATE) recorder.getTemplate(i).write(writer, recorder.getObjectID(i));
+                else writeUpdate(writer, recorder, i);
+            }
+        } catch (final JSONException e) {
+            throw new IOException("Cannot serialize instruction", e);
+        }
+        writer.write("]}");
+    }
+
+    private static void writeUpdate(final Writer writer, final InstructionRecorder recorder, final int index) throws IOException, JSONException {
+        writer.write(UPDATE_PREFIX);
+        writeLong(writer, recorder.getObjectID(index));
+        writer.write(',');
+        writeString(writer, recorder.getKey(index));
+        writer.write(':');
+        switch (recorder.getKind(index)) {
+            case InstructionRecorder.BOOLEAN:
+                writer.write(recorder.getBoolean(index) ? "true" : "false");
+                break;
+            case InstructionRecorder.LONG:
+                writeLong(writer, recorder.getLong(index));
+                break;
+            default:
+                writeValue(writer, recorder.getObject(index));
+                break;
+        }
+        writer.write('}');
+    }
+
+    static void writeValue(final Writer writer, final Object value) throws IOException, JSONException {
+        if (value == null || value == JSONObject.NULL) writer.write("null");
+        else if (value instanceof String) writeString(writer, (String) value);
+        else if (value instanceof Boolean) writer.write(value.toString());
+        else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) writeLong(writer, ((Number) value).longValue());
+        else if (value instanceof Number) writer.write(JSONObject.numberToString((Number) value));
+        else if (value instanceof JSONObject) ((JSONObject) value).write(writer);
+        else if (value instanceof JSONArray) ((JSONArray) value).write(writer);
+        else if (value instanceof Map) new JSONObject((Map<?, ?>) value).write(writer);
+        else if (value instanceof Collection) new JSONArray((Collection<?>) value).write(writer);
+        else writeString(writer, value.toString());
+    }
+
+    static void writeString(final Writer writer, final String s) throws IOException {
+        writer.write('"');
+        char previous = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    writer.write('\\');
+                    writer.write(c);
+                    break;
+                case '/':
+                    if (previous == '<') writer.write('\\');
+                    writer.write(c);
+                    break;
+                case '\b':
+                    writer.write("\\b");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\f':
+                    writer.write("\\f");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                        writer.write("\\u");
+                        writer.write(DIGITS_HEX[(c >> 12) & 0xF]);
+                        writer.write(DIGITS_HEX[(c >> 8) & 0xF]);
+                        writer.write(DIGITS_HEX[(c >> 4) & 0xF]);
+                        writer.write(DIGITS_HEX[c & 0xF]);
+                    } else {
+                        writer.write(c);
+                    }
+            }
+            previous = c;
+        }
+        writer.write('"');
+    }
+
+    static void writeLong(final Writer writer, final long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writer.write(Long.toString(value));
+            return;
+        }
+        long v = value;
+        if (v < 0) {
+            writer.write('-');
+            v = -v;
+        }
+        long divisor = 1;
+        while (v / divisor >= 10)
+            divisor *= 10;
+        while (divisor > 0) {
+            writer.write(DIGITS[(int) (v / divisor % 10)]);
+            divisor /= 10;
+        }
+    }
+
+}
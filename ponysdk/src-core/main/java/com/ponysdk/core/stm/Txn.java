@@ -46,7 +46,9 @@ public class Txn {
         if (txn.txnContext == null) throw new RuntimeException("Call begin() before commit() a transaction.");
         fireClientLoopEnd();
         fireBeforeFlush();
+        if (uiContext != null) uiContext.collectGarbage(txnContext);
         flush();
+        if (uiContext != null) uiContext.commitGarbage();
         fireAfterFlush();
         transactions.remove();
         txnContext.clear();
@@ -56,6 +58,7 @@ public class Txn {
         final Txn txn = transactions.get();
         if (txn.txnContext == null) throw new RuntimeException("Call begin() before rollback() a transaction.");
         fireBeforeRollback();
+        if (uiContext != null) uiContext.rollbackGarbage();
         transactions.remove();
         txnContext.clear();
     }
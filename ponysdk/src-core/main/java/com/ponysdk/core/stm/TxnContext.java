@@ -1,4 +1,3 @@
-
 package com.ponysdk.core.stm;
 
 import java.util.List;
@@ -9,8 +8,22 @@ public interface TxnContext {
 
     void save(Instruction instruction);
 
+    /**
+     * Saves a single property update without requiring the caller to build an {@link com.ponysdk.core.instruction.Update}
+     */
+    void saveUpdate(long objectID, String key, boolean value);
+
+    void saveUpdate(long objectID, String key, long value);
+
+    void saveUpdate(long objectID, String key, Object value);
+
     void flush() throws Exception;
 
+    /**
+     * Redirects the next instructions into the given list, a null list restores the transaction instructions
+     * 
+     * @return the previous stacker
+     */
     List<Instruction> setCurrentStacker(List<Instruction> instructions);
 
     void clear();
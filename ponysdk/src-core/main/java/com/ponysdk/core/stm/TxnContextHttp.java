@@ -1,21 +1,27 @@
 
 package com.ponysdk.core.stm;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import org.json.JSONObject;
-
 import com.ponysdk.core.UIContext;
 import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Update;
 import com.ponysdk.core.servlet.Request;
 import com.ponysdk.core.servlet.Response;
-import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
 
 public class TxnContextHttp implements TxnContext {
 
+    private static final ThreadLocal<InstructionCoalescer> coalescers = new ThreadLocal<InstructionCoalescer>() {
+
+        @Override
+        protected InstructionCoalescer initialValue() {
+            return new InstructionCoalescer();
+        }
+    };
+
     private final Response response;
-    private List<Instruction> instructions = new ArrayList<Instruction>();
+    private final InstructionRecorder recorder = InstructionRecorder.acquire();
+    private List<Instruction> stacker;
     private final boolean startMode;
 
     public TxnContextHttp(final boolean startMode, final Request request, final Response response) {
@@ -25,30 +31,55 @@ public class TxnContextHttp implements TxnContext {
 
     @Override
     public void save(final Instruction instruction) {
-        instructions.add(instruction);
+        if (stacker != null) stacker.add(instruction);
+        else recorder.record(instruction);
+    }
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final boolean value) {
+        if (stacker != null) stacker.add(newUpdate(objectID, key, value));
+        else recorder.recordUpdate(objectID, key, value);
+    }
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final long value) {
+        if (stacker != null) stacker.add(newUpdate(objectID, key, value));
+        else recorder.recordUpdate(objectID, key, value);
+    }
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final Object value) {
+        if (stacker != null) stacker.add(newUpdate(objectID, key, value));
+        else recorder.recordUpdate(objectID, key, value);
+    }
+
+    private static Update newUpdate(final long objectID, final String key, final Object value) {
+        final Update update = new Update(objectID);
+        update.put(key, value);
+        return update;
     }
 
     @Override
     public void flush() throws Exception {
-        if (instructions.isEmpty()) return;
-        final JSONObject data = new JSONObject();
-        if (startMode) data.put(APPLICATION.VIEW_ID, UIContext.get().getUiContextID());
-        data.put(APPLICATION.INSTRUCTIONS, instructions);
-        data.put(APPLICATION.SEQ_NUM, UIContext.get().getAndIncrementNextSentSeqNum());
-        response.write(data.toString());
+        if (recorder.isEmpty()) return;
+        final UIContext uiContext = UIContext.get();
+        if (uiContext.getApplication().getOptions().isInstructionCoalescing()) coalescers.get().coalesce(recorder);
+        final Long viewID = startMode ? uiContext.getUiContextID() : null;
+        InstructionWriter.write(response.getWriter(), viewID, uiContext.getAndIncrementNextSentSeqNum(), recorder);
         response.flush();
-        instructions.clear();
+        recorder.clear();
     }
 
     @Override
     public List<Instruction> setCurrentStacker(final List<Instruction> stacker) {
-        final List<Instruction> list = instructions;
-        instructions = stacker;
+        final List<Instruction> list = this.stacker;
+        this.stacker = stacker;
         return list;
     }
 
     @Override
     public void clear() {
-        instructions.clear();
+        stacker = null;
+        recorder.release();
     }
 }
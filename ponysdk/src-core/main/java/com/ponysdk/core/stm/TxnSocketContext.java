@@ -1,53 +1,388 @@
 
 package com.ponysdk.core.stm;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.ponysdk.core.UIContext;
 import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.socket.BinaryEncoder;
+import com.ponysdk.core.socket.Codec;
+import com.ponysdk.core.socket.OutboundQueue;
+import com.ponysdk.core.socket.OverflowPolicy;
+import com.ponysdk.core.socket.ReplayBuffer;
+import com.ponysdk.core.socket.Utf8Writer;
 import com.ponysdk.core.socket.WebSocket;
-import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
 
 public class TxnSocketContext implements TxnContext, TxnListener {
 
+    private static final Logger log = LoggerFactory.getLogger(TxnSocketContext.class);
+
+    // A flush finding the screen busy is retried later instead of parking a thread shared by all the screens
+    private static final long LOCK_RETRY_DELAY = 5;// milliseconds
+
+    private static final ScheduledThreadPoolExecutor flushTimer = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+        private final AtomicInteger i = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName(TxnSocketContext.class.getName() + "-" + i.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
     private WebSocket socket;
 
-    private List<Instruction> instructions = new ArrayList<Instruction>();
+    private final InstructionRecorder recorder = new InstructionRecorder();
+
+    private List<Instruction> stacker;
 
     private boolean polling = false;
 
     private boolean flushNow = false;
 
-    public TxnSocketContext() {}
+    private final Codec codec;
+
+    private BinaryEncoder binaryEncoder;
+
+    private Utf8Writer jsonWriter;
+
+    private final InstructionCoalescer coalescer = new InstructionCoalescer();
+
+    private long flushMaxDelay = 0;// milliseconds
+
+    private int flushMaxBatchSize = Integer.MAX_VALUE;
+
+    // Number of instructions of the committed transactions waiting for the flush window to close
+    private int committed = 0;
+
+    private boolean flushScheduled = false;
+
+    private UIContext uiContext;
+
+    private long outboundQueueMaxBytes = 0;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private OutboundQueue outboundQueue;
+
+    // Committed instructions are held back until the outbound queue drains
+    private volatile boolean conflating = false;
+
+    private ReplayBuffer replayBuffer;
+
+    // Written by the socket and closing threads, read by the committing ones
+    private volatile boolean disconnected = false;
+
+    private final AtomicBoolean drainFlushScheduled = new AtomicBoolean();
+
+    private final Runnable pendingFlush = new Runnable() {
+
+        @Override
+        public void run() {
+            try {
+                send(true);
+            } catch (final Exception e) {
+                log.error("Cannot flush pending instructions", e);
+            }
+        }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+
+        @Override
+        public void run() {
+            if (!uiContext.tryAcquire()) {
+                flushTimer.schedule(this, LOCK_RETRY_DELAY, TimeUnit.MILLISECONDS);
+                return;
+            }
+            UIContext.setCurrent(uiContext);
+            try {
+                flushScheduled = false;
+                if (committed > 0) send(false);
+            } catch (final Exception e) {
+                log.error("Cannot flush pending instructions", e);
+            } finally {
+                UIContext.remove();
+                uiContext.release();
+            }
+        }
+    };
+
+    private final Runnable drainFlushTask = new Runnable() {
+
+        @Override
+        public void run() {
+            if (!uiContext.tryAcquire()) {
+                flushTimer.schedule(this, LOCK_RETRY_DELAY, TimeUnit.MILLISECONDS);
+                return;
+            }
+            UIContext.setCurrent(uiContext);
+            try {
+                drainFlushScheduled.set(false);
+                if (conflating && committed > 0) send(false);
+            } catch (final Exception e) {
+                log.error("Cannot flush conflated instructions", e);
+            } finally {
+                UIContext.remove();
+                uiContext.release();
+            }
+        }
+    };
+
+    private final Runnable drainListener = new Runnable() {
+
+        @Override
+        public void run() {
+            if (conflating && !outboundQueue.isFull() && drainFlushScheduled.compareAndSet(false, true)) flushTimer.execute(drainFlushTask);
+        }
+    };
+
+    public TxnSocketContext() {
+        this(Codec.JSON);
+    }
+
+    public TxnSocketContext(final Codec codec) {
+        this.codec = codec;
+        if (codec == Codec.BINARY) binaryEncoder = new BinaryEncoder();
+        else jsonWriter = new Utf8Writer();
+    }
 
     public void setSocket(final WebSocket socket) {
         this.socket = socket;
+        if (outboundQueue != null) outboundQueue.close();
+        outboundQueue = outboundQueueMaxBytes > 0 ? new OutboundQueue(socket, outboundQueueMaxBytes, overflowPolicy, drainListener) : null;
+    }
+
+    /**
+     * Frames are queued and written by another thread, up to maxBytes. Beyond that the overflow policy applies :
+     * {@link OverflowPolicy#CONFLATE} holds the committed instructions back (and coalesces them with the next
+     * transactions) until the queue drains.
+     * 
+     * @param maxBytes
+     *            0 to write the frames synchronously
+     */
+    public void setOutboundQueue(final long maxBytes, final OverflowPolicy overflowPolicy) {
+        this.outboundQueueMaxBytes = maxBytes;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Keeps the last frames sent so that a reconnecting terminal can resume the session
+     * 
+     * @param capacity
+     *            number of frames, 0 to keep none
+     */
+    public void setReplayBuffer(final int capacity) {
+        this.replayBuffer = capacity > 0 ? new ReplayBuffer(capacity) : null;
+    }
+
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    public boolean isConflating() {
+        return conflating;
+    }
+
+    /**
+     * Throttles a producer exceeding the bound of the outbound queue, must be called once the UIContext lock is
+     * released
+     */
+    public void awaitOutboundQueue() {
+        if (outboundQueue == null) return;
+        try {
+            outboundQueue.awaitRoom();
+        } catch (final InterruptedIOException e) {
+            log.warn("Interrupted while waiting for the outbound queue of " + socket);
+        }
+    }
+
+    /**
+     * Discards the queued frames, the threads waiting for the connection are released
+     */
+    public void close() {
+        disconnected = true;
+        if (outboundQueue != null) outboundQueue.close();
+    }
+
+    /**
+     * Holds the committed instructions up to maxDelay before sending them, the transactions committed in the
+     * meantime are merged into the same frame. The frame is sent earlier once it reaches maxBatchSize instructions or
+     * when another channel is about to send instructions to the terminal.
+     * 
+     * @param maxDelay
+     *            0 to send each transaction as soon as it is committed
+     */
+    public void setFlushWindow(final long maxDelay, final TimeUnit unit, final int maxBatchSize) {
+        this.flushMaxDelay = TimeUnit.MILLISECONDS.convert(maxDelay, unit);
+        this.flushMaxBatchSize = maxBatchSize > 0 ? maxBatchSize : Integer.MAX_VALUE;
     }
 
     @Override
     public void save(final Instruction instruction) {
-        instructions.add(instruction);
+        if (stacker != null) stacker.add(instruction);
+        else recorder.record(instruction);
+    }
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final boolean value) {
+        if (stacker != null) stacker.add(newUpdate(objectID, key, value));
+        else recorder.recordUpdate(objectID, key, value);
+    }
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final long value) {
+        if (stacker != null) stacker.add(newUpdate(objectID, key, value));
+        else recorder.recordUpdate(objectID, key, value);
+    }
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final Object value) {
+        if (stacker != null) stacker.add(newUpdate(objectID, key, value));
+        else recorder.recordUpdate(objectID, key, value);
+    }
+
+    /**
+     * Saves the update of a {@link FrameTemplate} for the given object without copying its properties
+     */
+    public void saveTemplate(final long objectID, final FrameTemplate template) {
+        if (stacker != null) stacker.add(template.newUpdate(objectID));
+        else recorder.recordTemplate(objectID, template);
+    }
+
+    private static Update newUpdate(final long objectID, final String key, final Object value) {
+        final Update update = new Update(objectID);
+        update.put(key, value);
+        return update;
     }
 
     @Override
     public void flush() throws Exception {
         if (polling) return;
 
-        if (instructions.isEmpty()) return;
-        final JSONObject data = new JSONObject();
-        data.put(APPLICATION.INSTRUCTIONS, instructions);
-        data.put(APPLICATION.SEQ_NUM, UIContext.get().getAndIncrementNextSentSeqNum());
-        socket.send(data.toString());
-        instructions.clear();
+        if (recorder.isEmpty()) return;
+
+        if (flushMaxDelay > 0 && recorder.size() < flushMaxBatchSize) {
+            committed = recorder.size();
+            uiContext = UIContext.get();
+            uiContext.setPendingFlush(pendingFlush);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flushTimer.schedule(flushTask, flushMaxDelay, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+
+        send(false);
+    }
+
+    /**
+     * @param force
+     *            true to bypass the conflation, another channel is about to send instructions to the terminal
+     */
+    private void send(final boolean force) throws Exception {
+        final UIContext uiContext = UIContext.get();
+        if (!force && holdBack()) {
+            // Only the latest value per (objectID, property) is kept while the client catches up
+            this.uiContext = uiContext;
+            uiContext.setPendingFlush(pendingFlush);
+            coalescer.coalesce(recorder);
+            committed = recorder.size();
+            return;
+        }
+
+        conflating = false;
+        committed = 0;
+        uiContext.setPendingFlush(null);
+        if (recorder.isEmpty()) return;
+        if (uiContext.getApplication().getOptions().isInstructionCoalescing()) coalescer.coalesce(recorder);
+        final long seqNum = uiContext.getAndIncrementNextSentSeqNum();
+        final boolean droppable = overflowPolicy == OverflowPolicy.DROP_OLDEST && InstructionCoalescer.isStateOnly(recorder);
+        if (codec == Codec.BINARY) {
+            binaryEncoder.encode(seqNum, recorder);
+            write(seqNum, false, binaryEncoder.getBuffer(), binaryEncoder.getLength(), droppable);
+        } else {
+            jsonWriter.reset();
+            InstructionWriter.write(jsonWriter, null, seqNum, recorder);
+            jsonWriter.flush();
+            write(seqNum, true, jsonWriter.getBuffer(), jsonWriter.getLength(), droppable);
+        }
+        recorder.clear();
+    }
+
+    private boolean holdBack() {
+        if (outboundQueue == null || outboundQueue.getPolicy() != OverflowPolicy.CONFLATE || !outboundQueue.isFull()) return false;
+        // Checked again once the flag is visible, the writer may have drained the queue in the meantime
+        conflating = true;
+        return outboundQueue.isFull();
+    }
+
+    /**
+     * @param droppable
+     *            true if the frame only carries state updates, see {@link OutboundQueue#offer(long, boolean, byte[], boolean)}
+     */
+    private void write(final long seqNum, final boolean text, final byte[] buffer, final int length, final boolean droppable) throws Exception {
+        if (replayBuffer == null) {
+            if (outboundQueue != null) outboundQueue.offer(seqNum, text, buffer, 0, length, droppable);
+            else if (text) socket.sendText(buffer, 0, length);
+            else socket.send(buffer, 0, length);
+            return;
+        }
+
+        final byte[] frame = Arrays.copyOf(buffer, length);
+        replayBuffer.add(seqNum, text, frame);
+        // While the connection is lost the frames are only kept for the terminal to resume
+        if (!disconnected) writeFrame(seqNum, text, frame, droppable);
+    }
+
+    private void writeFrame(final long seqNum, final boolean text, final byte[] frame, final boolean droppable) {
+        try {
+            if (outboundQueue != null) outboundQueue.offer(seqNum, text, frame, droppable);
+            else if (text) socket.sendText(frame, 0, frame.length);
+            else socket.send(frame, 0, frame.length);
+        } catch (final IOException e) {
+            log.warn("Cannot write frame #" + seqNum + ", waiting for the terminal to resume", e);
+            disconnected = true;
+        }
+    }
+
+    /**
+     * @return true if the frames sent after lastSeqNum can be sent again
+     */
+    public boolean canResume(final long lastSeqNum) {
+        return replayBuffer != null && replayBuffer.covers(lastSeqNum);
+    }
+
+    /**
+     * Sends again the frames sent after lastSeqNum, the socket of the reconnected terminal must be open. Until then
+     * the committed frames are only kept in the replay buffer.
+     */
+    public void resume(final long lastSeqNum) {
+        disconnected = false;
+        for (int i = replayBuffer.indexAfter(lastSeqNum); i < replayBuffer.size(); i++) {
+            writeFrame(replayBuffer.getSeqNum(i), replayBuffer.isText(i), replayBuffer.getFrame(i), false);
+        }
     }
 
     @Override
     public List<Instruction> setCurrentStacker(final List<Instruction> stacker) {
-        final List<Instruction> list = instructions;
-        instructions = stacker;
+        final List<Instruction> list = this.stacker;
+        this.stacker = stacker;
         return list;
     }
 
@@ -64,7 +399,8 @@ public class TxnSocketContext implements TxnContext, TxnListener {
     public void clear() {
         if (polling) return;
 
-        instructions.clear();
+        // a rollback only discards the instructions of its own transaction
+        recorder.truncate(committed);
     }
 
     @Override
@@ -73,10 +409,9 @@ public class TxnSocketContext implements TxnContext, TxnListener {
 
         flushNow = false;
 
-        for (final Instruction instruction : instructions) {
-            Txn.get().getTxnContext().save(instruction);
-        }
-        instructions.clear();
+        recorder.replay(Txn.get().getTxnContext());
+        recorder.clear();
+        committed = 0;
     }
 
     @Override
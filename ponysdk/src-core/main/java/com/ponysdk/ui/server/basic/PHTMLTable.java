@@ -24,79 +24,61 @@
 package com.ponysdk.ui.server.basic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.TreeMap;
 
 import com.ponysdk.core.instruction.Add;
 import com.ponysdk.core.instruction.Remove;
 import com.ponysdk.core.instruction.Update;
 import com.ponysdk.core.stm.Txn;
+import com.ponysdk.ui.server.basic.RowTree.Row;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
 import com.ponysdk.ui.terminal.basic.PHorizontalAlignment;
 import com.ponysdk.ui.terminal.basic.PVerticalAlignment;
 
 /**
  * PHTMLTable contains the common table algorithms for {@link PGrid} and {@link PFlexTable}.
+ * <p>
+ * The cells set as text or HTML are light cells : they are not backed by any widget and are addressed by their row and
+ * column only, {@link #setRowHTML(int, int, String...)} sets the cells of a row with a single instruction.
+ * </p>
  */
 public abstract class PHTMLTable extends PPanel {
 
-    protected class Row implements Comparable<Row> {
-
-        private int value;
-
-        protected Row(final int value) {
-            this.value = value;
-        }
-
-        public void setValue(final int value) {
-            this.value = value;
-        }
-
-        @Override
-        public int compareTo(final Row row) {
-            return value >= row.value ? (value != row.value ? 1 : 0) : -1;
-        }
-    }
-
     protected class Cell {
 
-        private int row;
+        private final Row row;
 
-        private int column;
+        private final int column;
 
-        protected Cell(final int rowIndex, final int cellIndex) {
-            this.column = cellIndex;
-            this.row = rowIndex;
+        protected Cell(final Row row, final int column) {
+            this.row = row;
+            this.column = column;
         }
 
-        public void setRow(final int row) {
-            this.row = row;
+        public int getRow() {
+            return rows.indexOf(row);
         }
 
-        public void setColumn(final int column) {
-            this.column = column;
+        public int getColumn() {
+            return column;
         }
 
     }
 
     public class PRowFormatter {
 
-        private Map<Integer, Set<String>> styleNames = new HashMap<Integer, Set<String>>();
-
         public void addStyleName(final int row, final String styleName) {
-            Set<String> styles = styleNames.get(row);
-            if (styles == null) {
-                styles = new HashSet<String>();
-                styleNames.put(row, styles);
-            }
+            final Row irow = rows.getOrCreate(row);
+            if (irow.styles == null) irow.styles = new HashSet<String>();
 
-            if (styles.add(styleName)) {
+            if (irow.styles.add(styleName)) {
                 final Update update = new Update(ID);
                 update.put(PROPERTY.ROW, row);
                 update.put(PROPERTY.HTMLTABLE_ROW_STYLE, true);
@@ -106,11 +88,12 @@ public abstract class PHTMLTable extends PPanel {
         }
 
         public void removeStyleName(final int row, final String styleName) {
-            final Set<String> styles = styleNames.get(row);
+            final Row irow = rows.get(row);
 
-            if (styles == null) return;
+            if (irow == null || irow.styles == null) return;
 
-            if (styles.remove(styleName)) {
+            if (irow.styles.remove(styleName)) {
+                rows.release(irow);
                 final Update update = new Update(ID);
                 update.put(PROPERTY.ROW, row);
                 update.put(PROPERTY.HTMLTABLE_ROW_STYLE, true);
@@ -120,14 +103,11 @@ public abstract class PHTMLTable extends PPanel {
         }
 
         public void setStyleName(final int row, final String styleName) {
-            Set<String> styles = styleNames.get(row);
-            if (styles == null) {
-                styles = new HashSet<String>();
-                styleNames.put(row, styles);
-            }
+            final Row irow = rows.getOrCreate(row);
+            if (irow.styles == null) irow.styles = new HashSet<String>();
 
-            styles.clear();
-            styles.add(styleName);
+            irow.styles.clear();
+            irow.styles.add(styleName);
 
             final Update update = new Update(ID);
             update.put(PROPERTY.ROW, row);
@@ -135,28 +115,6 @@ public abstract class PHTMLTable extends PPanel {
             update.put(PROPERTY.ROW_FORMATTER_SET_STYLE_NAME, styleName);
             Txn.get().getTxnContext().save(update);
         }
-
-        protected void insertRowStyle(final int row) {
-            final Map<Integer, Set<String>> temp = new HashMap<Integer, Set<String>>();
-            for (final Entry<Integer, Set<String>> entry : styleNames.entrySet()) {
-                if (entry.getKey() >= row) {
-                    temp.put(entry.getKey() + 1, entry.getValue());
-                } else temp.put(entry.getKey(), entry.getValue());
-            }
-            temp.put(row, new HashSet<String>());
-            styleNames = temp;
-        }
-
-        protected void removeRowStyle(final int row) {
-            styleNames.remove(row);
-            final Map<Integer, Set<String>> temp = new HashMap<Integer, Set<String>>();
-            for (final Entry<Integer, Set<String>> entry : styleNames.entrySet()) {
-                if (entry.getKey() > row) {
-                    temp.put(entry.getKey() - 1, entry.getValue());
-                } else temp.put(entry.getKey(), entry.getValue());
-            }
-            styleNames = temp;
-        }
     }
 
     public class PCellFormatter {
@@ -242,7 +200,7 @@ public abstract class PHTMLTable extends PPanel {
         }
     }
 
-    private final TreeMap<Row, TreeMap<Integer, PWidget>> columnByRow = new TreeMap<Row, TreeMap<Integer, PWidget>>();
+    private final RowTree rows = new RowTree();
 
     private final Map<PWidget, Cell> cellByWidget = new HashMap<PWidget, PHTMLTable.Cell>();
 
@@ -259,21 +217,81 @@ public abstract class PHTMLTable extends PPanel {
     private final PRowFormatter rowFormatter = new PRowFormatter();
 
     public int getRowCount() {
-        if (columnByRow.isEmpty()) return 0;
-        return columnByRow.lastKey().value + 1;
+        return rows.getCellRowCount();
     }
 
     public int getCellCount(final int row) {
-        final TreeMap<Integer, PWidget> cellByColumn = columnByRow.get(new Row(row));
-        if (cellByColumn == null || cellByColumn.isEmpty()) return 0;
-        return cellByColumn.lastKey() + 1;
+        final Row irow = rows.get(row);
+        if (irow == null) return 0;
+        final int widgetCount = irow.hasWidgets() ? irow.cells.lastKey() + 1 : 0;
+        return irow.texts == null ? widgetCount : Math.max(widgetCount, irow.texts.length());
     }
 
     public void clearCell(final int row, final int col) {
         final PWidget widget = getWidgetFromMap(row, col);
         if (widget != null) {
             remove(widget);
+            return;
+        }
+
+        final Row irow = rows.get(row);
+        if (irow == null || irow.texts == null || !irow.texts.get(col)) return;
+        irow.texts.clear(col);
+        rows.cellsChanged(irow);
+        rows.release(irow);
+
+        final Update update = new Update(ID);
+        update.put(PROPERTY.ROW, row);
+        update.put(PROPERTY.COLUMN, col);
+        update.put(PROPERTY.HTMLTABLE_ROW_TEXT, Arrays.asList(""));
+        Txn.get().getTxnContext().save(update);
+    }
+
+    public void setText(final int row, final int column, final String text) {
+        setRowText(row, column, text);
+    }
+
+    public void setHTML(final int row, final int column, final String html) {
+        setRowHTML(row, column, html);
+    }
+
+    /**
+     * Sets the text of the cells of the row starting at this column, the widgets of these cells are removed. The
+     * cells of the null texts are left as is.
+     */
+    public void setRowText(final int row, final int column, final String... texts) {
+        setRowCells(row, column, texts, PROPERTY.HTMLTABLE_ROW_TEXT);
+    }
+
+    /**
+     * Sets the HTML of the cells of the row starting at this column, the widgets of these cells are removed. The
+     * cells of the null fragments are left as is.
+     */
+    public void setRowHTML(final int row, final int column, final String... html) {
+        setRowCells(row, column, html, PROPERTY.HTMLTABLE_ROW_HTML);
+    }
+
+    private void setRowCells(final int row, final int column, final String[] values, final String property) {
+        if (row < 0) throw new IndexOutOfBoundsException("row (" + row + ") < 0");
+        if (column < 0) throw new IndexOutOfBoundsException("column (" + column + ") < 0");
+
+        final Row irow = rows.getOrCreate(row);
+        if (irow.texts == null) irow.texts = new BitSet();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) continue;
+            irow.texts.set(column + i);
+            // The row keeps a cell, it is not released with the widget
+            final PWidget widget = irow.cells != null ? irow.cells.get(column + i) : null;
+            if (widget != null) remove(widget, false);
         }
+        rows.cellsChanged(irow);
+        rows.release(irow);
+
+        final Update update = new Update(ID);
+        update.put(PROPERTY.ROW, row);
+        update.put(PROPERTY.COLUMN, column);
+        update.put(property, Arrays.asList(values));
+        Txn.get().getTxnContext().save(update);
     }
 
     public PCellFormatter getCellFormatter() {
@@ -303,8 +321,8 @@ public abstract class PHTMLTable extends PPanel {
     @Override
     public void clear() {
         final List<PWidget> values = new ArrayList<PWidget>();
-        for (final TreeMap<Integer, PWidget> widgetByColumn : columnByRow.values()) {
-            values.addAll(widgetByColumn.values());
+        for (Row row = rows.first(); row != null; row = rows.next(row)) {
+            if (row.hasWidgets()) values.addAll(row.cells.values());
         }
 
         for (final PWidget w : values) {
@@ -315,23 +333,18 @@ public abstract class PHTMLTable extends PPanel {
     }
 
     public void removeRow(final int row) {
-        final TreeMap<Integer, PWidget> widgetByColumn = columnByRow.remove(new Row(row));
-        if (widgetByColumn == null) return;
-        getRowFormatter().removeRowStyle(row);
-
-        final List<PWidget> values = new ArrayList<PWidget>(widgetByColumn.values());
-        for (final PWidget w : values) {
-            remove(w, false);
-        }
-
-        for (final Entry<Row, TreeMap<Integer, PWidget>> entry : columnByRow.entrySet()) {
-            final Row irow = entry.getKey();
-            if (irow.value > row) {
-                for (final PWidget widget : entry.getValue().values()) {
-                    final Cell cell = cellByWidget.get(widget);
-                    cell.row = cell.row - 1;
-                }
-                irow.value = irow.value - 1;
+        final Row irow = rows.get(row);
+        if (irow == null || !irow.hasCells()) return;
+
+        // The following rows move up with it, the widgets are then removed from the detached row
+        rows.delete(irow);
+        irow.styles = null;
+        irow.texts = null;
+
+        if (irow.hasWidgets()) {
+            final List<PWidget> values = new ArrayList<PWidget>(irow.cells.values());
+            for (final PWidget w : values) {
+                remove(w, false);
             }
         }
 
@@ -340,20 +353,28 @@ public abstract class PHTMLTable extends PPanel {
     }
 
     public void insertRow(final int row) {
-        for (final Entry<Row, TreeMap<Integer, PWidget>> entry : columnByRow.entrySet()) {
-            final Row irow = entry.getKey();
-            if (irow.value >= row) {
-                for (final PWidget widget : entry.getValue().values()) {
-                    final Cell cell = cellByWidget.get(widget);
-                    cell.row = cell.row + 1;
-                }
-                irow.value = irow.value + 1;
-            }
-        }
-        rowFormatter.insertRowStyle(row);
+        rows.insert(row);
         saveUpdate(PROPERTY.INSERT_ROW, row);
     }
 
+    /**
+     * Moves the row with its cells and styles, the row is then at beforeIndex
+     */
+    public void moveRow(final int index, final int beforeIndex) {
+        if (index < 0) throw new IndexOutOfBoundsException("index (" + index + ") < 0");
+        if (beforeIndex < 0) throw new IndexOutOfBoundsException("beforeIndex (" + beforeIndex + ") < 0");
+        if (index == beforeIndex) return;
+
+        final Row irow = rows.getOrCreate(index);
+        rows.move(irow, beforeIndex);
+        rows.release(irow);
+
+        final Update update = new Update(ID);
+        update.put(PROPERTY.ROW, index);
+        update.put(PROPERTY.MOVE_ROW, beforeIndex);
+        Txn.get().getTxnContext().save(update);
+    }
+
     @Override
     public boolean remove(final PWidget widget) {
         return remove(widget, true);
@@ -418,36 +439,30 @@ public abstract class PHTMLTable extends PPanel {
     }
 
     private PWidget getWidgetFromMap(final int row, final int column) {
-        final Map<Integer, PWidget> cellByColumn = columnByRow.get(new Row(row));
-        if (cellByColumn != null) { return cellByColumn.get(column); }
+        final Row irow = rows.get(row);
+        if (irow != null && irow.cells != null) { return irow.cells.get(column); }
         return null;
     }
 
     private PWidget removeWidgetFromMap(final PWidget widget) {
         final Cell cell = cellByWidget.remove(widget);
         if (cell == null) return null; // already removed
-        final Row row = new Row(cell.row);
-        final Map<Integer, PWidget> cellByColumn = columnByRow.get(row);
-        if (cellByColumn != null) {
-            final PWidget w = cellByColumn.remove(cell.column);
-            if (cellByColumn.isEmpty()) {
-                columnByRow.remove(row);
-            }
-            return w;
+        final Row row = cell.row;
+        final PWidget w = row.cells.remove(cell.column);
+        if (row.cells.isEmpty()) {
+            rows.cellsChanged(row);
+            rows.release(row);
         }
-        return null;
+        return w;
     }
 
     private void addWidgetToMap(final int row, final int column, final PWidget widget) {
-        final Row irow = new Row(row);
-        final Cell cell = new Cell(row, column);
-        cellByWidget.put(widget, cell);
-        TreeMap<Integer, PWidget> cellByColumn = columnByRow.get(irow);
-        if (cellByColumn == null) {
-            cellByColumn = new TreeMap<Integer, PWidget>();
-            columnByRow.put(irow, cellByColumn);
-        }
-        cellByColumn.put(column, widget);
+        final Row irow = rows.getOrCreate(row);
+        cellByWidget.put(widget, new Cell(irow, column));
+        if (irow.cells == null) irow.cells = new TreeMap<Integer, PWidget>();
+        irow.cells.put(column, widget);
+        if (irow.texts != null) irow.texts.clear(column);
+        if (irow.cells.size() == 1) rows.cellsChanged(irow);
     }
 
     @Override
@@ -26,14 +26,22 @@ package com.ponysdk.ui.server.basic;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ponysdk.core.ApplicationManagerOption;
 import com.ponysdk.core.UIContext;
 import com.ponysdk.core.socket.ConnectionListener;
+import com.ponysdk.core.socket.MessageListener;
+import com.ponysdk.core.socket.OutboundQueue;
 import com.ponysdk.core.socket.WebSocket;
 import com.ponysdk.core.stm.Txn;
 import com.ponysdk.core.stm.TxnSocketContext;
@@ -44,13 +52,26 @@ import com.ponysdk.ui.terminal.WidgetType;
 /**
  * Push data to clients using WebSocket.
  */
-public class PPusher extends PObject implements ConnectionListener {
+public class PPusher extends PObject implements ConnectionListener, MessageListener {
 
     private static final Logger log = LoggerFactory.getLogger(PPusher.class);
 
     public static final String PUSHER = "com.ponysdk.ui.server.basic.PPusher";
 
-    private WebSocket websocket;
+    private static final ScheduledThreadPoolExecutor resumeTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        private final AtomicInteger i = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r);
+            t.setName(PPusher.class.getName() + "-" + i.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private volatile WebSocket websocket;
 
     private final UIContext uiContext;
 
@@ -61,6 +82,33 @@ public class PPusher extends PObject implements ConnectionListener {
 
     private final TxnSocketContext txnContext;
 
+    private final long resumeTimeout;// milliseconds
+
+    private ScheduledFuture<?> expiration;
+
+    // The connection is lost and the terminal may come back, the data pushed in the meantime is kept for it
+    private volatile boolean awaitingResume = false;
+
+    private boolean resuming = false;
+
+    private long resumeSeqNum;
+
+    private final Runnable expirationTask = new Runnable() {
+
+        @Override
+        public void run() {
+            begin();
+            try {
+                if (resuming || pusherState != PusherState.STOPPED) return;
+                awaitingResume = false;
+                log.info("The terminal did not resume its connection within " + resumeTimeout + " ms");
+                uiContext.destroy();
+            } finally {
+                end();
+            }
+        }
+    };
+
     public enum PusherState {
         STOPPED, INITIALIZING, STARTED
     }
@@ -68,7 +116,13 @@ public class PPusher extends PObject implements ConnectionListener {
     private PPusher(final int pollingDelay, final int ping) {
         super();
 
-        this.txnContext = new TxnSocketContext();
+        final ApplicationManagerOption options = UIContext.get().getApplication().getOptions();
+        this.txnContext = new TxnSocketContext(options.getCodec());
+        this.txnContext.setFlushWindow(options.getPushFlushMaxDelay(), TimeUnit.MILLISECONDS, options.getPushFlushMaxBatchSize());
+        this.txnContext.setOutboundQueue(options.getOutboundQueueMaxBytes(), options.getOutboundOverflowPolicy());
+        this.txnContext.setReplayBuffer(options.getReplayBufferSize());
+        this.resumeTimeout = options.getReplayBufferSize() > 0 ? options.getResumeTimeout() : 0;
+        if (resumeTimeout > 0) create.put(PROPERTY.RESUME_TIMEOUT, resumeTimeout);
 
         create.put(PROPERTY.FIXDELAY, pollingDelay);
         create.put(PROPERTY.PINGDELAY, ping);
@@ -79,10 +133,43 @@ public class PPusher extends PObject implements ConnectionListener {
 
     public void initialize(final WebSocket websocket) {
         this.websocket = websocket;
-        this.websocket.addConnectionListener(this);
+        this.websocket.addConnectionListener(new ConnectionListener() {
+
+            @Override
+            public void onOpen() {
+                PPusher.this.onOpen();
+            }
+
+            @Override
+            public void onClose() {
+                // A connection replaced by a resumed one may be closed late
+                if (PPusher.this.websocket == websocket) PPusher.this.onClose();
+            }
+        });
+        this.websocket.addMessageListener(this);
         this.txnContext.setSocket(websocket);
     }
 
+    /**
+     * Attaches the connection of a terminal coming back after a network failure, the frames sent after lastSeqNum
+     * are sent again once the connection is open.
+     * 
+     * @return false if the session cannot be resumed, the terminal has to reload the application
+     */
+    public boolean resume(final WebSocket websocket, final long lastSeqNum) {
+        if (!isResumable() || !txnContext.canResume(lastSeqNum)) return false;
+
+        if (expiration != null) expiration.cancel(false);
+        resuming = true;
+        resumeSeqNum = lastSeqNum;
+        initialize(websocket);
+        return true;
+    }
+
+    public boolean isResumable() {
+        return resumeTimeout > 0;
+    }
+
     public static PPusher initialize(final int pollingDelay, final int ping) {
         if (UIContext.get() == null) throw new RuntimeException("It's not possible to instanciate a pusher in a new Thread.");
         PPusher pusher = UIContext.get().getAttribute(PUSHER);
@@ -118,18 +205,37 @@ public class PPusher extends PObject implements ConnectionListener {
         return uiContext;
     }
 
-    TxnSocketContext getTxContext() {
+    public TxnSocketContext getTxContext() {
         return txnContext;
     }
 
+    /**
+     * @return the frames waiting to be written to the client and their metrics, null if the frames are written
+     *         synchronously
+     */
+    public OutboundQueue getOutboundQueue() {
+        return txnContext.getOutboundQueue();
+    }
+
     public void begin() {
         uiContext.acquire();
         UIContext.setCurrent(uiContext);
     }
 
+    /**
+     * @return false if another thread holds the lock of the screen, {@link #end()} must not be called then
+     */
+    public boolean tryBegin() {
+        if (!uiContext.tryAcquire()) return false;
+        UIContext.setCurrent(uiContext);
+        return true;
+    }
+
     public void end() {
         UIContext.remove();
         uiContext.release();
+        // The connection is waited for outside of the lock, the other tasks of the screen keep running
+        if (!uiContext.isAcquiredByCurrentThread()) txnContext.awaitOutboundQueue();
     }
 
     @Override
@@ -163,8 +269,16 @@ public class PPusher extends PObject implements ConnectionListener {
         listenerCollection.unregister(listener);
     }
 
+    /**
+     * @return true if the pushed data is sent to the terminal, or kept in the replay buffer until the terminal resumes
+     *         its lost connection
+     */
+    private boolean isPushing() {
+        return pusherState == PusherState.STARTED || awaitingResume;
+    }
+
     public void pushBatchToClient(final Collection<Object> collection) {
-        if (pusherState != PusherState.STARTED) {
+        if (!isPushing()) {
             if (log.isDebugEnabled()) log.debug("Pusher not started. Skipping message #" + collection);
             return;
         }
@@ -201,7 +315,7 @@ public class PPusher extends PObject implements ConnectionListener {
     }
 
     public void pushToClient(final Object data) {
-        if (pusherState != PusherState.STARTED) {
+        if (!isPushing()) {
             if (log.isDebugEnabled()) log.debug("Pusher not started. Skipping message #" + data);
             return;
         }
@@ -235,6 +349,9 @@ public class PPusher extends PObject implements ConnectionListener {
 
     @Override
     public void onClose() {
+        if (isResumable()) awaitingResume = true;
+        // Releases the producers waiting for the queue
+        txnContext.close();
         begin();
         try {
             final Txn txn = Txn.get();
@@ -246,6 +363,28 @@ public class PPusher extends PObject implements ConnectionListener {
                 log.error("Cannot process open socket", e);
                 txn.rollback();
             }
+            if (isResumable()) {
+                if (expiration != null) expiration.cancel(false);
+                expiration = resumeTimer.schedule(expirationTask, resumeTimeout, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public void onMessage(final JSONObject message) {
+        begin();
+        try {
+            final Txn txn = Txn.get();
+            txn.begin(txnContext);
+            try {
+                uiContext.fireClientMessage(message);
+                txn.commit();
+            } catch (final Throwable e) {
+                log.error("Cannot process client instruction", e);
+                txn.rollback();
+            }
         } finally {
             end();
         }
@@ -258,6 +397,11 @@ public class PPusher extends PObject implements ConnectionListener {
             final Txn txn = Txn.get();
             txn.begin(txnContext);
             try {
+                if (resuming) {
+                    resuming = false;
+                    awaitingResume = false;
+                    txnContext.resume(resumeSeqNum);
+                }
                 doOpen();
                 txn.commit();
             } catch (final Throwable e) {
@@ -23,8 +23,19 @@
 
 package com.ponysdk.ui.server.basic;
 
+import java.util.Collection;
+import java.util.Collections;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ponysdk.core.instruction.AddHandler;
 import com.ponysdk.core.instruction.Update;
 import com.ponysdk.core.stm.Txn;
+import com.ponysdk.core.tools.ListenerCollection;
+import com.ponysdk.ui.server.basic.event.PScrollEvent;
+import com.ponysdk.ui.server.basic.event.PScrollHandler;
+import com.ponysdk.ui.terminal.Dictionnary.HANDLER;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
 import com.ponysdk.ui.terminal.WidgetType;
 
@@ -33,17 +44,58 @@ import com.ponysdk.ui.terminal.WidgetType;
  */
 public class PScrollPanel extends PSimplePanel {
 
+    private final ListenerCollection<PScrollHandler> scrollHandlers = new ListenerCollection<PScrollHandler>();
+
     @Override
     protected WidgetType getWidgetType() {
         return WidgetType.SCROLL_PANEL;
     }
 
+    @Override
+    public void onClientData(final JSONObject e) throws JSONException {
+        if (e.getString(HANDLER.KEY).equals(HANDLER.KEY_.SCROLL_HANDLER)) {
+            final PScrollEvent event = new PScrollEvent(this, e.getInt(PROPERTY.VERTICAL_SCROLL_POSITION), e.getInt(PROPERTY.OFFSETHEIGHT));
+            for (final PScrollHandler handler : scrollHandlers) {
+                handler.onScroll(event);
+            }
+        } else {
+            super.onClientData(e);
+        }
+    }
+
+    /**
+     * The terminal reports the scroll position at most every 50 ms while scrolling, and the initial viewport when the
+     * first handler is added
+     */
+    public void addScrollHandler(final PScrollHandler handler) {
+        if (scrollHandlers.isEmpty()) {
+            final AddHandler addHandler = new AddHandler(getID(), HANDLER.KEY_.SCROLL_HANDLER);
+            Txn.get().getTxnContext().save(addHandler);
+        }
+
+        scrollHandlers.add(handler);
+    }
+
+    public void removeScrollHandler(final PScrollHandler handler) {
+        scrollHandlers.remove(handler);
+    }
+
+    public Collection<PScrollHandler> getScrollHandlers() {
+        return Collections.unmodifiableCollection(scrollHandlers);
+    }
+
     public void setHorizontalScrollPosition(final int position) {
         final Update update = new Update(ID);
         update.put(PROPERTY.HORIZONTAL_SCROLL_POSITION, position);
         Txn.get().getTxnContext().save(update);
     }
 
+    public void setVerticalScrollPosition(final int position) {
+        final Update update = new Update(ID);
+        update.put(PROPERTY.VERTICAL_SCROLL_POSITION, position);
+        Txn.get().getTxnContext().save(update);
+    }
+
     public void scrollToBottom() {
         scrollTo(0);
     }
@@ -293,9 +293,7 @@ public abstract class PWidget extends PObject implements IsPWidget {
 
     public void addStyleName(final String styleName) {
         if (safeStyleName().add(styleName)) {
-            final Update update = new Update(ID);
-            update.put(PROPERTY.ADD_STYLE_NAME, styleName);
-            Txn.get().getTxnContext().save(update);
+            saveUpdate(PROPERTY.ADD_STYLE_NAME, styleName);
         }
     }
 
@@ -307,9 +305,7 @@ public abstract class PWidget extends PObject implements IsPWidget {
     }
 
     private void removeStyle(final String styleName) {
-        final Update update = new Update(ID);
-        update.put(PROPERTY.REMOVE_STYLE_NAME, styleName);
-        Txn.get().getTxnContext().save(update);
+        saveUpdate(PROPERTY.REMOVE_STYLE_NAME, styleName);
     }
 
     public boolean hasStyleName(final String styleName) {
@@ -477,21 +473,15 @@ public abstract class PWidget extends PObject implements IsPWidget {
     }
 
     protected void saveUpdate(final String key, final boolean value) {
-        final Update update = new Update(getID());
-        update.put(key, value);
-        Txn.get().getTxnContext().save(update);
+        Txn.get().getTxnContext().saveUpdate(ID, key, value);
     }
 
     protected void saveUpdate(final String key, final int value) {
-        final Update update = new Update(getID());
-        update.put(key, value);
-        Txn.get().getTxnContext().save(update);
+        Txn.get().getTxnContext().saveUpdate(ID, key, value);
     }
 
     protected void saveUpdate(final String key, final Object value) {
-        final Update update = new Update(getID());
-        update.put(key, value);
-        Txn.get().getTxnContext().save(update);
+        Txn.get().getTxnContext().saveUpdate(ID, key, value);
     }
 
 }
@@ -173,8 +173,9 @@ public class PWindow extends PObject implements PNativeHandler {
     public void release() {
         try {
             Txn.get().getTxnContext().setCurrentStacker(mainStacker);
+            // The frame of the popup is nested as is in the frame of the opener, it is encoded once
             final Update update = new Update(ID);
-            update.put(PROPERTY.TEXT, out.toString());
+            update.put(PROPERTY.WINDOW_FRAME, out);
             Txn.get().getTxnContext().save(update);
         } finally {
             UIContext.setCurrentWindow(null);
@@ -0,0 +1,320 @@
+
+package com.ponysdk.ui.server.basic;
+
+import java.util.BitSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rows of a {@link PHTMLTable} holding widgets, text cells or styles, ordered by index.
+ * <p>
+ * Treap on implicit keys : a row only knows the number of empty rows preceding it, its index is computed from the
+ * spans of the subtrees on its path to the root. Inserting, removing and looking up a row by index are O(log n) and
+ * the rows are never renumbered, the cells of the widgets keep a reference to their row. Not thread safe, accessed
+ * under the UIContext lock.
+ * </p>
+ */
+class RowTree {
+
+    static class Row {
+
+        TreeMap<Integer, PWidget> cells;
+
+        // Columns of the cells set as text or HTML
+        BitSet texts;
+
+        Set<String> styles;
+
+        private boolean attached;
+
+        // Number of empty rows between the previous row of the tree and this one
+        private int gap;
+
+        // Rows covered by the subtree, including the empty ones
+        private int span;
+
+        // Rows of the subtree holding cells
+        private int cellRows;
+
+        private int priority;
+
+        private Row left;
+
+        private Row right;
+
+        private Row parent;
+
+        boolean hasWidgets() {
+            return cells != null && !cells.isEmpty();
+        }
+
+        boolean hasTexts() {
+            return texts != null && !texts.isEmpty();
+        }
+
+        boolean hasCells() {
+            return hasWidgets() || hasTexts();
+        }
+
+        boolean isEmpty() {
+            return !hasCells() && (styles == null || styles.isEmpty());
+        }
+
+        boolean isAttached() {
+            return attached;
+        }
+    }
+
+    private Row root;
+
+    private int seed = 0x2545F491;
+
+    // Position of the last index searched by ceiling() in the gap of the returned row, the gap length means the row itself
+    private int ceilingOffset;
+
+    /**
+     * @return the row at this index, null if it holds nothing
+     */
+    Row get(final int index) {
+        final Row row = ceiling(index);
+        return row != null && ceilingOffset == row.gap ? row : null;
+    }
+
+    Row getOrCreate(final int index) {
+        final Row next = ceiling(index);
+        if (next != null && ceilingOffset == next.gap) return next;
+
+        final Row row = new Row();
+        row.priority = nextPriority();
+        attach(row, next, index);
+        return row;
+    }
+
+    /**
+     * Moves the row to this index, computed once the row is removed
+     */
+    void move(final Row row, final int index) {
+        delete(row);
+        insert(index);
+        attach(row, ceiling(index), index);
+    }
+
+    /**
+     * Shifts the rows at this index and after by one
+     */
+    void insert(final int index) {
+        final Row next = ceiling(index);
+        if (next == null) return;
+        next.gap++;
+        updatePath(next);
+    }
+
+    /**
+     * Removes the row, the following rows are shifted up by one
+     */
+    void delete(final Row row) {
+        detach(row, row.gap);
+    }
+
+    /**
+     * Removes the row if it holds nothing anymore, the following rows keep their index
+     */
+    void release(final Row row) {
+        if (row.attached && row.isEmpty()) detach(row, row.gap + 1);
+    }
+
+    /**
+     * To be called when the row gets its first cell or loses its last one
+     */
+    void cellsChanged(final Row row) {
+        if (row.attached) updatePath(row);
+    }
+
+    int indexOf(final Row row) {
+        int index = size(row.left) + row.gap;
+        Row child = row;
+        Row parent = row.parent;
+        while (parent != null) {
+            if (parent.right == child) index += size(parent.left) + parent.gap + 1;
+            child = parent;
+            parent = parent.parent;
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the last row holding cells plus one
+     */
+    int getCellRowCount() {
+        if (root == null || root.cellRows == 0) return 0;
+        Row row = root;
+        while (true) {
+            if (row.right != null && row.right.cellRows > 0) row = row.right;
+            else if (row.hasCells()) return indexOf(row) + 1;
+            else row = row.left;
+        }
+    }
+
+    /**
+     * @return the first row, null if the tree is empty
+     */
+    Row first() {
+        if (root == null) return null;
+        Row row = root;
+        while (row.left != null) {
+            row = row.left;
+        }
+        return row;
+    }
+
+    Row next(final Row row) {
+        Row next;
+        if (row.right != null) {
+            next = row.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            return next;
+        }
+        Row child = row;
+        next = row.parent;
+        while (next != null && next.right == child) {
+            child = next;
+            next = next.parent;
+        }
+        return next;
+    }
+
+    // First row whose index is greater than or equal to the given one
+    private Row ceiling(int index) {
+        Row row = root;
+        while (row != null) {
+            final int leftSpan = size(row.left);
+            if (index < leftSpan) {
+                row = row.left;
+                continue;
+            }
+            index -= leftSpan;
+            if (index <= row.gap) {
+                ceilingOffset = index;
+                return row;
+            }
+            index -= row.gap + 1;
+            row = row.right;
+        }
+        return null;
+    }
+
+    // Attaches the row in the empty slot at this index, next being the ceiling of the index
+    private void attach(final Row row, final Row next, final int index) {
+        if (next != null) {
+            row.gap = ceilingOffset;
+            next.gap -= ceilingOffset + 1;
+        } else {
+            row.gap = index - (root == null ? 0 : root.span);
+        }
+        insertBefore(row, next);
+    }
+
+    private void insertBefore(final Row row, final Row next) {
+        row.attached = true;
+        if (root == null) {
+            root = row;
+            update(row);
+            return;
+        }
+
+        Row parent;
+        if (next == null) {
+            parent = root;
+            while (parent.right != null) {
+                parent = parent.right;
+            }
+            parent.right = row;
+        } else if (next.left == null) {
+            parent = next;
+            parent.left = row;
+        } else {
+            parent = next.left;
+            while (parent.right != null) {
+                parent = parent.right;
+            }
+            parent.right = row;
+        }
+        row.parent = parent;
+        updatePath(row);
+
+        while (row.parent != null && row.priority > row.parent.priority) {
+            rotateUp(row);
+        }
+    }
+
+    private void detach(final Row row, final int shift) {
+        final Row next = next(row);
+
+        // Rotates the row down to a leaf
+        while (row.left != null || row.right != null) {
+            if (row.right == null || row.left != null && row.left.priority > row.right.priority) rotateUp(row.left);
+            else rotateUp(row.right);
+        }
+
+        final Row parent = row.parent;
+        if (parent == null) root = null;
+        else if (parent.left == row) parent.left = null;
+        else parent.right = null;
+        row.parent = null;
+        row.attached = false;
+        if (parent != null) updatePath(parent);
+
+        if (next != null) {
+            next.gap += shift;
+            updatePath(next);
+        }
+    }
+
+    private void rotateUp(final Row row) {
+        final Row parent = row.parent;
+        final Row grandParent = parent.parent;
+        if (parent.left == row) {
+            parent.left = row.right;
+            if (row.right != null) row.right.parent = parent;
+            row.right = parent;
+        } else {
+            parent.right = row.left;
+            if (row.left != null) row.left.parent = parent;
+            row.left = parent;
+        }
+        parent.parent = row;
+        row.parent = grandParent;
+        if (grandParent == null) root = row;
+        else if (grandParent.left == parent) grandParent.left = row;
+        else grandParent.right = row;
+        update(parent);
+        update(row);
+    }
+
+    private void updatePath(Row row) {
+        while (row != null) {
+            update(row);
+            row = row.parent;
+        }
+    }
+
+    private static void update(final Row row) {
+        row.span = size(row.left) + row.gap + 1 + size(row.right);
+        row.cellRows = (row.left != null ? row.left.cellRows : 0) + (row.hasCells() ? 1 : 0) + (row.right != null ? row.right.cellRows : 0);
+    }
+
+    private static int size(final Row row) {
+        return row == null ? 0 : row.span;
+    }
+
+    // xorshift, the priorities only need to be spread
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+}
@@ -0,0 +1,40 @@
+
+package com.ponysdk.ui.server.basic.event;
+
+import com.ponysdk.core.event.Event;
+
+public class PScrollEvent extends Event<PScrollHandler> {
+
+    public static final Type<PScrollHandler> TYPE = new Type<PScrollHandler>();
+
+    private final int verticalScrollPosition;
+    private final int offsetHeight;
+
+    public PScrollEvent(final Object sourceComponent, final int verticalScrollPosition, final int offsetHeight) {
+        super(sourceComponent);
+        this.verticalScrollPosition = verticalScrollPosition;
+        this.offsetHeight = offsetHeight;
+    }
+
+    @Override
+    public Type<PScrollHandler> getAssociatedType() {
+        return TYPE;
+    }
+
+    @Override
+    protected void dispatch(final PScrollHandler handler) {
+        handler.onScroll(this);
+    }
+
+    public int getVerticalScrollPosition() {
+        return verticalScrollPosition;
+    }
+
+    /**
+     * @return the height of the visible area in pixels
+     */
+    public int getOffsetHeight() {
+        return offsetHeight;
+    }
+
+}
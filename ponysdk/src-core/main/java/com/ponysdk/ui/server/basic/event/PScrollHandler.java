@@ -0,0 +1,9 @@
+
+package com.ponysdk.ui.server.basic.event;
+
+import com.ponysdk.core.event.EventHandler;
+
+public interface PScrollHandler extends EventHandler {
+
+    void onScroll(PScrollEvent event);
+}
@@ -24,15 +24,18 @@
 package com.ponysdk.ui.server.list2;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.ponysdk.core.tools.Objects;
 import com.ponysdk.impl.theme.PonySDKTheme;
 import com.ponysdk.ui.server.basic.IsPWidget;
 import com.ponysdk.ui.server.basic.PSimplePanel;
 import com.ponysdk.ui.server.basic.PWidget;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
 
 /***
  * A Grid of data that supports paging and columns.
@@ -49,6 +52,7 @@ public class DataGridActivity<D> implements HasPData<D>, IsPWidget {
     private int colCount = 0;
     protected final List<D> rows = new ArrayList<D>();
     protected int dataCount = 0;
+    private ValueProvider<D, ?> keyProvider;
 
     public DataGridActivity(final SimpleListView listView) {
         this.view = listView;
@@ -69,14 +73,38 @@ public class DataGridActivity<D> implements HasPData<D>, IsPWidget {
         view.addHeaderStyle(PonySDKTheme.COMPLEXLIST_COLUMNHEADER_COMPLEX);
     }
 
+    /**
+     * @return true if the cells of the column are rendered as light cells, the view must be a
+     *         {@link LightCellListView}
+     */
+    protected boolean isLight(final DataGridColumnDescriptor<D, ?> columnDescriptor) {
+        return columnDescriptor.isLight() && view instanceof LightCellListView;
+    }
+
+    protected void setRowHTML(final int row, final int column, final String[] html) {
+        ((LightCellListView) view).setRowHTML(row, column, html);
+    }
+
     public void setData(final int row, final D data) {
         int col = 0;
+        String[] html = null;
 
         for (final DataGridColumnDescriptor<D, ?> field : columnDescriptors) {
-            final IsPWidget renderCell = field.renderCell(row, data);
-            view.addWidget(renderCell, col++, row + 1, 1);
+            if (isLight(field)) {
+                // The light cells of the row are sent together
+                if (html == null) html = new String[columnDescriptors.size() + 1];
+                html[col++] = field.renderCellHTML(data);
+            } else {
+                final IsPWidget renderCell = field.renderCell(row, data);
+                view.addWidget(renderCell, col++, row + 1, 1);
+            }
+        }
+        if (html != null) {
+            html[col] = "";
+            setRowHTML(row + 1, 0, html);
+        } else {
+            view.addWidget(new PSimplePanel(), col, row + 1, 1);
         }
-        view.addWidget(new PSimplePanel(), col, row + 1, 1);
         view.addRowStyle(row + 1, PonySDKTheme.SIMPLELIST_ROW);
     }
 
@@ -212,8 +240,29 @@ public class DataGridActivity<D> implements HasPData<D>, IsPWidget {
         return rows.indexOf(data);
     }
 
+    /**
+     * With a key provider, {@link #setData(List)} reconciles the rows by key instead of rendering all of them again :
+     * the rows of the keys gone are removed, the rows of the new keys are inserted, the rows out of order are moved
+     * and only the cells whose value changed are rendered again. The rows of a longest increasing subsequence of
+     * their previous positions are not moved. The values are compared with the ones of the previous data of the key,
+     * the data mutated in place are then not rendered again.
+     */
+    public void setKeyProvider(final ValueProvider<D, ?> keyProvider) {
+        this.keyProvider = keyProvider;
+    }
+
+    public ValueProvider<D, ?> getKeyProvider() {
+        return keyProvider;
+    }
+
     @Override
     public void setData(final List<D> data) {
+        // The sub lists and the inserted rows have no key
+        if (keyProvider != null && subListSizeByFather.isEmpty() && dataCount == rows.size()) {
+            reconcile(data);
+            return;
+        }
+
         rows.clear();
 
         rows.addAll(data);
@@ -228,6 +277,212 @@ public class DataGridActivity<D> implements HasPData<D>, IsPWidget {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void reconcile(final List<D> data) {
+        final int size = data.size();
+        final Map<Object, Integer> indexByKey = new HashMap<Object, Integer>();
+        for (int i = 0; i < size; i++) {
+            final Object key = keyProvider.getValue(data.get(i));
+            if (indexByKey.put(key, i) != null) throw new IllegalArgumentException("Duplicate key: " + key);
+        }
+
+        // Removes the rows of the keys gone, positions holds the new indexes of the rows kept in their previous order
+        final int[] newIndexes = new int[rows.size()];
+        int kept = 0;
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            final Integer index = indexByKey.get(keyProvider.getValue(rows.get(i)));
+            if (index == null) view.removeRow(i + 1);
+            newIndexes[i] = index == null ? -1 : index;
+            if (index != null) kept++;
+        }
+        final Object[] previous = new Object[size];
+        final int[] positions = new int[kept];
+        kept = 0;
+        for (int i = 0; i < newIndexes.length; i++) {
+            if (newIndexes[i] == -1) continue;
+            positions[kept++] = newIndexes[i];
+            previous[newIndexes[i]] = rows.get(i);
+        }
+
+        final boolean[] stable = new boolean[size];
+        final boolean[] inSubsequence = longestIncreasingSubsequence(positions);
+        for (int i = 0; i < positions.length; i++) {
+            stable[positions[i]] = inSubsequence[i];
+        }
+
+        // From the last row, each row is placed before the row following it in the new order, the current index of a
+        // row is read from the slots of the view
+        final RowSlots slots = new RowSlots(positions, stable);
+        for (int i = size - 1; i >= 0; i--) {
+            if (stable[i]) continue;
+            if (previous[i] == null) {
+                final int to = i == size - 1 ? slots.count() : slots.indexOf(i + 1);
+                if (to < slots.count()) view.insertRow(to + 1);
+                slots.place(i);
+                setData(to, data.get(i));
+            } else {
+                final int from = slots.indexOf(i);
+                slots.remove(i);
+                final int to = i == size - 1 ? slots.count() : slots.indexOf(i + 1);
+                if (from != to) view.moveRow(from + 1, to + 1);
+                slots.place(i);
+            }
+        }
+
+        // The rows are now in the new order
+        rows.clear();
+        rows.addAll(data);
+        for (int i = 0; i < size; i++) {
+            if (previous[i] != null) updateRow(i, (D) previous[i], data.get(i));
+        }
+        dataCount = size;
+    }
+
+    /**
+     * Order of the rows of the view during a reconciliation, the rows being identified by their new index.
+     * <p>
+     * Each row has a slot in a static order consistent with every intermediate state of the view : the rows not moved
+     * yet keep their slot between the stable rows (the rows of the longest increasing subsequence) in their previous
+     * order, a placed row gets a slot right before the row following it in the new order. The slots are grouped by the
+     * next stable row, the rows not moved yet come first in a group, then the placed rows, then the stable row. The
+     * index of a row in the view is the number of occupied slots before its own, counted with a Fenwick tree, a move
+     * is O(log n) instead of a search and a shift of the rows.
+     * </p>
+     */
+    private static class RowSlots {
+
+        private final int size;
+
+        // Sorted slot keys, a key being (group, tier, order)
+        private final long[] keys;
+
+        private final int[] tree;
+
+        // Slot of each row, by new index
+        private final int[] slots;
+
+        // Slot the row gets once placed, by new index
+        private final int[] placedSlots;
+
+        private int count;
+
+        RowSlots(final int[] positions, final boolean[] stable) {
+            this.size = stable.length;
+            this.slots = new int[size];
+            this.placedSlots = new int[size];
+
+            final long[] initialKeys = new long[positions.length];
+            final long[] placedKeys = new long[size];
+            int placedCount = 0;
+            int group = size;
+            for (int i = positions.length - 1; i >= 0; i--) {
+                if (stable[positions[i]]) group = positions[i];
+                initialKeys[i] = key(group, stable[positions[i]] ? 2 : 0, i);
+            }
+            group = size;
+            for (int i = size - 1; i >= 0; i--) {
+                if (stable[i]) group = i;
+                else placedKeys[placedCount++] = key(group, 1, i);
+            }
+
+            keys = new long[initialKeys.length + placedCount];
+            System.arraycopy(initialKeys, 0, keys, 0, initialKeys.length);
+            System.arraycopy(placedKeys, 0, keys, initialKeys.length, placedCount);
+            Arrays.sort(keys);
+            tree = new int[keys.length + 1];
+
+            group = size;
+            for (int i = size - 1; i >= 0; i--) {
+                if (stable[i]) group = i;
+                else placedSlots[i] = slot(key(group, 1, i));
+            }
+            for (int i = 0; i < positions.length; i++) {
+                slots[positions[i]] = slot(initialKeys[i]);
+                add(slots[positions[i]], 1);
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        int indexOf(final int row) {
+            int index = 0;
+            for (int i = slots[row]; i > 0; i -= i & -i) {
+                index += tree[i];
+            }
+            return index;
+        }
+
+        void remove(final int row) {
+            add(slots[row], -1);
+        }
+
+        void place(final int row) {
+            slots[row] = placedSlots[row];
+            add(slots[row], 1);
+        }
+
+        private void add(final int slot, final int delta) {
+            count += delta;
+            for (int i = slot + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        private int slot(final long key) {
+            return Arrays.binarySearch(keys, key);
+        }
+
+        private long key(final int group, final int tier, final int order) {
+            return ((long) group * 3 + tier) * (size + 1) + order;
+        }
+    }
+
+    private void updateRow(final int row, final D previous, final D data) {
+        int col = 0;
+        String[] html = null;
+        for (final DataGridColumnDescriptor<D, ?> field : columnDescriptors) {
+            final ValueProvider<D, ?> valueProvider = field.getValueProvider();
+            if (!Objects.equals(valueProvider.getValue(previous), valueProvider.getValue(data))) {
+                if (isLight(field)) {
+                    if (html == null) html = new String[columnDescriptors.size()];
+                    html[col] = field.renderCellHTML(data);
+                } else {
+                    view.addWidget(field.renderCell(row, data), col, row + 1, 1);
+                }
+            }
+            col++;
+        }
+        if (html != null) setRowHTML(row + 1, 0, html);
+    }
+
+    // Marks the elements of a longest strictly increasing subsequence, O(n log n)
+    private static boolean[] longestIncreasingSubsequence(final int[] values) {
+        // Index of the last element of the best subsequence found for each length
+        final int[] tails = new int[values.length];
+        final int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) low = middle + 1;
+                else high = middle;
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) length++;
+        }
+
+        final boolean[] marked = new boolean[values.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            marked[i] = true;
+        }
+        return marked;
+    }
+
     public void addData(final D data) {
         insertData(getVisibleItemCount(), data);
     }
@@ -26,6 +26,7 @@ package com.ponysdk.ui.server.list2;
 import com.google.gwt.user.cellview.client.DataGrid;
 import com.ponysdk.ui.server.basic.IsPWidget;
 import com.ponysdk.ui.server.list2.renderer.cell.CellRenderer;
+import com.ponysdk.ui.server.list2.renderer.cell.TextCellRenderer;
 import com.ponysdk.ui.server.list2.renderer.header.HeaderCellRenderer;
 import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
 
@@ -80,6 +81,25 @@ public class DataGridColumnDescriptor<D, V> {
         return cellRenderer.render(row, valueProvider.getValue(data));
     }
 
+    /**
+     * @return true if the cells are rendered as light cells with {@link #renderCellHTML(Object)}, without widget, in a
+     *         {@link LightCellListView}
+     */
+    public boolean isLight() {
+        return cellRenderer instanceof TextCellRenderer;
+    }
+
+    public String renderCellHTML(final D data) {
+        if (valueProvider == null) throw new IllegalArgumentException("ValueProvider is required");
+        return renderHTML(valueProvider.getValue(data));
+    }
+
+    @SuppressWarnings("unchecked")
+    public String renderHTML(final V value) {
+        if (!isLight()) throw new IllegalArgumentException("TextCellRenderer is required");
+        return ((TextCellRenderer<V>) cellRenderer).renderHTML(value);
+    }
+
     public IsPWidget renderSubCell(final int row, final D data) {
         if (subCellRenderer == null) throw new IllegalArgumentException("SubCellRenderer is required");
         if (valueProvider == null) throw new IllegalArgumentException("ValueProvider is required");
@@ -37,9 +37,9 @@ import com.ponysdk.ui.server.basic.event.PClickHandler;
 import com.ponysdk.ui.terminal.basic.PHorizontalAlignment;
 import com.ponysdk.ui.terminal.basic.PVerticalAlignment;
 
-public class DefaultComplexListView extends PVerticalPanel implements ComplexListView {
+public class DefaultComplexListView extends PVerticalPanel implements ComplexListView, LightCellListView {
 
-    private final SimpleListView simpleListView = new DefaultSimpleListView();
+    private final DefaultSimpleListView simpleListView = new DefaultSimpleListView();
 
     private final PSimplePanel inputLayout = new PSimplePanel();
 
@@ -147,6 +147,11 @@ public class DefaultComplexListView extends PVerticalPanel implements ComplexLis
         simpleListView.addWidget(component, column, row, colspan);
     }
 
+    @Override
+    public void setRowHTML(final int row, final int column, final String... html) {
+        simpleListView.setRowHTML(row, column, html);
+    }
+
     @Override
     public PToolbar getToolbarLayout() {
         return toolbarLayout;
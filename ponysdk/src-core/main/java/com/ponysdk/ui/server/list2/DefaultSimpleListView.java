@@ -27,7 +27,7 @@ import com.ponysdk.impl.theme.PonySDKTheme;
 import com.ponysdk.ui.server.basic.IsPWidget;
 import com.ponysdk.ui.server.basic.PFlexTable;
 
-public class DefaultSimpleListView extends PFlexTable implements SimpleListView {
+public class DefaultSimpleListView extends PFlexTable implements LightCellListView {
 
     public DefaultSimpleListView() {
         super();
@@ -109,9 +109,6 @@ public class DefaultSimpleListView extends PFlexTable implements SimpleListView
         getColumnFormatter().setWidth(column, width);
     }
 
-    @Override
-    public void moveRow(final int index, final int beforeIndex) {}
-
     @Override
     public void moveColumn(final int index, final int beforeIndex) {}
 
@@ -0,0 +1,17 @@
+
+package com.ponysdk.ui.server.list2;
+
+/**
+ * A {@link SimpleListView} supporting light cells : cells holding text or HTML without any widget. The grids render
+ * the columns of a {@link com.ponysdk.ui.server.list2.renderer.cell.TextCellRenderer} as light cells in such views,
+ * as widgets in the others.
+ */
+public interface LightCellListView extends SimpleListView {
+
+    /**
+     * Sets the HTML of the light cells of the row starting at this column, the cells of the null fragments are left
+     * as is
+     */
+    void setRowHTML(int row, int column, String... html);
+
+}
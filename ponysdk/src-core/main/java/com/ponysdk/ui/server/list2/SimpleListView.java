@@ -57,6 +57,9 @@ public interface SimpleListView extends IsPWidget {
 
     void removeCellStyle(int row, int column, String styleName);
 
+    /**
+     * Moves the row with its cells and styles, the row is then at beforeIndex
+     */
     void moveRow(final int index, final int beforeIndex);
 
     void moveColumn(final int index, final int beforeIndex);
@@ -11,6 +11,10 @@ public class Cell<D, W extends IsPWidget> {
     private int row;
     private int col;
 
+    private RowIndex rowIndex;
+    private int handle;
+    private int valueHash;
+
     public void setW(final W w) {
         this.w = w;
     }
@@ -44,9 +48,26 @@ public class Cell<D, W extends IsPWidget> {
     }
 
     public int getRow() {
+        if (rowIndex != null) return rowIndex.indexOf(handle);
         return row;
     }
 
+    int getValueHash() {
+        return valueHash;
+    }
+
+    void setValueHash(final int valueHash) {
+        this.valueHash = valueHash;
+    }
+
+    /**
+     * The row of the cell is then computed from its handle, it follows the moves of the row
+     */
+    void setHandle(final RowIndex rowIndex, final int handle) {
+        this.rowIndex = rowIndex;
+        this.handle = handle;
+    }
+
     public int getCol() {
         return col;
     }
@@ -21,16 +21,24 @@
  * the License.
  */
 
+
 package com.ponysdk.ui.server.list2.refreshable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.concurrent.UIScheduledThreadPoolExecutor;
 import com.ponysdk.impl.theme.PonySDKTheme;
 import com.ponysdk.ui.server.basic.IsPWidget;
 import com.ponysdk.ui.server.basic.PSimplePanel;
@@ -38,20 +46,60 @@ import com.ponysdk.ui.server.basic.PWidget;
 import com.ponysdk.ui.server.list2.DataGridActivity;
 import com.ponysdk.ui.server.list2.DataGridColumnDescriptor;
 import com.ponysdk.ui.server.list2.SimpleListView;
+import com.ponysdk.ui.server.list2.renderer.cell.TextCellRenderer;
 
 /**
  * Extends {@link DataGridActivity} Capable of moving columns and refreshing a set of rows instead of always
  * refreshing the entire grid
+ * <p>
+ * The rows are int handles ordered by a {@link RowIndex}, the keys, the data and the cells of each column are stored
+ * in arrays indexed by handle. Updating a row by key is O(1), inserting, removing or moving a row is O(log n) and
+ * never renumbers the other rows.
+ * </p>
+ * <p>
+ * The cells of the columns having an equality or a hash function (see
+ * {@link RefreshableDataGridColumnDescriptor#setEquality}) are only updated when their value changed. With a
+ * conflation period, the updates of the existing rows are only recorded and the rows updated since the last flush are
+ * refreshed together once per period, with their last data.
+ * </p>
+ * <p>
+ * The cells of the columns rendered by a {@link TextCellRenderer} are light cells without widget, the light cells of
+ * a row are added and updated with a single instruction.
+ * </p>
  * 
  * @param <K>
  * @param <D>
  */
 public class RefreshableDataGrid<K, D> extends DataGridActivity<D> {
 
-    protected final Map<K, Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>>> cells = new HashMap<K, Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>>>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<K, Integer> handleByKey = new HashMap<K, Integer>();
+
+    private final RowIndex rowIndex = new RowIndex(INITIAL_CAPACITY);
+
+    // Null for the rows inserted with insertRow()
+    private Object[] keyByHandle = new Object[INITIAL_CAPACITY];
+
+    private Object[] dataByHandle = new Object[INITIAL_CAPACITY];
+
+    private final List<Cell<D, ?>[]> cellsByColumn = new ArrayList<Cell<D, ?>[]>();
+
+    // Handles of the rows updated since the last flush
+    private final BitSet dirtyRows = new BitSet();
+
+    private long conflationPeriod;
+
+    private ScheduledFuture<?> flushFuture;
+
+    private final Runnable flushTask = new Runnable() {
 
-    protected final List<K> keyByIndex = new ArrayList<K>();
-    protected final Map<K, D> valueByKey = new HashMap<K, D>();
+        @Override
+        public void run() {
+            flushFuture = null;
+            flush();
+        }
+    };
 
     public RefreshableDataGrid(final SimpleListView listView) {
         super(listView);
@@ -62,8 +110,11 @@ public class RefreshableDataGrid<K, D> extends DataGridActivity<D> {
         throw new IllegalArgumentException("use RefreshableDataGridColumnDescriptor instead of DataGridColumnDescriptor");
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void addDataGridColumnDescriptor(final RefreshableDataGridColumnDescriptor<D, ?, ?> columnDescriptor) {
         super.addDataGridColumnDescriptor(columnDescriptor);
+        // Sized as the other per handle arrays, they all grow together
+        cellsByColumn.add(new Cell[keyByHandle.length]);
     }
 
     @Override
@@ -76,125 +127,198 @@ public class RefreshableDataGrid<K, D> extends DataGridActivity<D> {
         throw new RuntimeException("Use setData(key, data)");
     }
 
+    @Override
+    public void insertData(final int index, final D data) {
+        throw new RuntimeException("Use setData(key, data)");
+    }
+
     @Override
     public void remove(final D data) {
         throw new RuntimeException("Use removeByKey(key)");
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void setData(final K key, final D data) {
-        Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> map = cells.get(key);
-        if (map == null) {
-            final int row = getRowCount();
-            map = new HashMap<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>>();
-            cells.put(key, map);
-            keyByIndex.add(key);
-
-            rows.add(data);
-            dataCount++;
-
-            valueByKey.put(key, data);
-
-            int col = 0;
-
-            for (final DataGridColumnDescriptor descriptor : columnDescriptors) {
-                final RefreshableDataGridColumnDescriptor d = (RefreshableDataGridColumnDescriptor) descriptor;
-                final Cell cell = new Cell();
-                cell.setCol(col++);
-                cell.setData(data);
-                cell.setRow(row);
-                cell.setValue(d.getValueProvider().getValue(data));
-                cell.setW(d.getCellRenderer().render(row, cell.getValue()));
-                map.put(d, cell);
-                view.addWidget(cell.getW(), cell.getCol(), cell.getRow() + 1, 1);
-            }
-            view.addWidget(new PSimplePanel(), col, row + 1, 1);
-            view.addRowStyle(row + 1, PonySDKTheme.SIMPLELIST_ROW);
+        final Integer handle = handleByKey.get(key);
+        if (handle == null) addRow(key, data);
+        else setRowData(handle, data);
+    }
 
-        } else {
+    /**
+     * Applies the updates in one pass : the rows of the known keys are refreshed, the other ones are added at the end
+     * in the iteration order of the map
+     */
+    public void setData(final Map<K, D> data) {
+        ensureCapacity(rowIndex.size() + data.size());
+        for (final Entry<K, D> entry : data.entrySet()) {
+            final Integer handle = handleByKey.get(entry.getKey());
+            if (handle == null) addRow(entry.getKey(), entry.getValue());
+            else setRowData(handle, entry.getValue());
+        }
+    }
 
-            final D previousData = valueByKey.remove(key);
-            final int previousIndex = rows.indexOf(previousData);
-            rows.remove(previousIndex);
-            rows.add(previousIndex, data);
-            valueByKey.put(key, data);
-
-            for (final DataGridColumnDescriptor<D, ?> descriptor : columnDescriptors) {
-                final RefreshableDataGridColumnDescriptor d = (RefreshableDataGridColumnDescriptor) descriptor;
-                final Object value = d.getValueProvider().getValue(data);
-                d.getCellRenderer().update(value, map.get(d));
-                map.get(d).setData(data);
-                map.get(d).setValue(value);
+    /**
+     * The updates of the existing rows are conflated : only the last data of each row is rendered, once per period.
+     * The additions, removals and moves are still applied immediately. A period of 0 disables the conflation and
+     * flushes the pending updates. The updates are applied immediately when no flush can be scheduled, without
+     * {@link UIScheduledThreadPoolExecutor} or {@link com.ponysdk.ui.server.basic.PPusher}.
+     */
+    public void setConflationPeriod(final long period, final TimeUnit unit) {
+        if (period < 0) throw new IllegalArgumentException("period (" + period + ") < 0");
+        conflationPeriod = unit.toMillis(period);
+        if (conflationPeriod == 0) {
+            if (flushFuture != null) {
+                flushFuture.cancel(false);
+                flushFuture = null;
             }
+            flush();
         }
     }
 
-    public void removeByKey(final K key) {
-        final D removed = valueByKey.get(key);
-        if (removed != null) {
-            super.remove(removed);
+    public long getConflationPeriod() {
+        return conflationPeriod;
+    }
+
+    /**
+     * Refreshes now the rows updated since the last flush
+     */
+    public void flush() {
+        for (int handle = dirtyRows.nextSetBit(0); handle >= 0; handle = dirtyRows.nextSetBit(handle + 1)) {
+            updateRow(handle);
         }
+        dirtyRows.clear();
     }
 
-    @Override
-    public void remove(final int index) {
-        super.remove(index);
+    private void setRowData(final int handle, final D data) {
+        dataByHandle[handle] = data;
+        if (conflationPeriod == 0) {
+            updateRow(handle);
+            return;
+        }
+        dirtyRows.set(handle);
+        if (flushFuture != null) return;
+
+        final UIScheduledThreadPoolExecutor executor = UIScheduledThreadPoolExecutor.get();
+        final UIContext uiContext = UIContext.get();
+        if (executor == null || uiContext == null || uiContext.getPusher() == null) {
+            // No flush can be scheduled, the updates are not conflated
+            flush();
+            return;
+        }
+        flushFuture = executor.schedule(flushTask, conflationPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void addRow(final K key, final D data) {
+        final int row = getRowCount();
+        final int handle = rowIndex.add(row);
+        ensureCapacity(rowIndex.capacity());
+        handleByKey.put(key, handle);
+        keyByHandle[handle] = key;
+        dataByHandle[handle] = data;
+        dataCount++;
+
+        int col = 0;
+        String[] html = null;
+
+        for (final DataGridColumnDescriptor descriptor : columnDescriptors) {
+            final RefreshableDataGridColumnDescriptor d = (RefreshableDataGridColumnDescriptor) descriptor;
+            final Cell cell = new Cell();
+            cell.setCol(col);
+            cell.setData(data);
+            cell.setRow(row);
+            cell.setHandle(rowIndex, handle);
+            cell.setValue(d.getValueProvider().getValue(data));
+            cell.setValueHash(d.hash(cell.getValue()));
+            cellsByColumn.get(col++)[handle] = cell;
+            if (isLight(d)) {
+                if (html == null) html = new String[columnDescriptors.size() + 1];
+                html[cell.getCol()] = d.renderHTML(cell.getValue());
+            } else {
+                cell.setW(d.getCellRenderer().render(row, cell.getValue()));
+                view.addWidget(cell.getW(), cell.getCol(), row + 1, 1);
+            }
+        }
+        if (html != null) {
+            html[col] = "";
+            setRowHTML(row + 1, 0, html);
+        } else {
+            view.addWidget(new PSimplePanel(), col, row + 1, 1);
+        }
+        view.addRowStyle(row + 1, PonySDKTheme.SIMPLELIST_ROW);
+    }
 
-        final K k = keyByIndex.remove(index);
-        if (k != null) {
-            valueByKey.remove(k);
-            cells.remove(k);
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void updateRow(final int handle) {
+        final D data = (D) dataByHandle[handle];
+
+        int col = 0;
+        String[] html = null;
+        for (final DataGridColumnDescriptor<D, ?> descriptor : columnDescriptors) {
+            final RefreshableDataGridColumnDescriptor d = (RefreshableDataGridColumnDescriptor) descriptor;
+            final Cell cell = cellsByColumn.get(col++)[handle];
+            // Column added after the row
+            if (cell == null) continue;
+            final Object value = d.getValueProvider().getValue(data);
+            if (d.refresh(cell, value) && isLight(d)) {
+                if (html == null) html = new String[columnDescriptors.size()];
+                html[cell.getCol()] = d.renderHTML(value);
+            }
+            cell.setData(data);
         }
+        if (html != null) setRowHTML(rowIndex.indexOf(handle) + 1, 0, html);
+    }
 
-        updateRowIndex(index);
+    public void removeByKey(final K key) {
+        final Integer handle = handleByKey.get(key);
+        if (handle != null) {
+            remove(rowIndex.indexOf(handle));
+        }
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    protected void updateRowIndex(final int min) {
-        // update model
-        for (int i = min; i < rows.size(); i++) {
-            final K k = keyByIndex.get(i);
-            if (k != null) {
-                final Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> cellRow = cells.get(k);
-                final Iterator<Entry<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>>> iter = cellRow.entrySet().iterator();
-                final int realRow = i;
-                while (iter.hasNext()) {
-                    final Entry<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> entry = iter.next();
-                    entry.getValue().setRow(realRow);
-                }
-            }
+    public void remove(final int index) {
+        final int handle = rowIndex.get(index);
+        view.removeRow(index + 1);
+        rowIndex.remove(handle);
+        dirtyRows.clear(handle);
+
+        if (dataByHandle[handle] != null) dataCount--;
+        final K k = (K) keyByHandle[handle];
+        if (k != null) handleByKey.remove(k);
+        keyByHandle[handle] = null;
+        dataByHandle[handle] = null;
+        for (final Cell<D, ?>[] cells : cellsByColumn) {
+            final Cell<D, ?> cell = cells[handle];
+            if (cell == null) continue;
+            cell.setRow(index);
+            cell.setHandle(null, RowIndex.NONE);
+            cells[handle] = null;
         }
     }
 
     @Override
     public void insertRow(final int row, final int column, final int colSpan, final PWidget widget) {
-        keyByIndex.add(row, null);
-        super.insertRow(row, column, colSpan, widget);
+        if (row > getRowCount() + 1) throw new IndexOutOfBoundsException("row (" + row + ") > size (" + getRowCount() + ")");
+
+        rowIndex.add(row);
+        ensureCapacity(rowIndex.capacity());
+
+        view.insertRow((row + 1));
+        view.addWidget(widget, column, (row + 1), colSpan);
     }
 
     public void moveRow(final K key, final int beforeIndex) {
-        final Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> map = cells.get(key);
-        if (map == null) throw new IndexOutOfBoundsException("cell not found");
+        final Integer handle = handleByKey.get(key);
+        if (handle == null) throw new IndexOutOfBoundsException("cell not found");
 
-        final Cell<D, ?> cell = map.entrySet().iterator().next().getValue();
-        final int realRow = cell.getRow();
+        final int realRow = rowIndex.indexOf(handle);
 
         if (realRow == beforeIndex) return;
 
         view.moveRow((realRow + 1), (beforeIndex + 1));
 
-        final D data = valueByKey.get(key);
-        final int row = getDataIndex(data);
-
-        keyByIndex.remove(row);
-        keyByIndex.add(beforeIndex, key);
-
-        // permutation
-        rows.remove(row);
-        rows.add(beforeIndex, cell.getData());
-
-        final int min = Math.min(row, beforeIndex);
-        updateRowIndex(min);
+        rowIndex.move(handle, beforeIndex);
     }
 
     public void moveColumn(final int index, final int beforeIndex) {
@@ -202,34 +326,122 @@ public class RefreshableDataGrid<K, D> extends DataGridActivity<D> {
     }
 
     public int getRow(final K key) {
-        final Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> map = cells.get(key);
-        if (map == null) return -1;
-        return map.entrySet().iterator().next().getValue().getRow();
+        final Integer handle = handleByKey.get(key);
+        if (handle == null) return -1;
+        return rowIndex.indexOf(handle);
     }
 
+    /**
+     * @return the cells of the column in row order, the light cells have no widget
+     */
     @SuppressWarnings("unchecked")
     public <W extends IsPWidget> Collection<Cell<D, W>> getColumn(final RefreshableDataGridColumnDescriptor<D, ?, W> descriptor) {
         final List<Cell<D, W>> c = new ArrayList<Cell<D, W>>();
-        final Collection<Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>>> values = cells.values();
-        for (final Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> map : values) {
-            final Cell<D, W> cell = (Cell<D, W>) map.get(descriptor);
+        final int col = columnDescriptors.indexOf(descriptor);
+        if (col == -1) return c;
+
+        final Cell<D, ?>[] cells = cellsByColumn.get(col);
+        for (int handle = rowIndex.first(); handle != RowIndex.NONE; handle = rowIndex.next(handle)) {
+            final Cell<D, W> cell = (Cell<D, W>) cells[handle];
             if (cell != null) c.add(cell);
         }
         return c;
     }
 
+    @SuppressWarnings("unchecked")
     public D getData(final K key) {
-        final Map<RefreshableDataGridColumnDescriptor<K, D, ?>, Cell<D, ?>> map = cells.get(key);
-        if (map == null) return null;
-        return map.entrySet().iterator().next().getValue().getData();
+        final Integer handle = handleByKey.get(key);
+        if (handle == null) return null;
+        return (D) dataByHandle[handle];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public D getVisibleItem(final int indexOnPage) {
+        return (D) dataByHandle[rowIndex.get(indexOnPage)];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowIndex.size();
+    }
+
+    @Override
+    public int getDataIndex(final D data) {
+        int index = 0;
+        for (int handle = rowIndex.first(); handle != RowIndex.NONE; handle = rowIndex.next(handle)) {
+            if (data == null ? dataByHandle[handle] == null : data.equals(dataByHandle[handle])) return index;
+            index++;
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterable<D> getVisibleItems() {
+        return new Iterable<D>() {
+
+            @Override
+            public Iterator<D> iterator() {
+                return new Iterator<D>() {
+
+                    private int next = skipInsertedRows(rowIndex.first());
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != RowIndex.NONE;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public D next() {
+                        if (next == RowIndex.NONE) throw new NoSuchElementException();
+                        final D data = (D) dataByHandle[next];
+                        next = skipInsertedRows(rowIndex.next(next));
+                        return data;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new IllegalAccessError("Not implemented");
+                    }
+                };
+            }
+        };
+    }
+
+    private int skipInsertedRows(int handle) {
+        while (handle != RowIndex.NONE && dataByHandle[handle] == null) {
+            handle = rowIndex.next(handle);
+        }
+        return handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= keyByHandle.length) return;
+        int length = keyByHandle.length;
+        while (length < capacity) {
+            length <<= 1;
+        }
+        keyByHandle = Arrays.copyOf(keyByHandle, length);
+        dataByHandle = Arrays.copyOf(dataByHandle, length);
+        for (int col = 0; col < cellsByColumn.size(); col++) {
+            cellsByColumn.set(col, Arrays.copyOf(cellsByColumn.get(col), length));
+        }
     }
 
     @Override
     public void clear() {
         view.clear(1);
-        cells.clear();
-        keyByIndex.clear();
-        valueByKey.clear();
+        handleByKey.clear();
+        rowIndex.clear();
+        dirtyRows.clear();
+        Arrays.fill(keyByHandle, null);
+        Arrays.fill(dataByHandle, null);
+        for (final Cell<D, ?>[] cells : cellsByColumn) {
+            Arrays.fill(cells, null);
+        }
+        dataCount = 0;
     }
 
 }
@@ -23,12 +23,55 @@
 
 package com.ponysdk.ui.server.list2.refreshable;
 
+import com.ponysdk.core.tools.Objects;
 import com.ponysdk.ui.server.basic.IsPWidget;
 import com.ponysdk.ui.server.list2.DataGridColumnDescriptor;
 import com.ponysdk.ui.server.list2.renderer.cell.CellRenderer;
 
 public class RefreshableDataGridColumnDescriptor<D, V, W extends IsPWidget> extends DataGridColumnDescriptor<D, V> {
 
+    public interface Equality<V> {
+
+        boolean isEqual(V previous, V value);
+    }
+
+    public interface HashFunction<V> {
+
+        int hash(V value);
+    }
+
+    /**
+     * Compares the values with {@link Object#equals(Object)}
+     */
+    public static final Equality<Object> EQUALS = new Equality<Object>() {
+
+        @Override
+        public boolean isEqual(final Object previous, final Object value) {
+            return Objects.equals(previous, value);
+        }
+    };
+
+    private Equality<? super V> equality;
+
+    private HashFunction<? super V> hashFunction;
+
+    /**
+     * The cells whose new value is equal to the previous one are not updated. The previous value is the instance
+     * given to the last update, use a hash function for the values mutated in place.
+     */
+    public void setEquality(final Equality<? super V> equality) {
+        this.equality = equality;
+    }
+
+    /**
+     * A new value whose hash differs from the hash of the value of their last update updates the cell, the hash is
+     * taken at the update so it also detects the changes of the values mutated in place. Equal hashes are confirmed
+     * with the equality, {@link #EQUALS} if none is set, before the update is skipped.
+     */
+    public void setHashFunction(final HashFunction<? super V> hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
     @Override
     public void setCellRenderer(final CellRenderer<V> cellRenderer) {
         throw new IllegalArgumentException("use RefreshableCellRenderer instead of CellRenderer");
@@ -50,4 +93,32 @@ public class RefreshableDataGridColumnDescriptor<D, V, W extends IsPWidget> exte
         return (RefreshableCellRenderer<V, W>) cellRenderer;
     }
 
+    int hash(final V value) {
+        return hashFunction == null ? 0 : hashFunction.hash(value);
+    }
+
+    /**
+     * Updates the cell if its value changed, without equality nor hash function it is always updated
+     * 
+     * @return true if the cell has been updated
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    boolean refresh(final Cell cell, final V value) {
+        final int hash = hash(value);
+        // The hash only rejects quickly, two different values may share it
+        if (hashFunction == null || hash == cell.getValueHash()) {
+            if (equality != null) {
+                if (equality.isEqual((V) cell.getValue(), value)) return false;
+            } else if (hashFunction != null && EQUALS.isEqual(cell.getValue(), value)) {
+                return false;
+            }
+        }
+
+        // The light cells, without widget, are set by the grid
+        if (cell.getW() != null) getCellRenderer().update(value, cell);
+        cell.setValue(value);
+        cell.setValueHash(hash);
+        return true;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+
+package com.ponysdk.ui.server.list2.refreshable;
+
+import java.util.Arrays;
+
+/**
+ * Order of the rows of a {@link RefreshableDataGrid}, the rows being int handles.
+ * <p>
+ * Treap on implicit keys stored in arrays indexed by handle : the index of a row is the number of rows before it,
+ * computed from the sizes of the subtrees on its path to the root. Inserting, removing, moving a row and the
+ * conversions between handles and indexes are O(log n), no index is stored anywhere. The handles of the removed rows
+ * are reused. Not thread safe, accessed under the UIContext lock.
+ * </p>
+ */
+class RowIndex {
+
+    static final int NONE = -1;
+
+    private int[] left;
+
+    private int[] right;
+
+    private int[] parent;
+
+    private int[] size;
+
+    private int[] priority;
+
+    private int[] freeHandles;
+
+    private int freeCount;
+
+    private int handleCount;
+
+    private int root = NONE;
+
+    private int seed = 0x2545F491;
+
+    RowIndex(final int initialCapacity) {
+        left = new int[initialCapacity];
+        right = new int[initialCapacity];
+        parent = new int[initialCapacity];
+        size = new int[initialCapacity];
+        priority = new int[initialCapacity];
+        freeHandles = new int[16];
+    }
+
+    /**
+     * @return the length of the arrays indexed by handle
+     */
+    int capacity() {
+        return left.length;
+    }
+
+    int size() {
+        return root == NONE ? 0 : size[root];
+    }
+
+    /**
+     * Inserts a new row at this index, the following rows are shifted by one
+     *
+     * @return the handle of the row
+     */
+    int add(final int index) {
+        final int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            if (handleCount == left.length) grow(handleCount << 1);
+            handle = handleCount++;
+        }
+        priority[handle] = nextPriority();
+        insert(handle, index);
+        return handle;
+    }
+
+    /**
+     * Removes the row, its handle may be returned by the next {@link #add(int)}
+     */
+    void remove(final int handle) {
+        detach(handle);
+        if (freeCount == freeHandles.length) freeHandles = Arrays.copyOf(freeHandles, freeCount << 1);
+        freeHandles[freeCount++] = handle;
+    }
+
+    /**
+     * Moves the row to this index, computed once the row is removed
+     */
+    void move(final int handle, final int index) {
+        detach(handle);
+        insert(handle, index);
+    }
+
+    /**
+     * @return the handle of the row at this index
+     */
+    int get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("index (" + index + ") >= size (" + size() + ")");
+        int handle = root;
+        while (true) {
+            final int leftSize = sizeOf(left[handle]);
+            if (index < leftSize) {
+                handle = left[handle];
+            } else if (index == leftSize) {
+                return handle;
+            } else {
+                index -= leftSize + 1;
+                handle = right[handle];
+            }
+        }
+    }
+
+    int indexOf(final int handle) {
+        int index = sizeOf(left[handle]);
+        int child = handle;
+        int p = parent[handle];
+        while (p != NONE) {
+            if (right[p] == child) index += sizeOf(left[p]) + 1;
+            child = p;
+            p = parent[p];
+        }
+        return index;
+    }
+
+    int first() {
+        if (root == NONE) return NONE;
+        int handle = root;
+        while (left[handle] != NONE) {
+            handle = left[handle];
+        }
+        return handle;
+    }
+
+    int next(final int handle) {
+        int next;
+        if (right[handle] != NONE) {
+            next = right[handle];
+            while (left[next] != NONE) {
+                next = left[next];
+            }
+            return next;
+        }
+        int child = handle;
+        next = parent[handle];
+        while (next != NONE && right[next] == child) {
+            child = next;
+            next = parent[next];
+        }
+        return next;
+    }
+
+    void clear() {
+        root = NONE;
+        handleCount = 0;
+        freeCount = 0;
+    }
+
+    private void insert(final int handle, final int index) {
+        left[handle] = NONE;
+        right[handle] = NONE;
+        size[handle] = 1;
+
+        if (root == NONE) {
+            parent[handle] = NONE;
+            root = handle;
+            return;
+        }
+
+        // Attached as the rightmost leaf of the rows before the index
+        int p;
+        if (index >= size()) {
+            p = root;
+            while (right[p] != NONE) {
+                p = right[p];
+            }
+            right[p] = handle;
+        } else {
+            final int next = get(index);
+            if (left[next] == NONE) {
+                p = next;
+                left[p] = handle;
+            } else {
+                p = left[next];
+                while (right[p] != NONE) {
+                    p = right[p];
+                }
+                right[p] = handle;
+            }
+        }
+        parent[handle] = p;
+        updatePath(p);
+
+        while (parent[handle] != NONE && priority[handle] > priority[parent[handle]]) {
+            rotateUp(handle);
+        }
+    }
+
+    private void detach(final int handle) {
+        // Rotates the row down to a leaf
+        while (left[handle] != NONE || right[handle] != NONE) {
+            final int l = left[handle];
+            final int r = right[handle];
+            if (r == NONE || l != NONE && priority[l] > priority[r]) rotateUp(l);
+            else rotateUp(r);
+        }
+
+        final int p = parent[handle];
+        if (p == NONE) root = NONE;
+        else if (left[p] == handle) left[p] = NONE;
+        else right[p] = NONE;
+        parent[handle] = NONE;
+        updatePath(p);
+    }
+
+    private void rotateUp(final int handle) {
+        final int p = parent[handle];
+        final int g = parent[p];
+        if (left[p] == handle) {
+            left[p] = right[handle];
+            if (right[handle] != NONE) parent[right[handle]] = p;
+            right[handle] = p;
+        } else {
+            right[p] = left[handle];
+            if (left[handle] != NONE) parent[left[handle]] = p;
+            left[handle] = p;
+        }
+        parent[p] = handle;
+        parent[handle] = g;
+        if (g == NONE) root = handle;
+        else if (left[g] == p) left[g] = handle;
+        else right[g] = handle;
+        size[p] = sizeOf(left[p]) + 1 + sizeOf(right[p]);
+        size[handle] = sizeOf(left[handle]) + 1 + sizeOf(right[handle]);
+    }
+
+    private void updatePath(int handle) {
+        while (handle != NONE) {
+            size[handle] = sizeOf(left[handle]) + 1 + sizeOf(right[handle]);
+            handle = parent[handle];
+        }
+    }
+
+    private int sizeOf(final int handle) {
+        return handle == NONE ? 0 : size[handle];
+    }
+
+    private void grow(final int capacity) {
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        size = Arrays.copyOf(size, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+    }
+
+    // xorshift, the priorities only need to be spread
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+}
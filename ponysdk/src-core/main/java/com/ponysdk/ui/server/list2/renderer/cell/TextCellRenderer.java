@@ -0,0 +1,79 @@
+
+package com.ponysdk.ui.server.list2.renderer.cell;
+
+import com.ponysdk.ui.server.basic.PHTML;
+import com.ponysdk.ui.server.list2.LightCellListView;
+import com.ponysdk.ui.server.list2.refreshable.Cell;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableCellRenderer;
+
+/**
+ * Renders the cells of a column as light cells : the grids set their text or HTML in the cells of a
+ * {@link LightCellListView} without any widget, a row being sent as a single instruction. Used as a regular renderer,
+ * or in the other views, the cells are rendered as {@link PHTML}.
+ */
+public class TextCellRenderer<V> implements RefreshableCellRenderer<V, PHTML> {
+
+    private final boolean html;
+
+    public TextCellRenderer() {
+        this(false);
+    }
+
+    /**
+     * @param html
+     *            true if {@link #renderText(Object)} returns HTML fragments, the text is escaped otherwise
+     */
+    public TextCellRenderer(final boolean html) {
+        this.html = html;
+    }
+
+    public String renderText(final V value) {
+        return value == null ? "-" : value.toString();
+    }
+
+    public String renderHTML(final V value) {
+        final String text = renderText(value);
+        return html ? text : escapeHTML(text);
+    }
+
+    private static String escapeHTML(final String text) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            final String entity;
+            switch (text.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                case '\'':
+                    entity = "&#39;";
+                    break;
+                default:
+                    if (escaped != null) escaped.append(text.charAt(i));
+                    continue;
+            }
+            if (escaped == null) escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+            escaped.append(entity);
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+
+    @Override
+    public PHTML render(final int row, final V value) {
+        return new PHTML(renderHTML(value));
+    }
+
+    @Override
+    public void update(final V value, final Cell<V, PHTML> previous) {
+        previous.getW().setHTML(renderHTML(value));
+    }
+
+}
@@ -0,0 +1,260 @@
+
+package com.ponysdk.ui.server.list2.virtual;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ponysdk.impl.theme.PonySDKTheme;
+import com.ponysdk.ui.server.basic.IsPWidget;
+import com.ponysdk.ui.server.basic.PFlowPanel;
+import com.ponysdk.ui.server.basic.PScrollPanel;
+import com.ponysdk.ui.server.basic.PSimplePanel;
+import com.ponysdk.ui.server.basic.PWidget;
+import com.ponysdk.ui.server.basic.event.PScrollEvent;
+import com.ponysdk.ui.server.basic.event.PScrollHandler;
+import com.ponysdk.ui.server.list2.HasPData;
+import com.ponysdk.ui.server.list2.PSelectionModel;
+import com.ponysdk.ui.server.list2.SimpleListView;
+import com.ponysdk.ui.server.list2.refreshable.Cell;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGridColumnDescriptor;
+
+/**
+ * A Grid of data only materializing the rows visible in the viewport of the terminal, plus a buffer on each side.
+ * <p>
+ * The view is laid in a scroll panel over a canvas as high as the whole data set, the terminal reports its scroll
+ * position and the view is moved over the visible part of the canvas. When the visible rows get close to the edge of
+ * the materialized window, the row widgets are recycled : they are bound to the data of their new index through
+ * {@link com.ponysdk.ui.server.list2.refreshable.RefreshableCellRenderer#update(Object, Cell)}. The server objects
+ * and the transfer size depend on the viewport, not on the size of the data set. All the rows have the same height,
+ * which must be the one given to the grid.
+ * </p>
+ * 
+ * @see RefreshableDataGridColumnDescriptor
+ */
+public class VirtualDataGrid<D> implements HasPData<D>, IsPWidget, PScrollHandler {
+
+    private static final int DEFAULT_BUFFER_ROW_COUNT = 10;
+
+    private static final int DEFAULT_VIEWPORT_ROW_COUNT = 30;
+
+    protected final SimpleListView view;
+
+    protected final List<RefreshableDataGridColumnDescriptor<D, ?, ?>> columnDescriptors = new ArrayList<RefreshableDataGridColumnDescriptor<D, ?, ?>>();
+
+    protected final List<D> rows = new ArrayList<D>();
+
+    private final PScrollPanel scrollPanel = new PScrollPanel();
+
+    private final PFlowPanel canvas = new PFlowPanel();
+
+    private final int rowHeight;
+
+    private final List<Cell<D, IsPWidget>[]> materializedRows = new ArrayList<Cell<D, IsPWidget>[]>();
+
+    private PSelectionModel<D> selectionModel;
+
+    private int bufferRowCount = DEFAULT_BUFFER_ROW_COUNT;
+
+    private int viewportRowCount = DEFAULT_VIEWPORT_ROW_COUNT;
+
+    // Index of the data bound to the first materialized row
+    private int firstRow = 0;
+
+    private int firstVisibleRow = 0;
+
+    private int colCount = 0;
+
+    /**
+     * @param rowHeight
+     *            height of the header and of the rows in pixels
+     */
+    public VirtualDataGrid(final SimpleListView listView, final int rowHeight) {
+        this.view = listView;
+        this.rowHeight = rowHeight;
+
+        this.view.asWidget().addStyleName(PonySDKTheme.COMPLEXLIST);
+        this.view.asWidget().setStyleProperty("position", "absolute");
+        this.view.asWidget().setStyleProperty("top", "0px");
+        this.view.asWidget().setWidth("100%");
+
+        canvas.setStyleProperty("position", "relative");
+        canvas.setHeight(rowHeight + "px");
+        canvas.add(view.asWidget());
+
+        scrollPanel.addStyleName(PonySDKTheme.VIRTUALDATAGRID);
+        scrollPanel.setWidget(canvas);
+        scrollPanel.addScrollHandler(this);
+    }
+
+    public void addDataGridColumnDescriptor(final RefreshableDataGridColumnDescriptor<D, ?, ?> columnDescriptor) {
+        if (!materializedRows.isEmpty()) throw new IllegalStateException("The columns must be added before the data");
+
+        columnDescriptors.add(columnDescriptor);
+        view.addWidget(columnDescriptor.getHeaderCellRenderer().render(), colCount++, 0, 1);
+
+        final PSimplePanel widget = new PSimplePanel();
+        widget.setHeight(rowHeight + "px");
+        view.removeCellStyle(0, colCount - 1, PonySDKTheme.FILL_COLUMN);
+        view.addWidget(widget, colCount, 0, 1);
+        view.addCellStyle(0, colCount, PonySDKTheme.FILL_COLUMN);
+        view.addHeaderStyle(PonySDKTheme.COMPLEXLIST_COLUMNHEADER_COMPLEX);
+    }
+
+    /**
+     * @param bufferRowCount
+     *            rows materialized above and below the viewport
+     */
+    public void setBufferRowCount(final int bufferRowCount) {
+        this.bufferRowCount = bufferRowCount;
+        refresh();
+    }
+
+    public int getBufferRowCount() {
+        return bufferRowCount;
+    }
+
+    /**
+     * @return the number of rows holding widgets on the server
+     */
+    public int getMaterializedRowCount() {
+        return materializedRows.size();
+    }
+
+    public int getFirstMaterializedRow() {
+        return firstRow;
+    }
+
+    @Override
+    public void setData(final List<D> data) {
+        rows.clear();
+        rows.addAll(data);
+        canvas.setHeight((rows.size() + 1) * rowHeight + "px");
+        refresh();
+    }
+
+    /**
+     * Binds the row again, after its data has been changed in place
+     */
+    public void refresh(final int index) {
+        if (index >= firstRow && index < firstRow + materializedRows.size()) bind(index - firstRow, index, true);
+    }
+
+    @Override
+    public void onScroll(final PScrollEvent event) {
+        firstVisibleRow = Math.max(0, event.getVerticalScrollPosition() / rowHeight - 1);
+        if (event.getOffsetHeight() > 0) viewportRowCount = event.getOffsetHeight() / rowHeight + 2;
+
+        final int windowSize = getWindowSize();
+        final int lastVisibleRow = firstVisibleRow + viewportRowCount;
+        final int margin = bufferRowCount / 2;
+        final int lastRow = firstRow + materializedRows.size();
+
+        // Keeps the window until the visible rows get closer to its edges than half the buffer
+        final boolean top = firstVisibleRow - firstRow >= margin || firstRow == 0;
+        final boolean bottom = lastRow - lastVisibleRow >= margin || lastRow == rows.size();
+        if (top && bottom && materializedRows.size() == Math.min(windowSize, rows.size() - firstRow)) return;
+
+        refresh();
+    }
+
+    private int getWindowSize() {
+        return viewportRowCount + 2 * bufferRowCount;
+    }
+
+    private void refresh() {
+        final int windowSize = getWindowSize();
+        firstRow = Math.max(0, Math.min(firstVisibleRow - bufferRowCount, rows.size() - windowSize));
+        final int count = Math.min(windowSize, rows.size() - firstRow);
+
+        for (int i = 0; i < count; i++) {
+            bind(i, firstRow + i, false);
+        }
+        for (int i = materializedRows.size() - 1; i >= count; i--) {
+            view.removeRow(i + 1);
+            materializedRows.remove(i);
+        }
+
+        view.asWidget().setStyleProperty("top", firstRow * rowHeight + "px");
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void bind(final int position, final int index, final boolean force) {
+        final D data = rows.get(index);
+
+        if (position == materializedRows.size()) {
+            final Cell<D, IsPWidget>[] cells = new Cell[columnDescriptors.size()];
+            for (int col = 0; col < cells.length; col++) {
+                final RefreshableDataGridColumnDescriptor descriptor = columnDescriptors.get(col);
+                final Cell cell = new Cell();
+                cell.setCol(col);
+                cell.setData(data);
+                cell.setRow(index);
+                cell.setValue(descriptor.getValueProvider().getValue(data));
+                cell.setW(descriptor.getCellRenderer().render(index, cell.getValue()));
+                cells[col] = cell;
+                view.addWidget(cell.getW(), col, position + 1, 1);
+            }
+            final PSimplePanel fill = new PSimplePanel();
+            fill.setHeight(rowHeight + "px");
+            view.addWidget(fill, cells.length, position + 1, 1);
+            view.addRowStyle(position + 1, PonySDKTheme.SIMPLELIST_ROW);
+            materializedRows.add(cells);
+            return;
+        }
+
+        // Recycles the widgets of the row, only the cells whose value changed are sent
+        for (final Cell cell : materializedRows.get(position)) {
+            cell.setRow(index);
+            if (cell.getData() == data && !force) continue;
+
+            final RefreshableDataGridColumnDescriptor descriptor = columnDescriptors.get(cell.getCol());
+            final Object value = descriptor.getValueProvider().getValue(data);
+            if (force || (value == null ? cell.getValue() != null : !value.equals(cell.getValue()))) descriptor.getCellRenderer().update(value, cell);
+            cell.setData(data);
+            cell.setValue(value);
+        }
+    }
+
+    public List<RefreshableDataGridColumnDescriptor<D, ?, ?>> getColumnDescriptors() {
+        return columnDescriptors;
+    }
+
+    public SimpleListView getListView() {
+        return view;
+    }
+
+    public PScrollPanel getScrollPanel() {
+        return scrollPanel;
+    }
+
+    @Override
+    public PSelectionModel<D> getSelectionModel() {
+        return selectionModel;
+    }
+
+    @Override
+    public void setSelectionModel(final PSelectionModel<D> selectionModel) {
+        this.selectionModel = selectionModel;
+    }
+
+    @Override
+    public D getVisibleItem(final int indexOnPage) {
+        return rows.get(indexOnPage);
+    }
+
+    @Override
+    public int getVisibleItemCount() {
+        return rows.size();
+    }
+
+    @Override
+    public Iterable<D> getVisibleItems() {
+        return rows;
+    }
+
+    @Override
+    public PWidget asWidget() {
+        return scrollPanel;
+    }
+
+}
@@ -63,6 +63,7 @@ import com.google.gwt.user.client.ui.Widget;
 import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
 import com.ponysdk.ui.terminal.Dictionnary.HANDLER;
 import com.ponysdk.ui.terminal.Dictionnary.HISTORY;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
 import com.ponysdk.ui.terminal.Dictionnary.TYPE;
 import com.ponysdk.ui.terminal.event.CommunicationErrorEvent;
 import com.ponysdk.ui.terminal.event.HttpRequestSendEvent;
@@ -73,6 +74,7 @@ import com.ponysdk.ui.terminal.extension.AddonList;
 import com.ponysdk.ui.terminal.extension.PonyAddonList;
 import com.ponysdk.ui.terminal.instruction.PTInstruction;
 import com.ponysdk.ui.terminal.request.RequestBuilder;
+import com.ponysdk.ui.terminal.socket.WebSocketClient;
 import com.ponysdk.ui.terminal.ui.PTCookies;
 import com.ponysdk.ui.terminal.ui.PTObject;
 import com.ponysdk.ui.terminal.ui.PTStreamResource;
@@ -102,6 +104,7 @@ public class UIBuilder implements ValueChangeHandler<String>, UIService, HttpRes
     private boolean pendingClose;
 
     private RequestBuilder requestBuilder;
+    private WebSocketClient socketClient;
 
     private long lastReceived = -1;
     private long nextSent = 1;
@@ -195,6 +198,9 @@ public class UIBuilder implements ValueChangeHandler<String>, UIService, HttpRes
     public void update(final JSONObject data) {
 
         final long receivedSeqNum = (long) data.get(APPLICATION.SEQ_NUM).isNumber().doubleValue();
+        // Already processed, sent again by a resumed connection
+        if (receivedSeqNum <= lastReceived) return;
+
         if ((lastReceived + 1) != receivedSeqNum) {
             incomingMessageQueue.put(receivedSeqNum, data);
             log.log(Level.SEVERE, "Wrong seqnum received. Expecting #" + (lastReceived + 1) + " but received #" + receivedSeqNum);
@@ -331,6 +337,12 @@ public class UIBuilder implements ValueChangeHandler<String>, UIService, HttpRes
                 return;
             }
             unRegisterObject.gc(this);
+        } else if (TYPE.KEY_.GC_BATCH.equals(type)) {
+            final JSONArray objectIDs = instruction.get(PROPERTY.OBJECT_IDS).isArray();
+            for (int i = 0; i < objectIDs.size(); i++) {
+                final PTObject unRegisterObject = unRegisterObject((long) objectIDs.get(i).isNumber().doubleValue());
+                if (unRegisterObject != null) unRegisterObject.gc(this);
+            }
         } else if (TYPE.KEY_.UPDATE.equals(type)) {
             final PTObject ptObject = objectByID.get(instruction.getObjectID());
             if (ptObject == null) {
@@ -410,7 +422,18 @@ public class UIBuilder implements ValueChangeHandler<String>, UIService, HttpRes
         requestData.put(APPLICATION.ERRORS, errors);
         requestData.put(APPLICATION.SEQ_NUM, nextSent++);
 
-        requestBuilder.send(requestData.toString());
+        if (socketClient != null) socketClient.send(requestData.toString());
+        else requestBuilder.send(requestData.toString());
+    }
+
+    @Override
+    public void setWebSocketClient(final WebSocketClient socketClient) {
+        this.socketClient = socketClient;
+    }
+
+    @Override
+    public long getLastReceivedSeqNum() {
+        return lastReceived;
     }
 
     @Override
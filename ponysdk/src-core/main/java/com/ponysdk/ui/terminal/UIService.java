@@ -28,6 +28,7 @@ import java.util.Map;
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.user.client.ui.UIObject;
 import com.ponysdk.ui.terminal.instruction.PTInstruction;
+import com.ponysdk.ui.terminal.socket.WebSocketClient;
 import com.ponysdk.ui.terminal.ui.PTObject;
 
 public interface UIService {
@@ -38,6 +39,16 @@ public interface UIService {
 
     public void sendDataToServer(PTInstruction instruction);
 
+    /**
+     * Sends the next events through the given socket instead of HTTP requests, null restores HTTP
+     */
+    public void setWebSocketClient(WebSocketClient socketClient);
+
+    /**
+     * @return the seq num of the last message processed in order
+     */
+    public long getLastReceivedSeqNum();
+
     public PTObject getPTObject(Long ID);
 
     public PTObject getPTObject(UIObject uiObject);
@@ -3,7 +3,6 @@ package com.ponysdk.ui.terminal.request;
 
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.json.client.JSONObject;
-import com.google.gwt.json.client.JSONParser;
 import com.google.gwt.json.client.JSONString;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
 
@@ -15,7 +14,7 @@ public class ParentWindowRequest extends RequestBuilder {
         super(callback);
         this.windowID = windowID;
 
-        exportOnDataReceived();
+        listenFrames();
     }
 
     @Override
@@ -25,17 +24,23 @@ public class ParentWindowRequest extends RequestBuilder {
         sendToParent(windowID, jsoObject.getJavaScriptObject());
     }
 
-    public void onDataReceived(final String text) {
-        callback.onDataReceived(JSONParser.parseStrict(text).isObject());
+    public void onFrameReceived(final JavaScriptObject frame) {
+        callback.onDataReceived(new JSONObject(frame));
     }
 
     public static native void sendToParent(final String objectID, final JavaScriptObject data) /*-{$wnd.opener.sendDataToServer(objectID, data);}-*/;
 
-    public native void exportOnDataReceived() /*-{
-                                              var that = this;
-                                              $wnd.onDataReceived = function(text) {
-                                              $entry(that.@com.ponysdk.ui.terminal.request.ParentWindowRequest::onDataReceived(Ljava/lang/String;)(text));
-                                              }
-                                              }-*/;
+    // The frames of the window are posted by the opener, multiplexed over its connection. IE8 and IE9 post them as
+    // JSON text, IE8 only has attachEvent.
+    public native void listenFrames() /*-{
+                                      var that = this;
+                                      var listener = function(event) {
+                                      if (event.source !== $wnd.opener || event.origin !== $wnd.location.protocol + '//' + $wnd.location.host) return;
+                                      var frame = typeof event.data === 'string' ? $wnd.JSON.parse(event.data) : event.data;
+                                      $entry(that.@com.ponysdk.ui.terminal.request.ParentWindowRequest::onFrameReceived(Lcom/google/gwt/core/client/JavaScriptObject;)(frame));
+                                      };
+                                      if ($wnd.addEventListener) $wnd.addEventListener('message', listener, false);
+                                      else $wnd.attachEvent('onmessage', listener);
+                                      }-*/;
 
 }
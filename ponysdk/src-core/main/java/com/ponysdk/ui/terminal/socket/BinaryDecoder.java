@@ -0,0 +1,65 @@
+package com.ponysdk.ui.terminal.socket;
+
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONBoolean;
+import com.google.gwt.json.client.JSONNull;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.json.client.JSONValue;
+import com.google.gwt.typedarrays.shared.ArrayBuffer;
+
+/**
+ * Decodes a binary frame (see {@link BinaryFormat}) into the JSON structure expected by the UIBuilder.
+ */
+public class BinaryDecoder extends BinaryReader<JSONValue, JSONObject, JSONArray> {
+
+    private BinaryDecoder(final ArrayBuffer buffer) {
+        super(buffer);
+    }
+
+    public static JSONObject decode(final ArrayBuffer buffer) {
+        return new BinaryDecoder(buffer).readFrame();
+    }
+
+    @Override
+    protected JSONObject newObject() {
+        return new JSONObject();
+    }
+
+    @Override
+    protected void put(final JSONObject object, final String key, final JSONValue value) {
+        object.put(key, value);
+    }
+
+    @Override
+    protected JSONArray newArray() {
+        return new JSONArray();
+    }
+
+    @Override
+    protected void set(final JSONArray array, final int index, final JSONValue value) {
+        array.set(index, value);
+    }
+
+    @Override
+    protected JSONValue newNull() {
+        return JSONNull.getInstance();
+    }
+
+    @Override
+    protected JSONValue newBoolean(final boolean value) {
+        return JSONBoolean.getInstance(value);
+    }
+
+    @Override
+    protected JSONValue newNumber(final double value) {
+        return new JSONNumber(value);
+    }
+
+    @Override
+    protected JSONValue newString(final String value) {
+        return new JSONString(value);
+    }
+
+}
@@ -0,0 +1,30 @@
+
+package com.ponysdk.ui.terminal.socket;
+
+/**
+ * Layout of the binary frames pushed on the WebSocket when the binary codec is enabled.
+ * <p>
+ * A frame is <code>VERSION seqNum count instruction*</code>. An instruction is
+ * <code>flags [type] [objectID] propertyCount (key value)*</code>. Integers are zigzag varints, strings are
+ * varint length prefixed UTF-8. Keys and instruction types are symbols: a varint index in the frame symbol
+ * table, immediately followed by the string when the index is new. The terminal reads integers as doubles, they are
+ * exact between -2^52 and 2^52.
+ * </p>
+ */
+public interface BinaryFormat {
+
+    public static final int VERSION = 1;
+
+    public static final int FLAG_TYPE = 0x01;
+    public static final int FLAG_OBJECT_ID = 0x02;
+
+    public static final int NULL = 0;
+    public static final int TRUE = 1;
+    public static final int FALSE = 2;
+    public static final int INTEGER = 3;
+    public static final int DOUBLE = 4;
+    public static final int STRING = 5;
+    public static final int OBJECT = 6;
+    public static final int ARRAY = 7;
+
+}
@@ -0,0 +1,168 @@
+package com.ponysdk.ui.terminal.socket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.typedarrays.shared.ArrayBuffer;
+import com.google.gwt.typedarrays.shared.DataView;
+import com.google.gwt.typedarrays.shared.TypedArrays;
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+
+/**
+ * Reads a binary frame (see {@link BinaryFormat}) and builds its values through the factory methods, the layout
+ * does not depend on the JSON implementation.
+ * <p>
+ * A reader reads a single frame, its symbol table is the one of the frame.
+ * </p>
+ */
+public abstract class BinaryReader<V, O extends V, A extends V> {
+
+    private final DataView view;
+
+    private int position = 0;
+
+    private final List<String> symbols = new ArrayList<String>();
+
+    protected BinaryReader(final ArrayBuffer buffer) {
+        this.view = TypedArrays.createDataView(buffer);
+    }
+
+    protected abstract O newObject();
+
+    protected abstract void put(O object, String key, V value);
+
+    protected abstract A newArray();
+
+    protected abstract void set(A array, int index, V value);
+
+    protected abstract V newNull();
+
+    protected abstract V newBoolean(boolean value);
+
+    protected abstract V newNumber(double value);
+
+    protected abstract V newString(String value);
+
+    public O readFrame() {
+        final int version = readByte();
+        if (version != BinaryFormat.VERSION) throw new IllegalStateException("Unsupported binary frame version #" + version);
+
+        final O data = newObject();
+        put(data, APPLICATION.SEQ_NUM, newNumber(readVarLong()));
+
+        final int instructionCount = (int) readVarLong();
+        final A instructions = newArray();
+        for (int i = 0; i < instructionCount; i++) {
+            set(instructions, i, readInstruction());
+        }
+        put(data, APPLICATION.INSTRUCTIONS, instructions);
+
+        return data;
+    }
+
+    private O readInstruction() {
+        final O instruction = newObject();
+
+        final int flags = readByte();
+        if ((flags & BinaryFormat.FLAG_TYPE) != 0) put(instruction, TYPE.KEY, newString(readSymbol()));
+        if ((flags & BinaryFormat.FLAG_OBJECT_ID) != 0) put(instruction, PROPERTY.OBJECT_ID, newNumber(unzigzag(readVarLong())));
+
+        final int propertyCount = (int) readVarLong();
+        for (int i = 0; i < propertyCount; i++) {
+            final String key = readSymbol();
+            put(instruction, key, readValue());
+        }
+
+        return instruction;
+    }
+
+    private V readValue() {
+        final int tag = readByte();
+        switch (tag) {
+            case BinaryFormat.NULL:
+                return newNull();
+            case BinaryFormat.TRUE:
+                return newBoolean(true);
+            case BinaryFormat.FALSE:
+                return newBoolean(false);
+            case BinaryFormat.INTEGER:
+                return newNumber(unzigzag(readVarLong()));
+            case BinaryFormat.DOUBLE:
+                final double d = view.getFloat64(position);
+                position += 8;
+                return newNumber(d);
+            case BinaryFormat.STRING:
+                return newString(readString());
+            case BinaryFormat.OBJECT:
+                final O object = newObject();
+                final int size = (int) readVarLong();
+                for (int i = 0; i < size; i++) {
+                    final String key = readSymbol();
+                    put(object, key, readValue());
+                }
+                return object;
+            case BinaryFormat.ARRAY:
+                final A array = newArray();
+                final int length = (int) readVarLong();
+                for (int i = 0; i < length; i++) {
+                    set(array, i, readValue());
+                }
+                return array;
+            default:
+                throw new IllegalStateException("Unknown value tag #" + tag + " at position " + (position - 1));
+        }
+    }
+
+    private String readSymbol() {
+        final int index = (int) readVarLong();
+        if (index < symbols.size()) return symbols.get(index);
+        final String symbol = readString();
+        symbols.add(symbol);
+        return symbol;
+    }
+
+    private String readString() {
+        final int length = (int) readVarLong();
+        final int end = position + length;
+        final StringBuilder builder = new StringBuilder();
+        while (position < end) {
+            final int b = readByte();
+            if (b < 0x80) {
+                builder.append((char) b);
+            } else if (b < 0xE0) {
+                builder.append((char) (((b & 0x1F) << 6) | (readByte() & 0x3F)));
+            } else if (b < 0xF0) {
+                builder.append((char) (((b & 0x0F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F)));
+            } else {
+                final int codePoint = ((b & 0x07) << 18) | ((readByte() & 0x3F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F);
+                builder.append(Character.toChars(codePoint));
+            }
+        }
+        return builder.toString();
+    }
+
+    private int readByte() {
+        return view.getUint8(position++);
+    }
+
+    // Varints are accumulated as doubles to avoid the long emulation of the compiled javascript
+    private double readVarLong() {
+        double value = 0;
+        double multiplier = 1;
+        int b;
+        do {
+            b = readByte();
+            value += (b & 0x7F) * multiplier;
+            multiplier *= 128;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static double unzigzag(final double v) {
+        final double half = Math.floor(v / 2);
+        return (v % 2 == 0) ? half : -half - 1;
+    }
+
+}
@@ -1,6 +1,8 @@
 
 package com.ponysdk.ui.terminal.socket;
 
+import com.google.gwt.typedarrays.shared.ArrayBuffer;
+
 public interface WebSocketCallback {
 
     void connected();
@@ -8,4 +10,6 @@ public interface WebSocketCallback {
     void disconnected();
 
     void message(String message);
+
+    void message(ArrayBuffer message);
 }
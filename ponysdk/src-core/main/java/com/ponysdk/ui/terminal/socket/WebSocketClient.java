@@ -1,6 +1,8 @@
 
 package com.ponysdk.ui.terminal.socket;
 
+import com.google.gwt.typedarrays.shared.ArrayBuffer;
+
 public class WebSocketClient {
 
     final WebSocketCallback callback;
@@ -21,6 +23,10 @@ public class WebSocketClient {
         callback.message(message);
     }
 
+    private final void onbinarymessage(final ArrayBuffer message) {
+        callback.message(message);
+    }
+
     public static native boolean isSupported()/*-{
                                               if (!$wnd.WebSocket) return false;
                                               return true;
@@ -35,6 +41,7 @@ public class WebSocketClient {
                                               }
 
                                               that._ws = new $wnd.WebSocket(server);
+                                              that._ws.binaryType = "arraybuffer";
 
                                               that._ws.onopen = function() {
                                                   if(!that._ws) {
@@ -44,8 +51,11 @@ public class WebSocketClient {
                                               };
 
                                               that._ws.onmessage = function(response) {
-                                                  if (response.data) {
+                                                  if (!response.data) return;
+                                                  if (typeof response.data === "string") {
                                                       that.@com.ponysdk.ui.terminal.socket.WebSocketClient::onmessage(Ljava/lang/String;)( response.data );
+                                                  } else {
+                                                      that.@com.ponysdk.ui.terminal.socket.WebSocketClient::onbinarymessage(Lcom/google/gwt/typedarrays/shared/ArrayBuffer;)( response.data );
                                                   }
                                               };
 
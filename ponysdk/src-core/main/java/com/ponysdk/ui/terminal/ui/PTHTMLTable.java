@@ -23,6 +23,9 @@
 
 package com.ponysdk.ui.terminal.ui;
 
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONString;
 import com.google.gwt.user.client.ui.HTMLTable;
 import com.google.gwt.user.client.ui.HasHorizontalAlignment.HorizontalAlignmentConstant;
 import com.google.gwt.user.client.ui.HasVerticalAlignment.VerticalAlignmentConstant;
@@ -56,6 +59,12 @@ public class PTHTMLTable extends PTPanel<HTMLTable> {
             uiObject.setCellSpacing(update.getInt(PROPERTY.CELL_SPACING));
         } else if (update.containsKey(PROPERTY.CELL_PADDING)) {
             uiObject.setCellPadding(update.getInt(PROPERTY.CELL_PADDING));
+        } else if (update.containsKey(PROPERTY.MOVE_ROW)) {
+            moveRow(update.getInt(PROPERTY.ROW), update.getInt(PROPERTY.MOVE_ROW));
+        } else if (update.containsKey(PROPERTY.HTMLTABLE_ROW_TEXT)) {
+            setRowCells(update, update.get(PROPERTY.HTMLTABLE_ROW_TEXT).isArray(), false);
+        } else if (update.containsKey(PROPERTY.HTMLTABLE_ROW_HTML)) {
+            setRowCells(update, update.get(PROPERTY.HTMLTABLE_ROW_HTML).isArray(), true);
         } else if (update.containsKey(PROPERTY.HTMLTABLE_ROW_STYLE)) {
             final int row = update.getInt(PROPERTY.ROW);
             if (update.containsKey(PROPERTY.ROW_FORMATTER_ADD_STYLE_NAME)) {
@@ -99,4 +108,25 @@ public class PTHTMLTable extends PTPanel<HTMLTable> {
             super.update(update, uiService);
         }
     }
+
+    // The widgets of the table are mapped by element, the row element is moved with them
+    private void moveRow(final int index, final int beforeIndex) {
+        final Element row = uiObject.getRowFormatter().getElement(index);
+        final Element body = row.getParentElement();
+        body.removeChild(row);
+        if (beforeIndex < uiObject.getRowCount()) body.insertBefore(row, uiObject.getRowFormatter().getElement(beforeIndex));
+        else body.appendChild(row);
+    }
+
+    private void setRowCells(final PTInstruction update, final JSONArray values, final boolean html) {
+        final int row = update.getInt(PROPERTY.ROW);
+        final int column = update.getInt(PROPERTY.COLUMN);
+        for (int i = 0; i < values.size(); i++) {
+            final JSONString value = values.get(i).isString();
+            if (value == null) continue;
+            if (html) uiObject.setHTML(row, column + i, value.stringValue());
+            else uiObject.setText(row, column + i, value.stringValue());
+            uiObject.getCellFormatter().addStyleName(row, column + i, "pony-PFlextable-Cell");
+        }
+    }
 }
@@ -32,6 +32,7 @@ import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.typedarrays.shared.ArrayBuffer;
 import com.ponysdk.ui.terminal.Dictionnary;
 import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
@@ -40,6 +41,7 @@ import com.ponysdk.ui.terminal.UIBuilder;
 import com.ponysdk.ui.terminal.UIService;
 import com.ponysdk.ui.terminal.event.CommunicationErrorEvent;
 import com.ponysdk.ui.terminal.instruction.PTInstruction;
+import com.ponysdk.ui.terminal.socket.BinaryDecoder;
 import com.ponysdk.ui.terminal.socket.WebSocketCallback;
 import com.ponysdk.ui.terminal.socket.WebSocketClient;
 
@@ -47,8 +49,14 @@ public class PTPusher extends AbstractPTObject implements CommunicationErrorEven
 
     private final static Logger log = Logger.getLogger(UIBuilder.class.getName());
 
+    private static final int RESUME_DELAY = 1000;
+
     private WebSocketClient socketClient;
     private boolean hasCommunicationError = false;
+    private boolean connected = false;
+    private boolean resumable = false;
+    private long resumeTimeout = 0;
+    private long disconnectionTime = -1;
 
     @Override
     public void create(final PTInstruction create, final UIService uiService) {
@@ -81,6 +89,7 @@ public class PTPusher extends AbstractPTObject implements CommunicationErrorEven
             super.create(create, uiService);
 
             final String wsServerURL = GWT.getHostPageBaseURL().replaceFirst("http", "ws") + "ws" + "?" + APPLICATION.VIEW_ID + "=" + UIBuilder.sessionID;
+            if (create.containsKey(PROPERTY.RESUME_TIMEOUT)) resumeTimeout = create.getLong(PROPERTY.RESUME_TIMEOUT);
 
             socketClient = new WebSocketClient(new WebSocketCallback() {
 
@@ -92,9 +101,17 @@ public class PTPusher extends AbstractPTObject implements CommunicationErrorEven
                     uiService.update(data);
                 }
 
+                @Override
+                public void message(final ArrayBuffer message) {
+                    uiService.update(BinaryDecoder.decode(message));
+                }
+
                 @Override
                 public void disconnected() {
                     log.info("Disconnected from: " + wsServerURL);
+                    connected = false;
+                    uiService.setWebSocketClient(null);
+                    if (resume(wsServerURL, uiService)) return;
                     uiService.onCommunicationError(new Exception("Websocket connection lost."));
                     uiService.unRegisterObject(getObjectID());
                 }
@@ -102,6 +119,10 @@ public class PTPusher extends AbstractPTObject implements CommunicationErrorEven
                 @Override
                 public void connected() {
                     log.info("Connected to: " + wsServerURL);
+                    connected = true;
+                    resumable = resumeTimeout > 0;
+                    disconnectionTime = -1;
+                    uiService.setWebSocketClient(socketClient);
                 }
             });
 
@@ -120,7 +141,7 @@ public class PTPusher extends AbstractPTObject implements CommunicationErrorEven
                         final JSONObject jso = new JSONObject();
                         jso.put(Dictionnary.APPLICATION.PING, new JSONNumber(timeStamp));
                         jso.put(Dictionnary.APPLICATION.VIEW_ID, new JSONNumber(UIBuilder.sessionID));
-                        socketClient.send(jso.toString());
+                        if (connected) socketClient.send(jso.toString());
                         return !hasCommunicationError;
                     }
                 }, ping);
@@ -128,6 +149,30 @@ public class PTPusher extends AbstractPTObject implements CommunicationErrorEven
         }
     }
 
+    /**
+     * Reconnects after a network failure, the server sends again the frames received after the last processed seq
+     * num. Gives up once the resume timeout of the server has expired.
+     */
+    private boolean resume(final String wsServerURL, final UIService uiService) {
+        if (!resumable) return false;
+
+        final long now = System.currentTimeMillis();
+        if (disconnectionTime < 0) disconnectionTime = now;
+        if (now - disconnectionTime > resumeTimeout) return false;
+
+        Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+
+            @Override
+            public boolean execute() {
+                final long lastSeqNum = uiService.getLastReceivedSeqNum();
+                log.info("Resuming from #" + lastSeqNum + " on: " + wsServerURL);
+                socketClient.connect(wsServerURL + "&" + APPLICATION.LAST_SEQ_NUM + "=" + lastSeqNum);
+                return false;
+            }
+        }, RESUME_DELAY);
+        return true;
+    }
+
     @Override
     public void onCommunicationError(final CommunicationErrorEvent event) {
         hasCommunicationError = true;
@@ -23,14 +23,22 @@
 
 package com.ponysdk.ui.terminal.ui;
 
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.ScrollPanel;
 import com.google.gwt.user.client.ui.Widget;
+import com.ponysdk.ui.terminal.Dictionnary.HANDLER;
 import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
 import com.ponysdk.ui.terminal.UIService;
 import com.ponysdk.ui.terminal.instruction.PTInstruction;
 
 public class PTScrollPanel extends PTSimplePanel {
 
+    // At most one scroll event sent per period while scrolling
+    private static final int SCROLL_EVENT_PERIOD = 50;
+
     @Override
     public void create(final PTInstruction create, final UIService uiService) {
         init(create, uiService, new ScrollPanel());
@@ -42,10 +50,42 @@ public class PTScrollPanel extends PTSimplePanel {
         cast().setWidget(w);
     }
 
+    @Override
+    public void addHandler(final PTInstruction addHandler, final UIService uiService) {
+        if (HANDLER.KEY_.SCROLL_HANDLER.equals(addHandler.getString(HANDLER.KEY))) {
+            final Timer timer = new Timer() {
+
+                @Override
+                public void run() {
+                    final PTInstruction instruction = new PTInstruction();
+                    instruction.setObjectID(addHandler.getObjectID());
+                    instruction.put(TYPE.KEY, TYPE.KEY_.EVENT);
+                    instruction.put(HANDLER.KEY, HANDLER.KEY_.SCROLL_HANDLER);
+                    instruction.put(PROPERTY.VERTICAL_SCROLL_POSITION, cast().getVerticalScrollPosition());
+                    instruction.put(PROPERTY.OFFSETHEIGHT, cast().getOffsetHeight());
+                    uiService.sendDataToServer(instruction);
+                }
+            };
+            cast().addScrollHandler(new ScrollHandler() {
+
+                @Override
+                public void onScroll(final ScrollEvent event) {
+                    if (!timer.isRunning()) timer.schedule(SCROLL_EVENT_PERIOD);
+                }
+            });
+            // Reports the initial viewport
+            timer.schedule(SCROLL_EVENT_PERIOD);
+        } else {
+            super.addHandler(addHandler, uiService);
+        }
+    }
+
     @Override
     public void update(final PTInstruction update, final UIService uiService) {
         if (update.containsKey(PROPERTY.HORIZONTAL_SCROLL_POSITION)) {
             cast().setHorizontalScrollPosition(update.getInt(PROPERTY.HORIZONTAL_SCROLL_POSITION));
+        } else if (update.containsKey(PROPERTY.VERTICAL_SCROLL_POSITION)) {
+            cast().setVerticalScrollPosition(update.getInt(PROPERTY.VERTICAL_SCROLL_POSITION));
         } else if (update.containsKey(PROPERTY.SCROLL_TO)) {
             final long scrollTo = update.getLong(PROPERTY.SCROLL_TO);
             if (scrollTo == 0) cast().scrollToBottom();
@@ -26,6 +26,7 @@ package com.ponysdk.ui.terminal.ui;
 import java.util.logging.Logger;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.dom.client.Element;
@@ -70,8 +71,8 @@ public class PTWindow extends AbstractPTObject {
             if (window != null) {
                 checkWindowAlive();
             }
-        } else if (update.containsKey(PROPERTY.TEXT)) {
-            onDataReceived(window, update.getString(PROPERTY.TEXT));
+        } else if (update.containsKey(PROPERTY.WINDOW_FRAME)) {
+            postFrame(window, update.getObject(PROPERTY.WINDOW_FRAME).getJavaScriptObject());
         } else if (update.containsKey(PROPERTY.CLOSE)) {
             close(window);
         }
@@ -98,7 +99,21 @@ public class PTWindow extends AbstractPTObject {
         uiService.sendDataToServer(instruction);
     }
 
-    private native void onDataReceived(Element win, final String text) /*-{win.onDataReceived(text);}-*/;
+    // IE8 and IE9 only post strings, the frame is posted as JSON text there. Everywhere else the message is a
+    // structured clone, the popup gets the frame as objects of its own window without parsing it again.
+    private static final boolean POSTS_STRINGS_ONLY = postsStringsOnly();
+
+    private native void postFrame(Element win, final JavaScriptObject frame) /*-{
+                                                                               if (!win) return;
+                                                                               var targetOrigin = $wnd.location.protocol + '//' + $wnd.location.host;
+                                                                               if (@com.ponysdk.ui.terminal.ui.PTWindow::POSTS_STRINGS_ONLY) win.postMessage($wnd.JSON.stringify(frame), targetOrigin);
+                                                                               else win.postMessage(frame, targetOrigin);
+                                                                               }-*/;
+
+    // documentMode only exists in IE, from IE8
+    private static native boolean postsStringsOnly() /*-{
+                                                     return !!($doc.documentMode && $doc.documentMode < 10);
+                                                     }-*/;
 
     private native Element open(String url, String name, String features) /*-{
                                                                               var that = this;
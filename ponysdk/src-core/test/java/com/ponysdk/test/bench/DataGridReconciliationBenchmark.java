@@ -0,0 +1,174 @@
+
+package com.ponysdk.test.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.instruction.Create;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.core.stm.TxnContext;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.ui.server.list2.DataGridActivity;
+import com.ponysdk.ui.server.list2.DataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.DefaultSimpleListView;
+import com.ponysdk.ui.server.list2.renderer.cell.RefreshableLabelCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
+
+/**
+ * Instruction volume of the refreshes of a page of a {@link DataGridActivity} where a few rows changed, moved, came
+ * or left : rendered again entirely, and reconciled by key.
+ * <p>
+ * Usage: DataGridReconciliationBenchmark [rows] [columns] [refreshes] [changesPerRefresh]
+ * </p>
+ */
+public class DataGridReconciliationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(DataGridReconciliationBenchmark.class);
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final int columns = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int refreshes = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        final int changes = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        final UIContext uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        final CountingTxnContext txnContext = new CountingTxnContext();
+        txn.begin(txnContext);
+
+        try {
+            log.info("Rows: " + rows + ", columns: " + columns + ", refreshes: " + refreshes + ", changes per refresh: " + changes);
+            run("Rendered again", rows, columns, refreshes, changes, false, txnContext);
+            run("Reconciled by key", rows, columns, refreshes, changes, true, txnContext);
+        } finally {
+            txn.begin(new CountingTxnContext());
+            UIContext.remove();
+        }
+        System.exit(0);
+    }
+
+    private static void run(final String name, final int rows, final int columns, final int refreshes, final int changes, final boolean keyed, final CountingTxnContext txnContext) {
+        final DataGridActivity<String[]> grid = new DataGridActivity<String[]>(new DefaultSimpleListView());
+        for (int column = 0; column < columns; column++) {
+            final DataGridColumnDescriptor<String[], String> descriptor = new DataGridColumnDescriptor<String[], String>();
+            descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("C" + column));
+            descriptor.setCellRenderer(new RefreshableLabelCellRenderer<String>());
+            descriptor.setValueProvider(new ColumnValueProvider(column + 1));
+            grid.addDataGridColumnDescriptor(descriptor);
+        }
+        if (keyed) grid.setKeyProvider(new ColumnValueProvider(0));
+
+        final Random random = new Random(42);
+        List<String[]> page = new ArrayList<String[]>(rows);
+        for (int row = 0; row < rows; row++) {
+            page.add(newRow("K" + row, columns));
+        }
+        grid.setData(page);
+
+        txnContext.reset();
+        final long start = System.nanoTime();
+        for (int refresh = 0; refresh < refreshes; refresh++) {
+            page = new ArrayList<String[]>(page);
+            for (int change = 0; change < changes; change++) {
+                // A value changed, a row moved, a row replaced by a new one
+                final int row = random.nextInt(rows);
+                final String[] values = page.get(row).clone();
+                values[1 + random.nextInt(columns)] = "R" + refresh;
+                page.set(row, values);
+                page.add(random.nextInt(rows), page.remove(random.nextInt(rows)));
+                page.set(random.nextInt(rows), newRow("K" + refresh + "_" + change, columns));
+            }
+            grid.setData(page);
+        }
+        txnContext.report(name, System.nanoTime() - start);
+    }
+
+    private static String[] newRow(final String key, final int columns) {
+        final String[] values = new String[columns + 1];
+        values[0] = key;
+        for (int column = 1; column <= columns; column++) {
+            values[column] = key + "C" + column;
+        }
+        return values;
+    }
+
+    private static class ColumnValueProvider implements ValueProvider<String[], String> {
+
+        private final int column;
+
+        ColumnValueProvider(final int column) {
+            this.column = column;
+        }
+
+        @Override
+        public String getValue(final String[] data) {
+            return data[column];
+        }
+    }
+
+    private static class CountingTxnContext implements TxnContext {
+
+        private int instructions;
+
+        private int creates;
+
+        private long bytes;
+
+        void reset() {
+            instructions = 0;
+            creates = 0;
+            bytes = 0;
+        }
+
+        void report(final String name, final long duration) {
+            log.info(String.format("%-18s %8d creates, %8d instructions, %10d bytes, %8.1f ms", name, creates, instructions, bytes, duration / 1000000d));
+        }
+
+        @Override
+        public List<Instruction> setCurrentStacker(final List<Instruction> instructions) {
+            return null;
+        }
+
+        @Override
+        public void save(final Instruction instruction) {
+            instructions++;
+            if (instruction instanceof Create) creates++;
+            bytes += instruction.toString().length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final boolean value) {
+            instructions++;
+            bytes += 16 + key.length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final long value) {
+            instructions++;
+            bytes += 16 + key.length() + Long.toString(value).length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final Object value) {
+            instructions++;
+            bytes += 16 + key.length() + String.valueOf(value).length();
+        }
+
+        @Override
+        public void flush() throws Exception {}
+
+        @Override
+        public void clear() {}
+    }
+
+}
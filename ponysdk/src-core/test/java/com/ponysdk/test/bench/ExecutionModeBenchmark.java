@@ -0,0 +1,122 @@
+
+package com.ponysdk.test.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.concurrent.ExecutionMode;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PPusher;
+
+/**
+ * Throughput and latency of the tasks submitted to many UIContexts by a pool of request threads, each task blocking
+ * for a while like a DAO call, with the {@link ExecutionMode#PLATFORM} and {@link ExecutionMode#VIRTUAL} modes.
+ * <p>
+ * Usage: ExecutionModeBenchmark [uiContexts] [tasksPerContext] [blockingMillis] [requestThreads]
+ * </p>
+ */
+public class ExecutionModeBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeBenchmark.class);
+
+    public static void main(final String[] args) throws Exception {
+        final int uiContexts = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int tasksPerContext = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int blockingMillis = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final int requestThreads = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+
+        log.info("UIContexts: " + uiContexts + ", tasks per context: " + tasksPerContext + ", blocking: " + blockingMillis + " ms, request threads: " + requestThreads
+                + ", virtual threads supported: " + ExecutionMode.isVirtualThreadSupported());
+
+        for (int round = 0; round < 2; round++) {
+            for (final ExecutionMode mode : ExecutionMode.values()) {
+                run(mode, uiContexts, tasksPerContext, blockingMillis, requestThreads, round == 0);
+            }
+        }
+    }
+
+    private static void run(final ExecutionMode mode, final int uiContexts, final int tasksPerContext, final int blockingMillis, final int requestThreads, final boolean warmup)
+            throws InterruptedException {
+        final ApplicationManagerOption options = new ApplicationManagerOption();
+        options.setExecutionMode(mode);
+        final Application application = new Application(new EmptySession(), options);
+
+        final UIContext[] contexts = new UIContext[uiContexts];
+        for (int i = 0; i < uiContexts; i++) {
+            contexts[i] = newUIContext(application);
+        }
+
+        final int tasks = uiContexts * tasksPerContext;
+        final CountDownLatch done = new CountDownLatch(tasks);
+        final AtomicLong totalLatency = new AtomicLong();
+        final AtomicLong maxLatency = new AtomicLong();
+
+        final ExecutorService requests = Executors.newFixedThreadPool(requestThreads);
+        final long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            final UIContext uiContext = contexts[i % uiContexts];
+            requests.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    final long submitted = System.nanoTime();
+                    uiContext.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            try {
+                                Thread.sleep(blockingMillis);
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            final long latency = System.nanoTime() - submitted;
+                            totalLatency.addAndGet(latency);
+                            long max = maxLatency.get();
+                            while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+                                max = maxLatency.get();
+                            }
+                            done.countDown();
+                        }
+                    });
+                }
+            });
+        }
+        done.await();
+        final long elapsed = System.nanoTime() - start;
+        requests.shutdown();
+
+        for (final UIContext uiContext : contexts) {
+            uiContext.destroy();
+        }
+        options.getExecutor().shutdown();
+
+        if (!warmup) {
+            log.info(String.format("%-9s %8.0f tasks/s, latency avg: %7.1f ms, max: %7.1f ms", mode, tasks / (elapsed / 1e9), totalLatency.get() / 1e6 / tasks, maxLatency.get() / 1e6));
+        }
+    }
+
+    private static UIContext newUIContext(final Application application) {
+        final UIContext uiContext = new UIContext(application);
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+        try {
+            PPusher.initialize().getTxContext().switchToPollingMode();
+            txn.commit();
+        } finally {
+            UIContext.remove();
+        }
+        return uiContext;
+    }
+
+}
@@ -0,0 +1,116 @@
+
+package com.ponysdk.test.bench;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.ObjectRegistry;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PLabel;
+import com.ponysdk.ui.server.basic.PObject;
+
+/**
+ * Registration and lookup cost of the {@link ObjectRegistry} for large UIs, compared with the previous layout : maps of
+ * boxed IDs to weak references and back, the reference queue being polled on each access.
+ * <p>
+ * Usage: ObjectRegistryBenchmark [liveObjects] [rounds]
+ * </p>
+ */
+public class ObjectRegistryBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ObjectRegistryBenchmark.class);
+
+    private static final int LOOKUPS = 2000000;
+
+    public static void main(final String[] args) {
+        final int liveObjects = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        final UIContext uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+
+        try {
+            final PObject[] objects = new PObject[liveObjects];
+            for (int i = 0; i < liveObjects; i++) {
+                objects[i] = new PLabel();
+            }
+
+            final long[] lookups = new long[LOOKUPS];
+            final Random random = new Random(42);
+            for (int i = 0; i < LOOKUPS; i++) {
+                lookups[i] = objects[random.nextInt(liveObjects)].getID();
+            }
+
+            log.info("Live objects: " + liveObjects + ", rounds: " + rounds);
+            for (int round = 0; round < rounds; round++) {
+                final boolean warmup = round < rounds / 2;
+                runRegistry(objects, lookups, warmup);
+                runMaps(objects, lookups, warmup);
+            }
+        } finally {
+            txn.commit();
+            UIContext.remove();
+        }
+    }
+
+    private static void runRegistry(final PObject[] objects, final long[] lookups, final boolean warmup) {
+        long start = System.nanoTime();
+        final ObjectRegistry registry = new ObjectRegistry();
+        for (final PObject object : objects) {
+            registry.put(object.getID(), object);
+        }
+        final long registration = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (final long objectID : lookups) {
+            if (registry.get(objectID) != null) found++;
+        }
+        final long lookup = System.nanoTime() - start;
+
+        if (!warmup) report("ObjectRegistry", objects.length, registration, lookup, found);
+    }
+
+    private static void runMaps(final PObject[] objects, final long[] lookups, final boolean warmup) {
+        long start = System.nanoTime();
+        final ReferenceQueue<PObject> queue = new ReferenceQueue<PObject>();
+        final Map<Long, WeakReference<PObject>> referenceByObjectID = new ConcurrentHashMap<Long, WeakReference<PObject>>();
+        final Map<WeakReference<PObject>, Long> objectIDByReferences = new ConcurrentHashMap<WeakReference<PObject>, Long>();
+        for (final PObject object : objects) {
+            queue.poll();
+            final WeakReference<PObject> reference = new WeakReference<PObject>(object, queue);
+            referenceByObjectID.put(object.getID(), reference);
+            objectIDByReferences.put(reference, object.getID());
+        }
+        final long registration = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (final long objectID : lookups) {
+            queue.poll();
+            final WeakReference<PObject> reference = referenceByObjectID.get(objectID);
+            if (reference != null && reference.get() != null) found++;
+        }
+        final long lookup = System.nanoTime() - start;
+
+        if (!warmup) report("Maps", objects.length, registration, lookup, found);
+    }
+
+    private static void report(final String name, final int liveObjects, final long registration, final long lookup, final int found) {
+        log.info(String.format("%-18s register: %6.1f ns/object, lookup: %6.1f ns/op (%d found)", name, (double) registration / liveObjects, (double) lookup / LOOKUPS, found));
+    }
+
+}
@@ -0,0 +1,76 @@
+
+package com.ponysdk.test.bench;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PFlexTable;
+import com.ponysdk.ui.server.basic.PLabel;
+
+/**
+ * Cost of inserting and removing rows at the top of a {@link PFlexTable} as it grows, like a blotter receiving its
+ * latest rows first.
+ * <p>
+ * Usage: PFlexTableBenchmark [rows] [columns] [rounds]
+ * </p>
+ */
+public class PFlexTableBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(PFlexTableBenchmark.class);
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int columns = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+
+        final UIContext uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+
+        try {
+            log.info("Rows: " + rows + ", columns: " + columns + ", rounds: " + rounds);
+            for (int round = 0; round < rounds; round++) {
+                final boolean warmup = round < rounds / 2;
+                for (int size = rows / 8; size <= rows; size <<= 1) {
+                    run(size, columns, warmup);
+                }
+            }
+        } finally {
+            txn.commit();
+            UIContext.remove();
+        }
+    }
+
+    private static void run(final int rows, final int columns, final boolean warmup) {
+        final PFlexTable table = new PFlexTable();
+        final PLabel[] labels = new PLabel[rows * columns];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new PLabel();
+        }
+
+        long start = System.nanoTime();
+        for (int row = 0; row < rows; row++) {
+            table.insertRow(0);
+            for (int column = 0; column < columns; column++) {
+                table.setWidget(0, column, labels[row * columns + column]);
+            }
+        }
+        final long insertion = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int row = 0; row < rows; row++) {
+            table.removeRow(0);
+        }
+        final long removal = System.nanoTime() - start;
+
+        if (!warmup) log.info(String.format("%6d rows  insert at top: %8.2f us/row, remove at top: %8.2f us/row", rows, insertion / 1000d / rows, removal / 1000d / rows));
+    }
+
+}
@@ -0,0 +1,107 @@
+
+package com.ponysdk.test.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PHTML;
+import com.ponysdk.ui.server.list2.DefaultSimpleListView;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGrid;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.renderer.cell.RefreshableLabelCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
+import com.ponysdk.ui.server.list2.valueprovider.IdentityValueProvider;
+
+/**
+ * Cost of the keyed operations of a {@link RefreshableDataGrid} as it grows : updates of existing keys, removals and
+ * moves near the top.
+ * <p>
+ * Usage: RefreshableDataGridBenchmark [rows] [columns] [operations]
+ * </p>
+ */
+public class RefreshableDataGridBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshableDataGridBenchmark.class);
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int columns = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final int operations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        final UIContext uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+
+        try {
+            log.info("Rows: " + rows + ", columns: " + columns + ", operations: " + operations);
+            for (int round = 0; round < 4; round++) {
+                run(rows, columns, operations, round < 2);
+            }
+        } finally {
+            txn.commit();
+            UIContext.remove();
+        }
+        System.exit(0);
+    }
+
+    private static void run(final int rows, final int columns, final int operations, final boolean warmup) {
+        final RefreshableDataGrid<Long, String> grid = new RefreshableDataGrid<Long, String>(new DefaultSimpleListView());
+        for (int column = 0; column < columns; column++) {
+            final RefreshableDataGridColumnDescriptor<String, String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<String, String, PHTML>();
+            descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("C" + column));
+            descriptor.setCellRenderer(new RefreshableLabelCellRenderer<String>());
+            descriptor.setValueProvider(new IdentityValueProvider<String>());
+            grid.addDataGridColumnDescriptor(descriptor);
+        }
+
+        long start = System.nanoTime();
+        for (int row = 0; row < rows; row++) {
+            grid.setData((long) row, "Data " + row);
+        }
+        final long insertion = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            final int key = (i * 7919) % rows;
+            grid.setData((long) key, "Data " + key + " " + i);
+        }
+        final long update = System.nanoTime() - start;
+
+        final Map<Long, String> bulk = new HashMap<Long, String>();
+        for (int i = 0; i < operations; i++) {
+            final int key = (i * 7919) % rows;
+            bulk.put((long) key, "Bulk " + key);
+        }
+        start = System.nanoTime();
+        grid.setData(bulk);
+        final long bulkUpdate = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            grid.moveRow((long) (rows - 1 - i), 0);
+        }
+        final long move = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            grid.remove(0);
+        }
+        final long removal = System.nanoTime() - start;
+
+        if (!warmup) {
+            log.info(String.format("%6d rows  add: %7.2f us/row, update: %7.2f us/op, bulk update: %7.2f us/op, move to top: %7.2f us/op, remove at top: %7.2f us/op", rows,
+                    insertion / 1000d / rows, update / 1000d / operations, bulkUpdate / 1000d / bulk.size(), move / 1000d / operations, removal / 1000d / operations));
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+
+package com.ponysdk.test.bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.concurrent.UIScheduledThreadPoolExecutor;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.core.stm.TxnContext;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.ui.server.basic.PHTML;
+import com.ponysdk.ui.server.basic.PPusher;
+import com.ponysdk.ui.server.list2.DefaultSimpleListView;
+import com.ponysdk.ui.server.list2.refreshable.Cell;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGrid;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.renderer.cell.RefreshableLabelCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
+
+/**
+ * Cell updates and instruction volume of a {@link RefreshableDataGrid} fed by ticks changing one column of a row :
+ * without change detection, with change detection, and with change detection and conflated updates flushed every
+ * few ticks.
+ * <p>
+ * Usage: RefreshableDataGridTickBenchmark [rows] [columns] [ticks] [ticksPerFlush]
+ * </p>
+ */
+public class RefreshableDataGridTickBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshableDataGridTickBenchmark.class);
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        final int columns = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        final int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        final int ticksPerFlush = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        UIScheduledThreadPoolExecutor.initDefault();
+        final UIContext uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        final CountingTxnContext txnContext = new CountingTxnContext();
+        txn.begin(txnContext);
+        PPusher.initialize();
+
+        try {
+            log.info("Rows: " + rows + ", columns: " + columns + ", ticks: " + ticks + ", ticks per flush: " + ticksPerFlush);
+            for (int round = 0; round < 2; round++) {
+                run("Always updated", rows, columns, ticks, 0, false, txnContext, round == 0);
+                run("Change detection", rows, columns, ticks, 0, true, txnContext, round == 0);
+                run("Conflated", rows, columns, ticks, ticksPerFlush, true, txnContext, round == 0);
+            }
+        } finally {
+            txn.begin(new CountingTxnContext());
+            UIContext.remove();
+        }
+        System.exit(0);
+    }
+
+    private static void run(final String name, final int rows, final int columns, final int ticks, final int ticksPerFlush, final boolean changeDetection,
+            final CountingTxnContext txnContext, final boolean warmup) {
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        final RefreshableDataGrid<Long, String[]> grid = new RefreshableDataGrid<Long, String[]>(new DefaultSimpleListView());
+        for (int column = 0; column < columns; column++) {
+            final RefreshableDataGridColumnDescriptor<String[], String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<String[], String, PHTML>();
+            descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("C" + column));
+            descriptor.setCellRenderer(renderer);
+            descriptor.setValueProvider(new ColumnValueProvider(column));
+            if (changeDetection) descriptor.setEquality(RefreshableDataGridColumnDescriptor.EQUALS);
+            grid.addDataGridColumnDescriptor(descriptor);
+        }
+
+        final String[][] data = new String[rows][];
+        for (int row = 0; row < rows; row++) {
+            data[row] = new String[columns];
+            for (int column = 0; column < columns; column++) {
+                data[row][column] = "R" + row + "C" + column;
+            }
+            grid.setData((long) row, data[row]);
+        }
+
+        // The flushes are triggered by the benchmark, the scheduled one never comes due
+        if (ticksPerFlush > 0) grid.setConflationPeriod(1, TimeUnit.HOURS);
+
+        final Random random = new Random(42);
+        renderer.updates = 0;
+        txnContext.reset();
+        final long start = System.nanoTime();
+        for (int tick = 1; tick <= ticks; tick++) {
+            final int row = random.nextInt(rows);
+            final String[] values = data[row].clone();
+            values[random.nextInt(columns)] = "T" + tick;
+            data[row] = values;
+            grid.setData((long) row, values);
+            if (ticksPerFlush > 0 && tick % ticksPerFlush == 0) grid.flush();
+        }
+        grid.setConflationPeriod(0, TimeUnit.MILLISECONDS);
+        final long duration = System.nanoTime() - start;
+
+        if (!warmup) {
+            log.info(String.format("%-18s %9d cell updates, %9d instructions, %10d bytes, %8.1f ms", name, renderer.updates, txnContext.instructions, txnContext.bytes,
+                    duration / 1000000d));
+        }
+    }
+
+    private static class ColumnValueProvider implements ValueProvider<String[], String> {
+
+        private final int column;
+
+        ColumnValueProvider(final int column) {
+            this.column = column;
+        }
+
+        @Override
+        public String getValue(final String[] data) {
+            return data[column];
+        }
+    }
+
+    private static class CountingCellRenderer extends RefreshableLabelCellRenderer<String> {
+
+        private int updates;
+
+        @Override
+        public void update(final String value, final Cell<String, PHTML> previous) {
+            updates++;
+            super.update(value, previous);
+        }
+    }
+
+    private static class CountingTxnContext implements TxnContext {
+
+        private int instructions;
+
+        private long bytes;
+
+        void reset() {
+            instructions = 0;
+            bytes = 0;
+        }
+
+        @Override
+        public List<Instruction> setCurrentStacker(final List<Instruction> instructions) {
+            return null;
+        }
+
+        @Override
+        public void save(final Instruction instruction) {
+            instructions++;
+            bytes += instruction.toString().length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final boolean value) {
+            instructions++;
+            bytes += 16 + key.length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final long value) {
+            instructions++;
+            bytes += 16 + key.length() + Long.toString(value).length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final Object value) {
+            instructions++;
+            bytes += 16 + key.length() + String.valueOf(value).length();
+        }
+
+        @Override
+        public void flush() throws Exception {}
+
+        @Override
+        public void clear() {}
+    }
+
+}
@@ -0,0 +1,193 @@
+
+package com.ponysdk.test.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.instruction.Create;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.core.stm.TxnContext;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.ui.server.basic.PHTML;
+import com.ponysdk.ui.server.basic.event.PScrollEvent;
+import com.ponysdk.ui.server.list2.DataGridActivity;
+import com.ponysdk.ui.server.list2.DataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.DefaultSimpleListView;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.renderer.cell.RefreshableLabelCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.cell.TextCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
+import com.ponysdk.ui.server.list2.virtual.VirtualDataGrid;
+
+/**
+ * Server objects and instruction volume of a large result displayed in a {@link DataGridActivity}, which renders all
+ * its rows, with a widget per cell or with light text cells, and in a {@link VirtualDataGrid}, which renders the
+ * viewport then recycles its rows while scrolling.
+ * <p>
+ * Usage: VirtualDataGridBenchmark [rows] [columns] [scrollSteps]
+ * </p>
+ */
+public class VirtualDataGridBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualDataGridBenchmark.class);
+
+    private static final int ROW_HEIGHT = 20;
+
+    private static final int VIEWPORT_HEIGHT = 600;
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int columns = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        final int scrollSteps = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        final List<String[]> data = new ArrayList<String[]>(rows);
+        for (int row = 0; row < rows; row++) {
+            final String[] values = new String[columns];
+            for (int column = 0; column < columns; column++) {
+                values[column] = "R" + row + "C" + column;
+            }
+            data.add(values);
+        }
+
+        final UIContext uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        final CountingTxnContext txnContext = new CountingTxnContext();
+        txn.begin(txnContext);
+
+        try {
+            log.info("Rows: " + rows + ", columns: " + columns);
+
+            final DataGridActivity<String[]> grid = new DataGridActivity<String[]>(new DefaultSimpleListView());
+            for (int column = 0; column < columns; column++) {
+                final DataGridColumnDescriptor<String[], String> descriptor = new DataGridColumnDescriptor<String[], String>();
+                descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("C" + column));
+                descriptor.setCellRenderer(new RefreshableLabelCellRenderer<String>());
+                descriptor.setValueProvider(new ColumnValueProvider(column));
+                grid.addDataGridColumnDescriptor(descriptor);
+            }
+            txnContext.reset();
+            long start = System.nanoTime();
+            grid.setData(data);
+            txnContext.report("DataGridActivity setData", System.nanoTime() - start);
+
+            final DataGridActivity<String[]> lightGrid = new DataGridActivity<String[]>(new DefaultSimpleListView());
+            for (int column = 0; column < columns; column++) {
+                final DataGridColumnDescriptor<String[], String> descriptor = new DataGridColumnDescriptor<String[], String>();
+                descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("C" + column));
+                descriptor.setCellRenderer(new TextCellRenderer<String>());
+                descriptor.setValueProvider(new ColumnValueProvider(column));
+                lightGrid.addDataGridColumnDescriptor(descriptor);
+            }
+            txnContext.reset();
+            start = System.nanoTime();
+            lightGrid.setData(data);
+            txnContext.report("DataGridActivity light cells", System.nanoTime() - start);
+
+            final VirtualDataGrid<String[]> virtualGrid = new VirtualDataGrid<String[]>(new DefaultSimpleListView(), ROW_HEIGHT);
+            for (int column = 0; column < columns; column++) {
+                final RefreshableDataGridColumnDescriptor<String[], String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<String[], String, PHTML>();
+                descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("C" + column));
+                descriptor.setCellRenderer(new RefreshableLabelCellRenderer<String>());
+                descriptor.setValueProvider(new ColumnValueProvider(column));
+                virtualGrid.addDataGridColumnDescriptor(descriptor);
+            }
+            txnContext.reset();
+            start = System.nanoTime();
+            virtualGrid.setData(data);
+            virtualGrid.onScroll(new PScrollEvent(virtualGrid.asWidget(), 0, VIEWPORT_HEIGHT));
+            txnContext.report("VirtualDataGrid setData", System.nanoTime() - start);
+
+            txnContext.reset();
+            start = System.nanoTime();
+            final int maxPosition = (rows + 1) * ROW_HEIGHT - VIEWPORT_HEIGHT;
+            for (int step = 1; step <= scrollSteps; step++) {
+                virtualGrid.onScroll(new PScrollEvent(virtualGrid.asWidget(), (int) ((long) maxPosition * step / scrollSteps), VIEWPORT_HEIGHT));
+            }
+            txnContext.report("VirtualDataGrid " + scrollSteps + " scrolls", System.nanoTime() - start);
+            log.info("Materialized rows: " + virtualGrid.getMaterializedRowCount());
+        } finally {
+            txn.begin(new CountingTxnContext());
+            UIContext.remove();
+        }
+        System.exit(0);
+    }
+
+    private static class ColumnValueProvider implements ValueProvider<String[], String> {
+
+        private final int column;
+
+        ColumnValueProvider(final int column) {
+            this.column = column;
+        }
+
+        @Override
+        public String getValue(final String[] data) {
+            return data[column];
+        }
+    }
+
+    private static class CountingTxnContext implements TxnContext {
+
+        private int instructions;
+
+        private int creates;
+
+        private long bytes;
+
+        void reset() {
+            instructions = 0;
+            creates = 0;
+            bytes = 0;
+        }
+
+        void report(final String name, final long duration) {
+            log.info(String.format("%-28s %8d creates, %8d instructions, %10d bytes, %8.1f ms", name, creates, instructions, bytes, duration / 1000000d));
+        }
+
+        @Override
+        public List<Instruction> setCurrentStacker(final List<Instruction> instructions) {
+            return null;
+        }
+
+        @Override
+        public void save(final Instruction instruction) {
+            instructions++;
+            if (instruction instanceof Create) creates++;
+            bytes += instruction.toString().length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final boolean value) {
+            instructions++;
+            bytes += 16 + key.length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final long value) {
+            instructions++;
+            bytes += 16 + key.length() + Long.toString(value).length();
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final Object value) {
+            instructions++;
+            bytes += 16 + key.length() + String.valueOf(value).length();
+        }
+
+        @Override
+        public void flush() throws Exception {}
+
+        @Override
+        public void clear() {}
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.ponysdk.test.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.ObjectRegistry;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.instruction.GCBatch;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PLabel;
+import com.ponysdk.ui.server.basic.PObject;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+
+public class ObjectRegistryTest {
+
+    private Txn txn;
+
+    @Before
+    public void beforeTest() {
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), new ApplicationManagerOption())));
+        txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+    }
+
+    @After
+    public void afterTest() {
+        txn.commit();
+        UIContext.remove();
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        final ObjectRegistry registry = new ObjectRegistry(4);
+        final PLabel a = new PLabel();
+        final PLabel b = new PLabel();
+
+        registry.put(1, a);
+        registry.put(2, b);
+        Assert.assertEquals(2, registry.size());
+        Assert.assertSame(a, registry.get(1));
+        Assert.assertSame(b, registry.get(2));
+        Assert.assertNull(registry.get(3));
+
+        registry.put(1, b);
+        Assert.assertEquals(2, registry.size());
+        Assert.assertSame(b, registry.get(1));
+
+        Assert.assertSame(b, registry.remove(1));
+        Assert.assertNull(registry.get(1));
+        Assert.assertNull(registry.remove(1));
+        Assert.assertEquals(1, registry.size());
+        Assert.assertSame(b, registry.get(2));
+    }
+
+    @Test
+    public void testResize() {
+        final ObjectRegistry registry = new ObjectRegistry(1);
+        final List<PObject> objects = new ArrayList<PObject>();
+        for (int i = 0; i < 5000; i++) {
+            final PLabel label = new PLabel();
+            objects.add(label);
+            registry.put(i, label);
+        }
+
+        Assert.assertEquals(5000, registry.size());
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertSame(objects.get(i), registry.get(i));
+        }
+    }
+
+    // A small table stays densely populated, deletions have to keep the probe chains of the other keys reachable
+    @Test
+    public void testRandomOperationsAgainstHashMap() {
+        final Random random = new Random(42);
+        final ObjectRegistry registry = new ObjectRegistry(8);
+        final Map<Long, PObject> expected = new HashMap<Long, PObject>();
+        final PObject[] objects = new PObject[64];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new PLabel();
+        }
+
+        for (int i = 0; i < 100000; i++) {
+            final long objectID = random.nextInt(48);
+            if (random.nextInt(3) == 0) {
+                Assert.assertSame(expected.remove(objectID), registry.remove(objectID));
+            } else {
+                final PObject object = objects[random.nextInt(objects.length)];
+                expected.put(objectID, object);
+                registry.put(objectID, object);
+            }
+
+            Assert.assertEquals(expected.size(), registry.size());
+            if (i % 100 == 0) {
+                for (long id = 0; id < 48; id++) {
+                    Assert.assertSame(expected.get(id), registry.get(id));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCollectGarbage() throws Exception {
+        final ObjectRegistry registry = new ObjectRegistry();
+        final PLabel kept = new PLabel();
+        registry.put(1, kept);
+        registry.assignParentID(1, 0);
+        // Never attached to a parent, not released on the terminal
+        registry.put(2, new PLabel());
+        for (long objectID = 3; objectID < 10; objectID++) {
+            registry.put(objectID, new PLabel());
+            registry.assignParentID(objectID, 1);
+        }
+
+        final Set<Long> released = new HashSet<Long>();
+        final EmptyTxnContext txnContext = new EmptyTxnContext() {
+
+            @Override
+            public void save(final Instruction instruction) {
+                Assert.assertTrue(instruction instanceof GCBatch);
+                final JSONArray objectIDs = instruction.optJSONArray(PROPERTY.OBJECT_IDS);
+                for (int i = 0; i < objectIDs.length(); i++) {
+                    released.add(objectIDs.optLong(i));
+                }
+            }
+        };
+
+        for (int i = 0; i < 100 && registry.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            registry.collectGarbage(txnContext);
+            registry.commitGarbage();
+        }
+
+        Assert.assertEquals(1, registry.size());
+        Assert.assertSame(kept, registry.get(1));
+        for (long objectID = 2; objectID < 10; objectID++) {
+            Assert.assertNull(registry.get(objectID));
+        }
+        Assert.assertEquals(7, released.size());
+        Assert.assertFalse(released.contains(2L));
+    }
+
+    @Test
+    public void testRollbackReleasesAgain() throws Exception {
+        final ObjectRegistry registry = new ObjectRegistry();
+        registry.put(1, new PLabel());
+        registry.assignParentID(1, 0);
+
+        final List<Instruction> batches = new ArrayList<Instruction>();
+        final EmptyTxnContext txnContext = new EmptyTxnContext() {
+
+            @Override
+            public void save(final Instruction instruction) {
+                batches.add(instruction);
+            }
+        };
+
+        for (int i = 0; i < 100 && batches.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(10);
+            registry.collectGarbage(txnContext);
+        }
+        Assert.assertEquals(1, batches.size());
+        // Kept until the transaction is flushed
+        Assert.assertEquals(1, registry.size());
+
+        registry.rollbackGarbage();
+        registry.collectGarbage(txnContext);
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(1L, batches.get(1).optJSONArray(PROPERTY.OBJECT_IDS).optLong(0));
+
+        registry.commitGarbage();
+        Assert.assertEquals(0, registry.size());
+        registry.collectGarbage(txnContext);
+        Assert.assertEquals(2, batches.size());
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.ponysdk.test.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PPusher;
+
+public class UIContextTest {
+
+    private UIContext uiContext;
+
+    @Before
+    public void beforeTest() {
+        uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.remove();
+    }
+
+    @After
+    public void afterTest() {
+        UIContext.remove();
+    }
+
+    @Test
+    public void testExecuteWithoutPusherRunsUnderTheLock() {
+        final AtomicBoolean locked = new AtomicBoolean();
+        uiContext.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                locked.set(uiContext.isAcquiredByCurrentThread() && UIContext.get() == uiContext);
+            }
+        });
+        Assert.assertTrue(locked.get());
+        Assert.assertFalse(uiContext.isAcquiredByCurrentThread());
+        Assert.assertNull(UIContext.get());
+    }
+
+    @Test
+    public void testSubmitterNeverWaitsForABusyScreen() throws Exception {
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+        PPusher.initialize();
+        txn.commit();
+        UIContext.remove();
+
+        final CountDownLatch ran = new CountDownLatch(1);
+        final Thread submitter = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                uiContext.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        ran.countDown();
+                    }
+                });
+            }
+        });
+
+        // As an HTTP request would
+        uiContext.acquire();
+        try {
+            submitter.start();
+            submitter.join(TimeUnit.SECONDS.toMillis(5));
+            Assert.assertFalse(submitter.isAlive());
+            Assert.assertFalse(ran.await(50, TimeUnit.MILLISECONDS));
+        } finally {
+            uiContext.release();
+        }
+
+        // The drain is retried once the screen is released
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.ponysdk.test.core.command;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.command.AbstractServiceCommand;
+import com.ponysdk.core.command.AsyncCommandExecutor;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PPusher;
+
+public class AsyncCommandExecutorTest {
+
+    private UIContext uiContext;
+
+    @Before
+    public void beforeTest() {
+        uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+        PPusher.initialize();
+        txn.commit();
+    }
+
+    @After
+    public void afterTest() {
+        UIContext.remove();
+    }
+
+    @Test
+    public void testSuccess() throws Exception {
+        final TestCommand command = new TestCommand("result", null, null);
+        AsyncCommandExecutor.get().submit("success", command, 0, TimeUnit.SECONDS);
+
+        command.await();
+        Assert.assertEquals("result", command.result);
+        Assert.assertNull(command.caught);
+        Assert.assertTrue(command.appliedOnScreen);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final IllegalStateException error = new IllegalStateException("backend down");
+        final TestCommand command = new TestCommand(null, error, null);
+        AsyncCommandExecutor.get().submit("failure", command, 0, TimeUnit.SECONDS);
+
+        command.await();
+        Assert.assertNull(command.result);
+        Assert.assertSame(error, command.caught);
+        Assert.assertTrue(command.appliedOnScreen);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final TestCommand command = new TestCommand("late", null, blocked);
+        AsyncCommandExecutor.get().submit("timeout", command, 50, TimeUnit.MILLISECONDS);
+
+        command.await();
+        blocked.countDown();
+        Assert.assertNull(command.result);
+        Assert.assertTrue(command.caught instanceof TimeoutException);
+    }
+
+    @Test
+    public void testRejection() throws Exception {
+        final AsyncCommandExecutor executor = AsyncCommandExecutor.get();
+        executor.setBulkhead("rejection", 1, 1);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final TestCommand running = new TestCommand("running", null, blocked);
+        final TestCommand queued = new TestCommand("queued", null, null);
+        final TestCommand rejected = new TestCommand("rejected", null, null);
+        // Like UI client code, the caller holds the screen
+        uiContext.acquire();
+        try {
+            executor.submit("rejection", running, 0, TimeUnit.SECONDS);
+            executor.submit("rejection", queued, 0, TimeUnit.SECONDS);
+            executor.submit("rejection", rejected, 0, TimeUnit.SECONDS);
+
+            // Not applied within submit, nor while the caller holds the screen
+            Thread.sleep(50);
+            Assert.assertEquals(1, rejected.applied.getCount());
+        } finally {
+            uiContext.release();
+        }
+
+        rejected.await();
+        Assert.assertTrue(rejected.caught instanceof RejectedExecutionException);
+        Assert.assertFalse(rejected.appliedOnCaller);
+        Assert.assertTrue(rejected.appliedOnScreen);
+
+        blocked.countDown();
+        running.await();
+        queued.await();
+        Assert.assertEquals("running", running.result);
+        Assert.assertEquals("queued", queued.result);
+    }
+
+    private class TestCommand extends AbstractServiceCommand<String> {
+
+        private final String value;
+
+        private final RuntimeException error;
+
+        private final CountDownLatch blocked;
+
+        private final Thread caller = Thread.currentThread();
+
+        private final CountDownLatch applied = new CountDownLatch(1);
+
+        private volatile String result;
+
+        private volatile Throwable caught;
+
+        private volatile boolean appliedOnCaller;
+
+        private volatile boolean appliedOnScreen;
+
+        TestCommand(final String value, final RuntimeException error, final CountDownLatch blocked) {
+            this.value = value;
+            this.error = error;
+            this.blocked = blocked;
+        }
+
+        @Override
+        protected String execute0() {
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (error != null) throw error;
+            return value;
+        }
+
+        @Override
+        public void onSuccess(final String result) {
+            this.result = result;
+            done();
+        }
+
+        @Override
+        public void onFailure(final Throwable caught) {
+            this.caught = caught;
+            done();
+        }
+
+        private void done() {
+            appliedOnCaller = Thread.currentThread() == caller;
+            appliedOnScreen = UIContext.get() == uiContext && uiContext.isAcquiredByCurrentThread();
+            applied.countDown();
+        }
+
+        void await() throws InterruptedException {
+            Assert.assertTrue(applied.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.ponysdk.test.core.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.concurrent.UIScheduledThreadPoolExecutor;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PPusher;
+
+public class UIScheduledThreadPoolExecutorTest {
+
+    private static UIScheduledThreadPoolExecutor executor;
+
+    private UIContext uiContext;
+
+    @BeforeClass
+    public static void beforeClass() {
+        if (UIScheduledThreadPoolExecutor.get() == null) UIScheduledThreadPoolExecutor.initDefault();
+        executor = UIScheduledThreadPoolExecutor.get();
+    }
+
+    @Before
+    public void beforeTest() {
+        uiContext = new UIContext(new Application(new EmptySession(), new ApplicationManagerOption()));
+        UIContext.setCurrent(uiContext);
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+        PPusher.initialize();
+        txn.commit();
+        // Scheduling requires the screen, the tasks run from the executor
+        UIContext.setCurrent(uiContext);
+    }
+
+    @After
+    public void afterTest() {
+        UIContext.remove();
+    }
+
+    @Test
+    public void testOneShotTaskUnregisteredOnceRun() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(2);
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        };
+        final ScheduledFuture<?> immediate = executor.schedule(task, 0, TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> delayed = executor.schedule(task, 20, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getTaskCount(uiContext));
+        Assert.assertTrue(immediate.isDone());
+        Assert.assertTrue(delayed.isDone());
+        Assert.assertFalse(delayed.cancel(false));
+        Assert.assertFalse(delayed.isCancelled());
+    }
+
+    @Test
+    public void testCancellation() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch ran = new CountDownLatch(1);
+        final ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+                ran.countDown();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> delayed = executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 1, TimeUnit.HOURS);
+        Assert.assertEquals(2, executor.getTaskCount(uiContext));
+
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(periodic.cancel(false));
+        Assert.assertTrue(periodic.isCancelled());
+        Assert.assertTrue(periodic.isDone());
+        Assert.assertTrue(delayed.cancel(false));
+        Assert.assertTrue(delayed.isCancelled());
+        Assert.assertEquals(0, executor.getTaskCount(uiContext));
+
+        // A run already queued in the mailbox of the screen is skipped
+        Thread.sleep(100);
+        final int count = runs.get();
+        Thread.sleep(100);
+        Assert.assertEquals(count, runs.get());
+    }
+
+    @Test
+    public void testTasksCancelledOnDestroy() {
+        final List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {}
+            }, 1, 1, TimeUnit.HOURS));
+        }
+        Assert.assertEquals(3, executor.getTaskCount(uiContext));
+
+        UIContext.remove();
+        uiContext.destroy();
+        Assert.assertEquals(0, executor.getTaskCount(uiContext));
+        for (final ScheduledFuture<?> future : futures) {
+            Assert.assertTrue(future.isCancelled());
+        }
+    }
+
+    @Test
+    public void testCompaction() {
+        // Cancellations left by the other tests
+        executor.compact();
+
+        final List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(executor.schedule(new Runnable() {
+
+                @Override
+                public void run() {}
+            }, 1, TimeUnit.HOURS));
+        }
+        // Nothing to purge
+        Assert.assertEquals(0, executor.compact());
+
+        for (final ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        Assert.assertEquals(100, executor.compact());
+        Assert.assertEquals(0, executor.compact());
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.ponysdk.test.core.servlet;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.UIContextListener;
+import com.ponysdk.core.servlet.CommunicationSanityChecker;
+import com.ponysdk.test.server.mock.EmptySession;
+
+/**
+ * The started checkers are armed in the timing wheel shared by all the screens, see
+ * {@link CommunicationSanityChecker#getStartedCount()}.
+ */
+public class CommunicationSanityCheckerTest {
+
+    private Application application;
+
+    private int startedCount;
+
+    @Before
+    public void beforeTest() {
+        // The heartbeat of the screens themselves is disabled
+        application = new Application(new EmptySession(), new ApplicationManagerOption());
+        startedCount = CommunicationSanityChecker.getStartedCount();
+    }
+
+    @Test
+    public void testArmAndDisarm() {
+        final TestChecker checker = new TestChecker(new UIContext(application), TimeUnit.MINUTES.toMillis(1));
+        final TestChecker other = new TestChecker(new UIContext(application), TimeUnit.MINUTES.toMillis(1));
+
+        checker.start();
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+        checker.start();
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+        other.start();
+        Assert.assertEquals(startedCount + 2, CommunicationSanityChecker.getStartedCount());
+
+        checker.stop();
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+        checker.stop();
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+        other.stop();
+        Assert.assertEquals(startedCount, CommunicationSanityChecker.getStartedCount());
+
+        checker.start();
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+        checker.stop();
+        Assert.assertEquals(startedCount, CommunicationSanityChecker.getStartedCount());
+    }
+
+    @Test
+    public void testDisabledCheckerNeverArmed() {
+        final TestChecker checker = new TestChecker(new UIContext(application), 0);
+        checker.start();
+        Assert.assertEquals(startedCount, CommunicationSanityChecker.getStartedCount());
+        checker.stop();
+        Assert.assertEquals(startedCount, CommunicationSanityChecker.getStartedCount());
+    }
+
+    @Test
+    public void testSilentScreenDestroyed() throws Exception {
+        final UIContext uiContext = new UIContext(application);
+        final CountDownLatch destroyed = new CountDownLatch(1);
+        uiContext.addUIContextListener(new UIContextListener() {
+
+            @Override
+            public void onUIContextDestroyed(final UIContext uiContext) {
+                destroyed.countDown();
+            }
+        });
+
+        final TestChecker checker = new TestChecker(uiContext, 100);
+        checker.start();
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+
+        // Suspected on a first revolution of the wheel, expired on the next one
+        Assert.assertTrue(destroyed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(startedCount, CommunicationSanityChecker.getStartedCount());
+    }
+
+    @Test
+    public void testTalkingScreenKept() throws Exception {
+        final TestChecker checker = new TestChecker(new UIContext(application), 300);
+        checker.start();
+        final long end = System.currentTimeMillis() + 2500;
+        while (System.currentTimeMillis() < end) {
+            checker.onMessageReceived();
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(startedCount + 1, CommunicationSanityChecker.getStartedCount());
+        checker.stop();
+    }
+
+    @Test
+    public void testConcurrentStartAndStop() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            final TestChecker checker = new TestChecker(new UIContext(application), TimeUnit.MINUTES.toMillis(1));
+            checker.start();
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final Thread starter = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    await(barrier);
+                    checker.stop();
+                    checker.start();
+                }
+            });
+            final Thread stopper = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    await(barrier);
+                    checker.stop();
+                }
+            });
+            starter.start();
+            stopper.start();
+            starter.join();
+            stopper.join();
+
+            // Armed if and only if started, whatever the interleaving
+            Assert.assertEquals(startedCount + (checker.isStarted() ? 1 : 0), CommunicationSanityChecker.getStartedCount());
+            checker.stop();
+            Assert.assertEquals(startedCount, CommunicationSanityChecker.getStartedCount());
+        }
+    }
+
+    private static void await(final CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class TestChecker extends CommunicationSanityChecker {
+
+        TestChecker(final UIContext uiContext, final long heartBeatPeriod) {
+            super(uiContext);
+            this.heartBeatPeriod = heartBeatPeriod;
+        }
+
+        boolean isStarted() {
+            return started.get();
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.ponysdk.test.core.servlet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpSessionEvent;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.servlet.ApplicationLoader;
+import com.ponysdk.core.servlet.Session;
+import com.ponysdk.core.servlet.SessionManager;
+import com.ponysdk.core.servlet.SessionType;
+import com.ponysdk.core.useragent.Browser;
+import com.ponysdk.core.useragent.OperatingSystem;
+import com.ponysdk.core.useragent.UserAgent;
+
+/**
+ * The sessions are created and destroyed through the {@link ApplicationLoader}, as the servlet container does.
+ */
+public class SessionManagerTest {
+
+    private static final AtomicInteger sessionCount = new AtomicInteger();
+
+    private static final UserAgent USER_AGENT = new UserAgent(OperatingSystem.LINUX, Browser.FIREFOX);
+
+    private final SessionManager sessionManager = SessionManager.get();
+
+    private final ApplicationLoader loader = new ApplicationLoader();
+
+    private TestSession session;
+
+    @Before
+    public void beforeTest() {
+        session = new TestSession("SessionManagerTest-" + sessionCount.incrementAndGet());
+        loader.sessionCreated(new HttpSessionEvent(session.httpSession));
+    }
+
+    @Test
+    public void testRegister() {
+        Assert.assertNotNull(sessionManager.getSession(session.getId()));
+        Assert.assertTrue(sessionManager.getSessions().contains(sessionManager.getSession(session.getId())));
+
+        final int applicationCount = sessionManager.getApplicationCount();
+        final int userAgentCount = sessionManager.getApplicationCount(USER_AGENT);
+        final Application application = newApplication();
+        Assert.assertSame(application, sessionManager.getApplication(session));
+        Assert.assertTrue(sessionManager.getApplications().contains(application));
+        Assert.assertEquals(applicationCount + 1, sessionManager.getApplicationCount());
+        Assert.assertEquals(userAgentCount + 1, sessionManager.getApplicationCount(USER_AGENT));
+        Assert.assertTrue(sessionManager.getUserAgentIDs().contains(USER_AGENT.getId()));
+
+        // Registered once
+        sessionManager.registerApplication(application);
+        Assert.assertEquals(applicationCount + 1, sessionManager.getApplicationCount());
+        Assert.assertEquals(userAgentCount + 1, sessionManager.getApplicationCount(USER_AGENT));
+
+        final int uiContextCount = sessionManager.getUIContextCount();
+        final UIContext uiContext = new UIContext(application);
+        Assert.assertSame(uiContext, sessionManager.findUIContext(uiContext.getUiContextID()));
+        Assert.assertTrue(sessionManager.getUIContexts().contains(uiContext));
+        Assert.assertEquals(uiContextCount + 1, sessionManager.getUIContextCount());
+    }
+
+    @Test
+    public void testUnregisterOnUIContextDestroy() {
+        final Application application = newApplication();
+        final UIContext first = new UIContext(application);
+        final UIContext second = new UIContext(application);
+
+        first.destroy();
+        Assert.assertNull(sessionManager.findUIContext(first.getUiContextID()));
+        Assert.assertFalse(sessionManager.getUIContexts().contains(first));
+        Assert.assertSame(second, sessionManager.findUIContext(second.getUiContextID()));
+        Assert.assertFalse(session.invalidated);
+        Assert.assertSame(application, sessionManager.getApplication(session));
+
+        // The last UIContext invalidates the session
+        final int userAgentCount = sessionManager.getApplicationCount(USER_AGENT);
+        second.destroy();
+        Assert.assertNull(sessionManager.findUIContext(second.getUiContextID()));
+        Assert.assertTrue(session.invalidated);
+        Assert.assertNull(sessionManager.getSession(session.getId()));
+        Assert.assertNull(sessionManager.getApplication(session));
+        Assert.assertEquals(userAgentCount - 1, sessionManager.getApplicationCount(USER_AGENT));
+    }
+
+    @Test
+    public void testSessionInvalidation() {
+        final Application application = newApplication();
+        final UIContext first = new UIContext(application);
+        final UIContext second = new UIContext(application);
+        final int uiContextCount = sessionManager.getUIContextCount();
+        final int applicationCount = sessionManager.getApplicationCount();
+
+        // Expired by the container with live UIContexts
+        session.invalidate();
+        Assert.assertNull(sessionManager.getSession(session.getId()));
+        Assert.assertNull(sessionManager.getApplication(session));
+        Assert.assertFalse(sessionManager.getApplications().contains(application));
+        Assert.assertEquals(applicationCount - 1, sessionManager.getApplicationCount());
+        Assert.assertNull(sessionManager.findUIContext(first.getUiContextID()));
+        Assert.assertNull(sessionManager.findUIContext(second.getUiContextID()));
+        Assert.assertEquals(uiContextCount - 2, sessionManager.getUIContextCount());
+    }
+
+    @Test
+    public void testFindUIContextAfterRemoval() {
+        final UIContext uiContext = new UIContext(newApplication());
+        final long uiContextID = uiContext.getUiContextID();
+        Assert.assertSame(uiContext, sessionManager.findUIContext(uiContextID));
+
+        sessionManager.unregisterUIContext(uiContextID);
+        Assert.assertNull(sessionManager.findUIContext(uiContextID));
+        Assert.assertFalse(sessionManager.getUIContexts().contains(uiContext));
+        // Unregistered twice
+        sessionManager.unregisterUIContext(uiContextID);
+        Assert.assertNull(sessionManager.findUIContext(uiContextID));
+    }
+
+    private Application newApplication() {
+        final Application application = new Application(session, new ApplicationManagerOption());
+        sessionManager.registerApplication(application);
+        return application;
+    }
+
+    /**
+     * Session whose invalidation is notified to the loader, as the servlet container does
+     */
+    private class TestSession implements Session {
+
+        private final String id;
+
+        private final javax.servlet.http.HttpSession httpSession;
+
+        private boolean invalidated;
+
+        TestSession(final String id) {
+            this.id = id;
+            this.httpSession = (javax.servlet.http.HttpSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { javax.servlet.http.HttpSession.class },
+                    new InvocationHandler() {
+
+                        @Override
+                        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                            if ("getId".equals(method.getName())) return TestSession.this.id;
+                            if ("invalidate".equals(method.getName())) TestSession.this.invalidate();
+                            return null;
+                        }
+                    });
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void invalidate() {
+            if (invalidated) return;
+            invalidated = true;
+            loader.sessionDestroyed(new HttpSessionEvent(httpSession));
+        }
+
+        @Override
+        public boolean isValid() {
+            return !invalidated;
+        }
+
+        @Override
+        public UserAgent getUserAgent() {
+            return USER_AGENT;
+        }
+
+        @Override
+        public void setUserAgent(final String attribute) {}
+
+        @Override
+        public void setAttribute(final String name, final Object value) {}
+
+        @Override
+        public Object getAttribute(final String name) {
+            return null;
+        }
+
+        @Override
+        public SessionType getSessionType() {
+            return SessionType.HTTP;
+        }
+    }
+
+}
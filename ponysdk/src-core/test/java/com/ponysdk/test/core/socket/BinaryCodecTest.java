@@ -0,0 +1,314 @@
+package com.ponysdk.test.core.socket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.gwt.typedarrays.shared.ArrayBuffer;
+import com.google.gwt.typedarrays.shared.TypedArrays;
+import com.google.gwt.typedarrays.shared.Uint8Array;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.socket.BinaryEncoder;
+import com.ponysdk.core.stm.InstructionRecorder;
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+import com.ponysdk.ui.terminal.socket.BinaryReader;
+
+/**
+ * Frames are encoded with the {@link BinaryEncoder} and read back with the {@link BinaryReader} of the terminal,
+ * building plain maps and lists instead of the JSON objects of the browser.
+ */
+public class BinaryCodecTest {
+
+    private final BinaryEncoder encoder = new BinaryEncoder(16);
+
+    @Test
+    public void testInstructions() throws Exception {
+        final Instruction create = new Instruction(12);
+        create.put(TYPE.KEY, TYPE.KEY_.CREATE);
+        create.put(PROPERTY.TEXT, "text");
+        create.put(PROPERTY.ENABLED, false);
+        create.put(PROPERTY.CLEAR, true);
+        create.put(PROPERTY.VALUE, JSONObject.NULL);
+
+        final Update update = new Update(13);
+        final JSONObject nested = new JSONObject();
+        final JSONArray array = new JSONArray();
+        array.put(1);
+        array.put("two");
+        array.put(JSONObject.NULL);
+        array.put(new JSONArray());
+        nested.put(PROPERTY.ROW, 4);
+        nested.put(PROPERTY.HTML, array);
+        nested.put(PROPERTY.STYLE_NAME, new JSONObject());
+        update.put(PROPERTY.CELL, nested);
+
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.record(create);
+        recorder.record(update);
+
+        final Map<String, Object> frame = roundTrip(7, recorder);
+        Assert.assertEquals(7.0, frame.get(APPLICATION.SEQ_NUM));
+        final List<?> instructions = (List<?>) frame.get(APPLICATION.INSTRUCTIONS);
+        Assert.assertEquals(2, instructions.size());
+        Assert.assertEquals(normalize(create), instructions.get(0));
+        Assert.assertEquals(normalize(update), instructions.get(1));
+    }
+
+    @Test
+    public void testRecordedUpdates() {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("a", 1);
+        map.put("b", Arrays.asList("x", null, 2.5));
+
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.recordUpdate(1, PROPERTY.ENABLED, true);
+        recorder.recordUpdate(2, PROPERTY.ROW, -42L);
+        recorder.recordUpdate(3, PROPERTY.TEXT, "text");
+        recorder.recordUpdate(4, PROPERTY.VALUE, map);
+        recorder.recordUpdate(5, PROPERTY.VALUE, null);
+
+        final List<?> instructions = (List<?>) roundTrip(0, recorder).get(APPLICATION.INSTRUCTIONS);
+        Assert.assertEquals(update(1, PROPERTY.ENABLED, true), instructions.get(0));
+        Assert.assertEquals(update(2, PROPERTY.ROW, -42.0), instructions.get(1));
+        Assert.assertEquals(update(3, PROPERTY.TEXT, "text"), instructions.get(2));
+        Assert.assertEquals(update(4, PROPERTY.VALUE, normalize(map)), instructions.get(3));
+        Assert.assertEquals(update(5, PROPERTY.VALUE, JSONObject.NULL), instructions.get(4));
+    }
+
+    @Test
+    public void testSymbolTableReuse() {
+        final InstructionRecorder recorder = new InstructionRecorder();
+        for (int i = 0; i < 50; i++) {
+            recorder.recordUpdate(i, PROPERTY.TEXT, "v" + i);
+        }
+
+        final List<?> instructions = (List<?>) roundTrip(0, recorder).get(APPLICATION.INSTRUCTIONS);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(update(i, PROPERTY.TEXT, "v" + i), instructions.get(i));
+        }
+
+        // The type and the key of the second update are indexes of the symbol table
+        recorder.clear();
+        recorder.recordUpdate(1, PROPERTY.TEXT, "a");
+        final int length = encodedLength(recorder);
+        recorder.recordUpdate(2, PROPERTY.TEXT, "a");
+        // flags, type, object ID, property count, key, tag, string length and string
+        Assert.assertEquals(length + 8, encodedLength(recorder));
+
+        // The table is the one of the frame
+        recorder.clear();
+        recorder.recordUpdate(1, PROPERTY.TEXT, "a");
+        Assert.assertEquals(length, encodedLength(recorder));
+        final List<?> nextInstructions = (List<?>) roundTrip(1, recorder).get(APPLICATION.INSTRUCTIONS);
+        Assert.assertEquals(update(1, PROPERTY.TEXT, "a"), nextInstructions.get(0));
+    }
+
+    @Test
+    public void testIntegerBoundaries() {
+        // Around the 7 bits groups of the zigzag varints, the terminal reads exactly up to 2^52
+        final long[] values = { 0, 1, -1, 63, -64, 64, -65, 8191, -8192, 8192, -8193, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                1L << 35, -(1L << 35), 1L << 52, -(1L << 52) };
+        final InstructionRecorder recorder = new InstructionRecorder();
+        for (int i = 0; i < values.length; i++) {
+            recorder.recordUpdate(values[i], PROPERTY.ROW, values[i]);
+        }
+
+        final List<?> instructions = (List<?>) roundTrip(0, recorder).get(APPLICATION.INSTRUCTIONS);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(update(values[i], PROPERTY.ROW, (double) values[i]), instructions.get(i));
+        }
+
+        // Single byte up to 63 and down to -64
+        Assert.assertEquals(1, varLongLength(63));
+        Assert.assertEquals(1, varLongLength(-64));
+        Assert.assertEquals(2, varLongLength(64));
+        Assert.assertEquals(2, varLongLength(-65));
+        Assert.assertEquals(2, varLongLength(8191));
+        Assert.assertEquals(3, varLongLength(8192));
+    }
+
+    @Test
+    public void testSequenceNumbers() {
+        final long[] seqNums = { 0, 127, 128, 16383, 16384, Integer.MAX_VALUE, (1L << 53) - 1 };
+        for (final long seqNum : seqNums) {
+            Assert.assertEquals((double) seqNum, roundTrip(seqNum, new InstructionRecorder()).get(APPLICATION.SEQ_NUM));
+        }
+    }
+
+    @Test
+    public void testDoubles() {
+        final Object[] values = { 0.5, -1.25, -0.0, Math.PI, Double.MAX_VALUE, Double.MIN_VALUE, -Double.MAX_VALUE, 1.5f };
+        final InstructionRecorder recorder = new InstructionRecorder();
+        for (int i = 0; i < values.length; i++) {
+            recorder.recordUpdate(i, PROPERTY.VALUE, values[i]);
+        }
+
+        final List<?> instructions = (List<?>) roundTrip(0, recorder).get(APPLICATION.INSTRUCTIONS);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(update(i, PROPERTY.VALUE, ((Number) values[i]).doubleValue()), instructions.get(i));
+        }
+    }
+
+    @Test
+    public void testStrings() throws Exception {
+        final StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longText.append((char) ('a' + i % 26));
+        }
+        // Lone surrogates go through as 3 bytes sequences
+        final String[] samples = { "", "plain ascii", "\u00e9t\u00e9 \u00a3", "\u20ac \uffff \u0800", "\ud83d\ude00", "a\ud83d\ude00b",
+                "\ud800", "\udc00a", "a\ud800", "\udc00\ud800", longText.toString() };
+        final InstructionRecorder recorder = new InstructionRecorder();
+        for (int i = 0; i < samples.length; i++) {
+            recorder.recordUpdate(i, PROPERTY.TEXT, samples[i]);
+        }
+        // Also as keys of nested objects
+        final Update update = new Update(99);
+        final JSONObject nested = new JSONObject();
+        nested.put("\ud83d\ude00", "\u00e9");
+        update.put(PROPERTY.VALUE, nested);
+        recorder.record(update);
+
+        final List<?> instructions = (List<?>) roundTrip(0, recorder).get(APPLICATION.INSTRUCTIONS);
+        for (int i = 0; i < samples.length; i++) {
+            Assert.assertEquals(update(i, PROPERTY.TEXT, samples[i]), instructions.get(i));
+        }
+        Assert.assertEquals(normalize(update), instructions.get(samples.length));
+    }
+
+    private Map<String, Object> roundTrip(final long seqNum, final InstructionRecorder recorder) {
+        encoder.encode(seqNum, recorder);
+        final ArrayBuffer buffer = TypedArrays.createArrayBuffer(encoder.getLength());
+        final Uint8Array bytes = TypedArrays.createUint8Array(buffer);
+        for (int i = 0; i < encoder.getLength(); i++) {
+            bytes.set(i, encoder.getBuffer()[i] & 0xFF);
+        }
+        return new MapReader(buffer).readFrame();
+    }
+
+    private int encodedLength(final InstructionRecorder recorder) {
+        encoder.encode(0, recorder);
+        return encoder.getLength();
+    }
+
+    private int varLongLength(final long value) {
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.recordUpdate(0, PROPERTY.ROW, 0L);
+        final int length = encodedLength(recorder);
+        recorder.clear();
+        recorder.recordUpdate(0, PROPERTY.ROW, value);
+        return encodedLength(recorder) - length + 1;
+    }
+
+    private static Map<String, Object> update(final long objectID, final String key, final Object value) {
+        final Map<String, Object> update = new HashMap<String, Object>();
+        update.put(TYPE.KEY, TYPE.KEY_.UPDATE);
+        update.put(PROPERTY.OBJECT_ID, (double) objectID);
+        update.put(key, value);
+        return update;
+    }
+
+    /**
+     * The structure the terminal reads from a JSON value: maps, lists and double numbers
+     */
+    @SuppressWarnings("unchecked")
+    private static Object normalize(final Object value) {
+        if (value == null || value == JSONObject.NULL) return JSONObject.NULL;
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof JSONObject) {
+            final JSONObject object = (JSONObject) value;
+            final Map<String, Object> map = new HashMap<String, Object>();
+            final Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                map.put(key, normalize(object.opt(key)));
+            }
+            return map;
+        }
+        if (value instanceof Map) {
+            final Map<String, Object> map = new HashMap<String, Object>();
+            for (final Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                map.put(entry.getKey(), normalize(entry.getValue()));
+            }
+            return map;
+        }
+        if (value instanceof JSONArray) {
+            final JSONArray array = (JSONArray) value;
+            final List<Object> list = new ArrayList<Object>();
+            for (int i = 0; i < array.length(); i++) {
+                list.add(normalize(array.opt(i)));
+            }
+            return list;
+        }
+        if (value instanceof Collection) {
+            final List<Object> list = new ArrayList<Object>();
+            for (final Object item : (Collection<Object>) value) {
+                list.add(normalize(item));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    private static class MapReader extends BinaryReader<Object, Map<String, Object>, List<Object>> {
+
+        MapReader(final ArrayBuffer buffer) {
+            super(buffer);
+        }
+
+        @Override
+        protected Map<String, Object> newObject() {
+            return new HashMap<String, Object>();
+        }
+
+        @Override
+        protected void put(final Map<String, Object> object, final String key, final Object value) {
+            object.put(key, value);
+        }
+
+        @Override
+        protected List<Object> newArray() {
+            return new ArrayList<Object>();
+        }
+
+        @Override
+        protected void set(final List<Object> array, final int index, final Object value) {
+            Assert.assertEquals(index, array.size());
+            array.add(value);
+        }
+
+        @Override
+        protected Object newNull() {
+            return JSONObject.NULL;
+        }
+
+        @Override
+        protected Object newBoolean(final boolean value) {
+            return value;
+        }
+
+        @Override
+        protected Object newNumber(final double value) {
+            return value;
+        }
+
+        @Override
+        protected Object newString(final String value) {
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.ponysdk.test.core.socket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ponysdk.core.socket.ReplayBuffer;
+
+public class ReplayBufferTest {
+
+    @Test
+    public void testEmpty() {
+        final ReplayBuffer buffer = new ReplayBuffer(4);
+
+        Assert.assertEquals(0, buffer.size());
+        Assert.assertTrue(buffer.covers(-1));
+        Assert.assertEquals(0, buffer.indexAfter(-1));
+    }
+
+    @Test
+    public void testFramesKeptInOrder() {
+        final ReplayBuffer buffer = new ReplayBuffer(4);
+        final byte[] first = new byte[] { 1 };
+        final byte[] second = new byte[] { 2 };
+        buffer.add(0, true, first);
+        buffer.add(1, false, second);
+
+        Assert.assertEquals(2, buffer.size());
+        Assert.assertEquals(0, buffer.getSeqNum(0));
+        Assert.assertTrue(buffer.isText(0));
+        Assert.assertSame(first, buffer.getFrame(0));
+        Assert.assertEquals(1, buffer.getSeqNum(1));
+        Assert.assertFalse(buffer.isText(1));
+        Assert.assertSame(second, buffer.getFrame(1));
+    }
+
+    @Test
+    public void testOldestFramesEvicted() {
+        final ReplayBuffer buffer = new ReplayBuffer(3);
+        for (int seqNum = 0; seqNum < 10; seqNum++) {
+            buffer.add(seqNum, true, new byte[] { (byte) seqNum });
+        }
+
+        Assert.assertEquals(3, buffer.size());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(7 + i, buffer.getSeqNum(i));
+            Assert.assertEquals(7 + i, buffer.getFrame(i)[0]);
+        }
+
+        // The terminal needs the frames after its last seq num, #6 is the last one it may have received
+        Assert.assertTrue(buffer.covers(6));
+        Assert.assertTrue(buffer.covers(9));
+        Assert.assertFalse(buffer.covers(5));
+        Assert.assertFalse(buffer.covers(-1));
+    }
+
+    @Test
+    public void testIndexAfterWithSeqNumGaps() {
+        final ReplayBuffer buffer = new ReplayBuffer(8);
+        final long[] seqNums = { 3, 4, 7, 8, 12 };
+        for (final long seqNum : seqNums) {
+            buffer.add(seqNum, true, new byte[0]);
+        }
+
+        Assert.assertEquals(0, buffer.indexAfter(2));
+        Assert.assertEquals(1, buffer.indexAfter(3));
+        Assert.assertEquals(2, buffer.indexAfter(5));
+        Assert.assertEquals(4, buffer.indexAfter(8));
+        Assert.assertEquals(4, buffer.indexAfter(11));
+        Assert.assertEquals(5, buffer.indexAfter(12));
+    }
+
+    @Test
+    public void testIndexAfterWrappedAround() {
+        final ReplayBuffer buffer = new ReplayBuffer(4);
+        for (int seqNum = 0; seqNum < 22; seqNum += 2) {
+            buffer.add(seqNum, true, new byte[0]);
+        }
+
+        // 14, 16, 18, 20 are kept, stored across the end of the ring
+        Assert.assertEquals(14, buffer.getSeqNum(0));
+        Assert.assertEquals(20, buffer.getSeqNum(3));
+        Assert.assertTrue(buffer.covers(12));
+        Assert.assertFalse(buffer.covers(11));
+        Assert.assertEquals(0, buffer.indexAfter(13));
+        Assert.assertEquals(2, buffer.indexAfter(16));
+        Assert.assertEquals(3, buffer.indexAfter(19));
+        Assert.assertEquals(4, buffer.indexAfter(20));
+    }
+
+}
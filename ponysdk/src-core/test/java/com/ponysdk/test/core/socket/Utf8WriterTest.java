@@ -0,0 +1,93 @@
+package com.ponysdk.test.core.socket;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ponysdk.core.socket.Utf8Writer;
+
+public class Utf8WriterTest {
+
+    private static final String[] SAMPLES = { "", "plain ascii", "\u00e9t\u00e9 \u00a3", "\u20ac \uffff \u0800", "\ud83d\ude00",
+            "a\ud83d\ude00b", "\ud800", "\udc00", "a\ud800", "\udc00a", "\ud800a", "\ud800\ud800", "\udc00\udc00", "\udc00\ud800",
+            "\ud800\ud800\udc00", "\ud800\udc00\udc00" };
+
+    @Test
+    public void testSamples() throws Exception {
+        final Utf8Writer writer = new Utf8Writer(4);
+        for (final String sample : SAMPLES) {
+            writer.reset();
+            writer.write(sample);
+            writer.flush();
+            assertEncoded(sample, writer);
+        }
+    }
+
+    @Test
+    public void testCharByChar() throws Exception {
+        final Utf8Writer writer = new Utf8Writer(4);
+        for (final String sample : SAMPLES) {
+            writer.reset();
+            for (int i = 0; i < sample.length(); i++) {
+                writer.write(sample.charAt(i));
+            }
+            writer.close();
+            assertEncoded(sample, writer);
+        }
+    }
+
+    @Test
+    public void testPendingHighSurrogateAcrossWrites() throws Exception {
+        final Utf8Writer writer = new Utf8Writer();
+        writer.write("a\ud83d");
+        writer.write("\ude00b".toCharArray());
+        writer.flush();
+        assertEncoded("a\ud83d\ude00b", writer);
+    }
+
+    @Test
+    public void testResetDropsPendingHighSurrogate() throws Exception {
+        final Utf8Writer writer = new Utf8Writer();
+        writer.write("\ud83d");
+        writer.reset();
+        writer.write("\ude00");
+        writer.flush();
+        assertEncoded("\ude00", writer);
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        final Random random = new Random(42);
+        final Utf8Writer writer = new Utf8Writer(1);
+        final char[] chars = new char[64];
+        for (int i = 0; i < 10000; i++) {
+            final int length = random.nextInt(chars.length);
+            for (int j = 0; j < length; j++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        chars[j] = (char) random.nextInt(0x80);
+                        break;
+                    case 1:
+                        chars[j] = (char) (0xD800 + random.nextInt(0x800));
+                        break;
+                    default:
+                        chars[j] = (char) random.nextInt(0x10000);
+                        break;
+                }
+            }
+            final String sample = new String(chars, 0, length);
+            writer.reset();
+            writer.write(chars, 0, length);
+            writer.flush();
+            assertEncoded(sample, writer);
+        }
+    }
+
+    private static void assertEncoded(final String sample, final Utf8Writer writer) throws Exception {
+        final byte[] expected = sample.getBytes("UTF-8");
+        Assert.assertArrayEquals(expected, Arrays.copyOf(writer.getBuffer(), writer.getLength()));
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.ponysdk.test.core.stm;
+
+import java.util.Arrays;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.socket.BinaryEncoder;
+import com.ponysdk.core.socket.Utf8Writer;
+import com.ponysdk.core.stm.FrameTemplate;
+import com.ponysdk.core.stm.InstructionCoalescer;
+import com.ponysdk.core.stm.InstructionRecorder;
+import com.ponysdk.core.stm.InstructionWriter;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+
+/**
+ * The update of a screen spliced from a template is written exactly as the equivalent plain update.
+ */
+public class FrameTemplateTest {
+
+    @Test
+    public void testSplicedJSONFrame() throws Exception {
+        final Update single = new Update(0);
+        single.put(PROPERTY.TEXT, "price \u20ac </b>");
+        final FrameTemplate singleTemplate = new FrameTemplate(single);
+        final FrameTemplate template = new FrameTemplate(newUpdate(0));
+
+        for (final long objectID : new long[] { 0, 1, 42, -3, Long.MAX_VALUE }) {
+            final InstructionRecorder spliced = new InstructionRecorder();
+            spliced.recordTemplate(objectID, singleTemplate);
+            final InstructionRecorder plain = new InstructionRecorder();
+            plain.recordUpdate(objectID, PROPERTY.TEXT, "price \u20ac </b>");
+            Assert.assertArrayEquals(writeJSON(plain), writeJSON(spliced));
+
+            // The properties of a JSONObject are written in hash order
+            spliced.clear();
+            spliced.recordTemplate(objectID, template);
+            plain.clear();
+            plain.record(newUpdate(objectID));
+            Assert.assertEquals(toJSON(plain), toJSON(spliced));
+        }
+    }
+
+    @Test
+    public void testSplicedBinaryFrame() throws Exception {
+        final FrameTemplate template = new FrameTemplate(newUpdate(0));
+
+        final InstructionRecorder spliced = new InstructionRecorder();
+        spliced.recordUpdate(1, PROPERTY.TEXT, "before");
+        spliced.recordTemplate(7, template);
+        spliced.recordTemplate(8, template);
+        final InstructionRecorder plain = new InstructionRecorder();
+        plain.recordUpdate(1, PROPERTY.TEXT, "before");
+        plain.record(newUpdate(7));
+        plain.record(newUpdate(8));
+
+        Assert.assertArrayEquals(encode(plain), encode(spliced));
+    }
+
+    @Test
+    public void testTemplateUpdateReplayedAndNeverCoalesced() throws Exception {
+        final FrameTemplate template = new FrameTemplate(newUpdate(0));
+
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.recordTemplate(7, template);
+        recorder.recordUpdate(7, PROPERTY.TEXT, "a");
+        recorder.recordTemplate(7, template);
+        recorder.recordUpdate(7, PROPERTY.TEXT, "b");
+        new InstructionCoalescer().coalesce(recorder);
+
+        Assert.assertEquals(3, recorder.size());
+        Assert.assertEquals(InstructionRecorder.TEMPLATE, recorder.getKind(0));
+        Assert.assertEquals(InstructionRecorder.TEMPLATE, recorder.getKind(1));
+        Assert.assertFalse(InstructionCoalescer.isStateOnly(recorder));
+        Assert.assertEquals(newUpdate(7).toString(), recorder.toInstruction(0).toString());
+    }
+
+    private static Update newUpdate(final long objectID) {
+        final Update update = new Update(objectID);
+        update.put(PROPERTY.TEXT, "price \u20ac </b>");
+        update.put(PROPERTY.VALUE, 12.5);
+        update.put(PROPERTY.ENABLED, true);
+        return update;
+    }
+
+    private static byte[] writeJSON(final InstructionRecorder recorder) throws Exception {
+        final Utf8Writer writer = new Utf8Writer();
+        InstructionWriter.write(writer, null, 3, recorder);
+        writer.flush();
+        return Arrays.copyOf(writer.getBuffer(), writer.getLength());
+    }
+
+    private static String toJSON(final InstructionRecorder recorder) throws Exception {
+        return new JSONObject(new String(writeJSON(recorder), "UTF-8")).toString();
+    }
+
+    private static byte[] encode(final InstructionRecorder recorder) {
+        final BinaryEncoder encoder = new BinaryEncoder();
+        encoder.encode(3, recorder);
+        return Arrays.copyOf(encoder.getBuffer(), encoder.getLength());
+    }
+
+}
@@ -0,0 +1,248 @@
+package com.ponysdk.test.core.stm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.instruction.Add;
+import com.ponysdk.core.instruction.AddHandler;
+import com.ponysdk.core.instruction.Create;
+import com.ponysdk.core.instruction.GC;
+import com.ponysdk.core.instruction.GCBatch;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Remove;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.stm.InstructionCoalescer;
+import com.ponysdk.core.stm.InstructionRecorder;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.WidgetType;
+
+public class InstructionCoalescerTest {
+
+    private InstructionRecorder recorder;
+
+    private InstructionCoalescer coalescer;
+
+    @Before
+    public void beforeTest() {
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), new ApplicationManagerOption())));
+        recorder = new InstructionRecorder(4);
+        coalescer = new InstructionCoalescer();
+    }
+
+    @After
+    public void afterTest() {
+        UIContext.remove();
+    }
+
+    @Test
+    public void testLastStateWins() {
+        recorder.recordUpdate(1, PROPERTY.TEXT, "a");
+        recorder.recordUpdate(2, PROPERTY.TEXT, "x");
+        recorder.recordUpdate(1, PROPERTY.ENABLED, false);
+        recorder.recordUpdate(1, PROPERTY.TEXT, "b");
+        recorder.recordUpdate(1, PROPERTY.ENABLED, true);
+        recorder.recordUpdate(1, PROPERTY.TEXT, "c");
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("2.text=x", "1.enabled=true", "1.text=c");
+    }
+
+    @Test
+    public void testUpdateInstructionsAreMerged() {
+        recorder.record(update(1, PROPERTY.HTML, "a"));
+        recorder.recordUpdate(1, PROPERTY.HTML, "b");
+        recorder.record(update(1, PROPERTY.HTML, "c"));
+
+        coalescer.coalesce(recorder);
+
+        Assert.assertEquals(1, recorder.size());
+        Assert.assertEquals("c", recorder.toInstruction(0).getString(PROPERTY.HTML));
+    }
+
+    @Test
+    public void testStylePropertiesAreMergedPerKey() {
+        recorder.record(putStyle(1, "color", "red"));
+        recorder.record(putStyle(1, "width", "10px"));
+        recorder.record(putStyle(1, "color", "blue"));
+
+        coalescer.coalesce(recorder);
+
+        Assert.assertEquals(2, recorder.size());
+        Assert.assertEquals("10px", recorder.toInstruction(0).getString(PROPERTY.STYLE_VALUE));
+        Assert.assertEquals("blue", recorder.toInstruction(1).getString(PROPERTY.STYLE_VALUE));
+    }
+
+    @Test
+    public void testStyleNameAddedThenRemovedCancelsOut() {
+        recorder.recordUpdate(1, PROPERTY.ADD_STYLE_NAME, "selected");
+        recorder.recordUpdate(1, PROPERTY.ADD_STYLE_NAME, "odd");
+        recorder.recordUpdate(1, PROPERTY.REMOVE_STYLE_NAME, "selected");
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("1." + PROPERTY.ADD_STYLE_NAME + "=odd");
+    }
+
+    @Test
+    public void testCommandsAreKept() {
+        recorder.recordUpdate(1, PROPERTY.FOCUSED, true);
+        recorder.recordUpdate(1, PROPERTY.FOCUSED, true);
+        recorder.recordUpdate(1, PROPERTY.CLEAR, true);
+        recorder.recordUpdate(1, PROPERTY.CLEAR, true);
+
+        coalescer.coalesce(recorder);
+
+        Assert.assertEquals(4, recorder.size());
+    }
+
+    @Test
+    public void testCreatedThenCollectedObjectIsDropped() {
+        recorder.record(new Create(1, WidgetType.FLOW_PANEL));
+        recorder.record(new Create(2, WidgetType.LABEL));
+        recorder.recordUpdate(2, PROPERTY.TEXT, "a");
+        recorder.record(new Add(2, 1));
+        recorder.recordUpdate(1, PROPERTY.TEXT, "b");
+        recorder.record(new Remove(2, 1));
+        recorder.record(new GC(2, 1));
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("Create#1", "1.text=b");
+    }
+
+    @Test
+    public void testCreatedThenCollectedObjectIsDroppedFromBatch() {
+        recorder.record(new Create(2, WidgetType.LABEL));
+        recorder.recordUpdate(2, PROPERTY.TEXT, "a");
+        recorder.record(new Add(2, 1));
+        recorder.record(new Create(3, WidgetType.LABEL));
+        recorder.record(new Add(3, 1));
+        recorder.record(new GCBatch(new long[] { 5, 2, 3 }, 3));
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("GCBatch#[5]");
+    }
+
+    @Test
+    public void testBatchOfCreatedObjectsIsDropped() {
+        recorder.record(new Create(2, WidgetType.LABEL));
+        recorder.record(new Add(2, 1));
+        recorder.record(new Create(3, WidgetType.LABEL));
+        recorder.record(new GCBatch(new long[] { 2, 3 }, 2));
+
+        coalescer.coalesce(recorder);
+
+        assertRecords();
+    }
+
+    @Test
+    public void testBatchIsABarrier() {
+        recorder.recordUpdate(4, PROPERTY.TEXT, "a");
+        recorder.record(new GCBatch(new long[] { 5 }, 1));
+        recorder.recordUpdate(4, PROPERTY.TEXT, "b");
+        recorder.record(new Create(6, WidgetType.LABEL));
+        recorder.recordUpdate(6, PROPERTY.FOCUSED, true);
+        recorder.record(new GCBatch(new long[] { 6 }, 1));
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("GCBatch#[5]", "4.text=b", "Create#6", "6." + PROPERTY.FOCUSED + "=true", "GCBatch#[6]");
+    }
+
+    @Test
+    public void testCollectedObjectReceivingACommandIsKept() {
+        recorder.record(new Create(2, WidgetType.LABEL));
+        recorder.recordUpdate(2, PROPERTY.TEXT, "a");
+        recorder.recordUpdate(2, PROPERTY.FOCUSED, true);
+        recorder.record(new GC(2, 1));
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("Create#2", "2.text=a", "2." + PROPERTY.FOCUSED + "=true", "GC#2");
+    }
+
+    @Test
+    public void testObjectCreatedInAPreviousTransactionIsKept() {
+        recorder.recordUpdate(2, PROPERTY.TEXT, "a");
+        recorder.record(new GC(2, 1));
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("2.text=a", "GC#2");
+    }
+
+    @Test
+    public void testStructuralInstructionsKeepTheirOrder() {
+        recorder.record(new Create(1, WidgetType.FLOW_PANEL));
+        recorder.recordUpdate(2, PROPERTY.TEXT, "a");
+        recorder.record(new Add(2, 1));
+        recorder.recordUpdate(2, PROPERTY.TEXT, "b");
+        recorder.record(new Remove(2, 1));
+        recorder.record(new AddHandler(2, "click"));
+        recorder.record(new Add(2, 1));
+        recorder.recordUpdate(2, PROPERTY.TEXT, "c");
+
+        coalescer.coalesce(recorder);
+
+        assertRecords("Create#1", "Add#2", "Remove#2", "AddHandler#2", "Add#2", "2.text=c");
+    }
+
+    @Test
+    public void testRecorderIsReusable() {
+        recorder.recordUpdate(1, PROPERTY.TEXT, "a");
+        recorder.recordUpdate(1, PROPERTY.TEXT, "b");
+        coalescer.coalesce(recorder);
+        recorder.clear();
+
+        recorder.recordUpdate(1, PROPERTY.TEXT, "c");
+        recorder.recordUpdate(2, PROPERTY.TEXT, "d");
+        coalescer.coalesce(recorder);
+
+        assertRecords("1.text=c", "2.text=d");
+    }
+
+    private void assertRecords(final String... expected) {
+        final List<String> records = new ArrayList<String>();
+        for (int i = 0; i < recorder.size(); i++) {
+            if (recorder.getKind(i) == InstructionRecorder.INSTRUCTION) {
+                final Instruction instruction = recorder.getInstruction(i);
+                if (instruction instanceof GCBatch) records.add("GCBatch#" + instruction.optJSONArray(PROPERTY.OBJECT_IDS));
+                else records.add(instruction.getClass().getSimpleName() + "#" + instruction.getObjectID());
+            } else {
+                final String key = PROPERTY.TEXT.equals(recorder.getKey(i)) ? "text" : PROPERTY.ENABLED.equals(recorder.getKey(i)) ? "enabled" : recorder.getKey(i);
+                final Object value;
+                if (recorder.getKind(i) == InstructionRecorder.BOOLEAN) value = recorder.getBoolean(i);
+                else if (recorder.getKind(i) == InstructionRecorder.LONG) value = recorder.getLong(i);
+                else value = recorder.getObject(i);
+                records.add(recorder.getObjectID(i) + "." + key + "=" + value);
+            }
+        }
+        Assert.assertEquals(Arrays.asList(expected), records);
+    }
+
+    private static Update update(final long objectID, final String key, final String value) {
+        final Update update = new Update(objectID);
+        update.put(key, value);
+        return update;
+    }
+
+    private static Update putStyle(final long objectID, final String key, final String value) {
+        final Update update = new Update(objectID);
+        update.put(PROPERTY.PUT_STYLE_KEY, key);
+        update.put(PROPERTY.STYLE_VALUE, value);
+        return update;
+    }
+
+}
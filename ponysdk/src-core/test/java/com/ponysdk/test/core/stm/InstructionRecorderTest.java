@@ -0,0 +1,152 @@
+package com.ponysdk.test.core.stm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.stm.InstructionRecorder;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+
+public class InstructionRecorderTest {
+
+    @Test
+    public void testTypedRecords() {
+        final InstructionRecorder recorder = new InstructionRecorder(1);
+        final Update update = new Update(4);
+        update.put(PROPERTY.CLEAR, true);
+
+        recorder.recordUpdate(1, PROPERTY.ENABLED, true);
+        recorder.recordUpdate(2, PROPERTY.MAX_LENGTH, 12L);
+        recorder.recordUpdate(3, PROPERTY.TEXT, "text");
+        recorder.record(update);
+
+        Assert.assertEquals(4, recorder.size());
+        Assert.assertEquals(InstructionRecorder.BOOLEAN, recorder.getKind(0));
+        Assert.assertTrue(recorder.getBoolean(0));
+        Assert.assertEquals(InstructionRecorder.LONG, recorder.getKind(1));
+        Assert.assertEquals(12L, recorder.getLong(1));
+        Assert.assertEquals(InstructionRecorder.OBJECT, recorder.getKind(2));
+        Assert.assertEquals("text", recorder.getObject(2));
+        Assert.assertEquals(PROPERTY.TEXT, recorder.getKey(2));
+        Assert.assertEquals(InstructionRecorder.INSTRUCTION, recorder.getKind(3));
+        Assert.assertSame(update, recorder.getInstruction(3));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(i + 1, recorder.getObjectID(i));
+        }
+    }
+
+    @Test
+    public void testToInstruction() {
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.recordUpdate(1, PROPERTY.ENABLED, false);
+        recorder.recordUpdate(2, PROPERTY.MAX_LENGTH, 12L);
+        recorder.recordUpdate(3, PROPERTY.TEXT, "text");
+
+        final Instruction booleanUpdate = recorder.toInstruction(0);
+        Assert.assertTrue(booleanUpdate instanceof Update);
+        Assert.assertEquals(1, booleanUpdate.getObjectID());
+        Assert.assertFalse(booleanUpdate.getBoolean(PROPERTY.ENABLED));
+        Assert.assertEquals(12L, recorder.toInstruction(1).getLong(PROPERTY.MAX_LENGTH));
+        Assert.assertEquals("text", recorder.toInstruction(2).getString(PROPERTY.TEXT));
+    }
+
+    @Test
+    public void testReplay() {
+        final InstructionRecorder recorder = new InstructionRecorder();
+        final Update update = new Update(4);
+        recorder.recordUpdate(1, PROPERTY.ENABLED, true);
+        recorder.recordUpdate(2, PROPERTY.MAX_LENGTH, 12L);
+        recorder.recordUpdate(3, PROPERTY.TEXT, "text");
+        recorder.record(update);
+
+        final List<String> replayed = new ArrayList<String>();
+        recorder.replay(new EmptyTxnContext() {
+
+            @Override
+            public void save(final Instruction instruction) {
+                replayed.add("instruction " + instruction.getObjectID());
+            }
+
+            @Override
+            public void saveUpdate(final long objectID, final String key, final boolean value) {
+                replayed.add("boolean " + objectID + " " + value);
+            }
+
+            @Override
+            public void saveUpdate(final long objectID, final String key, final long value) {
+                replayed.add("long " + objectID + " " + value);
+            }
+
+            @Override
+            public void saveUpdate(final long objectID, final String key, final Object value) {
+                replayed.add("object " + objectID + " " + value);
+            }
+        });
+
+        Assert.assertEquals("[boolean 1 true, long 2 12, object 3 text, instruction 4]", replayed.toString());
+    }
+
+    @Test
+    public void testRetainKeepsOrder() {
+        final InstructionRecorder recorder = new InstructionRecorder(2);
+        for (int i = 0; i < 10; i++) {
+            recorder.recordUpdate(i, PROPERTY.MAX_LENGTH, (long) i);
+        }
+
+        final boolean[] dropped = new boolean[10];
+        for (int i = 0; i < 10; i += 3) {
+            dropped[i] = true;
+        }
+        recorder.retain(dropped);
+
+        Assert.assertEquals(6, recorder.size());
+        final long[] expected = { 1, 2, 4, 5, 7, 8 };
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], recorder.getObjectID(i));
+            Assert.assertEquals(expected[i], recorder.getLong(i));
+        }
+    }
+
+    @Test
+    public void testTruncateAndClear() {
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.recordUpdate(1, PROPERTY.TEXT, "a");
+        recorder.recordUpdate(2, PROPERTY.TEXT, "b");
+        recorder.recordUpdate(3, PROPERTY.TEXT, "c");
+
+        recorder.truncate(5);
+        Assert.assertEquals(3, recorder.size());
+
+        recorder.truncate(1);
+        Assert.assertEquals(1, recorder.size());
+        Assert.assertEquals("a", recorder.getObject(0));
+
+        recorder.recordUpdate(4, PROPERTY.TEXT, "d");
+        Assert.assertEquals(4, recorder.getObjectID(1));
+
+        recorder.clear();
+        Assert.assertTrue(recorder.isEmpty());
+    }
+
+    @Test
+    public void testAcquireRelease() {
+        final InstructionRecorder recorder = InstructionRecorder.acquire();
+        final InstructionRecorder nested = InstructionRecorder.acquire();
+        Assert.assertNotSame(recorder, nested);
+
+        recorder.recordUpdate(1, PROPERTY.TEXT, "a");
+        recorder.release();
+        nested.release();
+
+        final InstructionRecorder reused = InstructionRecorder.acquire();
+        Assert.assertSame(recorder, reused);
+        Assert.assertTrue(reused.isEmpty());
+        reused.release();
+    }
+
+}
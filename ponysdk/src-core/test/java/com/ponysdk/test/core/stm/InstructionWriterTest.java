@@ -0,0 +1,89 @@
+package com.ponysdk.test.core.stm;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.stm.InstructionRecorder;
+import com.ponysdk.core.stm.InstructionWriter;
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+import com.ponysdk.ui.terminal.Dictionnary.TYPE;
+
+public class InstructionWriterTest {
+
+    @Test
+    public void testStringsAreQuotedLikeJSONObject() throws Exception {
+        final StringBuilder allChars = new StringBuilder();
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            allChars.append(c);
+        }
+        final String[] samples = { "", "plain", "\"quoted\" \\", "\b\t\n\f\r\u0000\u001f", "</script>", "<\\/", "a/b", "<<//",
+                "\u007f\u0080\u009f\u00a0", "\u2000\u2028\u2029\u20ff\u2100", "\ud83d\ude00", "\ud800", allChars.toString() };
+
+        for (final String sample : samples) {
+            final InstructionRecorder recorder = new InstructionRecorder();
+            recorder.recordUpdate(1, sample, sample);
+            Assert.assertEquals(expectedFrame(1, sample, JSONObject.quote(sample)), write(recorder));
+        }
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("a", 1);
+        final Object[] values = { true, 12L, -7, 2.5, null, JSONObject.NULL, map, Arrays.asList("x", 2), new JSONArray("[1,\"</\"]"),
+                new JSONObject("{\"k\":\"v\"}") };
+
+        for (final Object value : values) {
+            final InstructionRecorder recorder = new InstructionRecorder();
+            recorder.recordUpdate(3, PROPERTY.VALUE, value);
+            // As JSONArray writes its items
+            final String expected = new JSONArray().put(value).toString();
+            Assert.assertEquals(expectedFrame(3, PROPERTY.VALUE, expected.substring(1, expected.length() - 1)), write(recorder));
+        }
+    }
+
+    @Test
+    public void testTypedUpdatesAndInstructions() throws Exception {
+        final Update update = new Update(5);
+        update.put(PROPERTY.TEXT, "text");
+
+        final InstructionRecorder recorder = new InstructionRecorder();
+        recorder.recordUpdate(1, PROPERTY.ENABLED, false);
+        recorder.recordUpdate(2, PROPERTY.ROW, Long.MIN_VALUE);
+        recorder.record(update);
+
+        final StringWriter writer = new StringWriter();
+        InstructionWriter.write(writer, 9L, 4, recorder);
+
+        final JSONObject frame = new JSONObject(writer.toString());
+        Assert.assertEquals(9L, frame.getLong(APPLICATION.VIEW_ID));
+        Assert.assertEquals(4L, frame.getLong(APPLICATION.SEQ_NUM));
+        final JSONArray instructions = frame.getJSONArray(APPLICATION.INSTRUCTIONS);
+        Assert.assertEquals(3, instructions.length());
+        Assert.assertEquals(false, instructions.getJSONObject(0).getBoolean(PROPERTY.ENABLED));
+        Assert.assertEquals(Long.MIN_VALUE, instructions.getJSONObject(1).getLong(PROPERTY.ROW));
+        Assert.assertEquals(update.toString(), instructions.getJSONObject(2).toString());
+    }
+
+    private static String write(final InstructionRecorder recorder) throws Exception {
+        final StringWriter writer = new StringWriter();
+        InstructionWriter.write(writer, null, 0, recorder);
+        return writer.toString();
+    }
+
+    private static String expectedFrame(final long objectID, final String key, final String value) {
+        return "{" + JSONObject.quote(APPLICATION.SEQ_NUM) + ":0," + JSONObject.quote(APPLICATION.INSTRUCTIONS) + ":[{" + JSONObject.quote(TYPE.KEY) + ":"
+                + JSONObject.quote(TYPE.KEY_.UPDATE) + "," + JSONObject.quote(PROPERTY.OBJECT_ID) + ":" + objectID + "," + JSONObject.quote(key) + ":" + value
+                + "}]}";
+    }
+
+}
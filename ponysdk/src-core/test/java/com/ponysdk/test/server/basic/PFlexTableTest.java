@@ -0,0 +1,285 @@
+package com.ponysdk.test.server.basic;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PFlexTable;
+import com.ponysdk.ui.server.basic.PLabel;
+import com.ponysdk.ui.server.basic.PWidget;
+
+/**
+ * The rows of the table are checked against a list of rows, the empty rows being null.
+ */
+public class PFlexTableTest {
+
+    private Txn txn;
+
+    private PFlexTable table;
+
+    @Before
+    public void beforeTest() {
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), new ApplicationManagerOption())));
+        txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+        table = new PFlexTable();
+    }
+
+    @After
+    public void afterTest() {
+        txn.commit();
+        UIContext.remove();
+    }
+
+    @Test
+    public void testSetWidget() {
+        Assert.assertEquals(0, table.getRowCount());
+        Assert.assertNull(table.getWidget(0, 0));
+
+        final PLabel third = new PLabel();
+        final PLabel first = new PLabel();
+        table.setWidget(3, 1, third);
+        table.setWidget(0, 0, first);
+        Assert.assertSame(third, table.getWidget(3, 1));
+        Assert.assertSame(first, table.getWidget(0, 0));
+        Assert.assertNull(table.getWidget(1, 0));
+        Assert.assertNull(table.getWidget(4, 0));
+        Assert.assertEquals(4, table.getRowCount());
+        Assert.assertEquals(2, table.getCellCount(3));
+        Assert.assertEquals(0, table.getCellCount(2));
+
+        // Replaced
+        final PLabel other = new PLabel();
+        table.setWidget(3, 1, other);
+        Assert.assertSame(other, table.getWidget(3, 1));
+        Assert.assertNull(third.getParent());
+        Assert.assertSame(table, other.getParent());
+    }
+
+    @Test
+    public void testInsertAndRemoveRowShiftRows() {
+        final PLabel a = new PLabel();
+        final PLabel b = new PLabel();
+        table.setWidget(1, 0, a);
+        table.setWidget(4, 0, b);
+
+        table.insertRow(2);
+        Assert.assertSame(a, table.getWidget(1, 0));
+        Assert.assertSame(b, table.getWidget(5, 0));
+
+        table.insertRow(0);
+        Assert.assertSame(a, table.getWidget(2, 0));
+        Assert.assertSame(b, table.getWidget(6, 0));
+        Assert.assertEquals(7, table.getRowCount());
+
+        table.removeRow(2);
+        Assert.assertNull(a.getParent());
+        Assert.assertSame(b, table.getWidget(5, 0));
+        Assert.assertEquals(6, table.getRowCount());
+    }
+
+    @Test
+    public void testClearedRowsKeepIndexes() {
+        final PLabel a = new PLabel();
+        table.setWidget(1, 0, a);
+        table.setText(2, 0, "b");
+        table.getRowFormatter().addStyleName(1, "style");
+
+        // The style keeps the row
+        table.remove(a);
+        Assert.assertEquals(0, table.getCellCount(1));
+        table.insertRow(2);
+        Assert.assertEquals(1, table.getCellCount(3));
+
+        table.getRowFormatter().removeStyleName(1, "style");
+        table.clearCell(3, 0);
+        Assert.assertEquals(0, table.getRowCount());
+    }
+
+    @Test
+    public void testRowCount() {
+        table.setText(2, 0, "a");
+        table.getRowFormatter().addStyleName(7, "style");
+        Assert.assertEquals(3, table.getRowCount());
+
+        table.setText(5, 2, "b");
+        Assert.assertEquals(6, table.getRowCount());
+        Assert.assertEquals(3, table.getCellCount(5));
+
+        table.clearCell(5, 2);
+        Assert.assertEquals(3, table.getRowCount());
+        table.insertRow(0);
+        Assert.assertEquals(4, table.getRowCount());
+    }
+
+    @Test
+    public void testMoveRow() {
+        final PLabel a = new PLabel();
+        final PLabel b = new PLabel();
+        final PLabel c = new PLabel();
+        table.setWidget(0, 0, a);
+        table.setWidget(1, 0, b);
+        table.setWidget(2, 0, c);
+
+        table.moveRow(0, 2);
+        Assert.assertSame(b, table.getWidget(0, 0));
+        Assert.assertSame(c, table.getWidget(1, 0));
+        Assert.assertSame(a, table.getWidget(2, 0));
+
+        table.moveRow(2, 5);
+        Assert.assertNull(table.getWidget(2, 0));
+        Assert.assertSame(a, table.getWidget(5, 0));
+        Assert.assertEquals(6, table.getRowCount());
+    }
+
+    @Test
+    public void testRandomOperationsAgainstList() {
+        final Random random = new Random(42);
+        final List<Row> expected = new ArrayList<Row>();
+
+        for (int i = 0; i < 20000; i++) {
+            final int index = random.nextInt(48);
+            final int column = random.nextInt(4);
+            final Row row = index < expected.size() ? expected.get(index) : null;
+
+            switch (random.nextInt(10)) {
+                case 0:
+                case 1:
+                    final PLabel label = new PLabel();
+                    table.setWidget(index, column, label);
+                    clearCell(getOrCreate(expected, index), column);
+                    getOrCreate(expected, index).widgets.put(column, label);
+                    break;
+                case 2:
+                case 3:
+                    table.setText(index, column, "text");
+                    clearCell(getOrCreate(expected, index), column);
+                    getOrCreate(expected, index).texts.add(column);
+                    break;
+                case 4:
+                    table.clearCell(index, column);
+                    if (row != null) clearCell(row, column);
+                    break;
+                case 5:
+                    table.insertRow(index);
+                    if (index < expected.size()) expected.add(index, null);
+                    break;
+                case 6:
+                    table.removeRow(index);
+                    if (row == null || !row.hasCells()) break;
+                    expected.remove(index);
+                    for (final PWidget widget : row.widgets.values()) {
+                        Assert.assertNull(widget.getParent());
+                    }
+                    break;
+                case 7:
+                    final int beforeIndex = random.nextInt(48);
+                    table.moveRow(index, beforeIndex);
+                    if (index == beforeIndex) break;
+                    if (index < expected.size()) expected.remove(index);
+                    while (expected.size() < beforeIndex) {
+                        expected.add(null);
+                    }
+                    expected.add(beforeIndex, row);
+                    break;
+                case 8:
+                    table.getRowFormatter().addStyleName(index, "style" + column);
+                    getOrCreate(expected, index).styles.add("style" + column);
+                    break;
+                default:
+                    table.getRowFormatter().removeStyleName(index, "style" + column);
+                    if (row != null) row.styles.remove("style" + column);
+                    break;
+            }
+
+            trim(expected);
+            assertTable(expected);
+        }
+    }
+
+    private void assertTable(final List<Row> expected) {
+        int rowCount = 0;
+        for (int index = 0; index < expected.size() + 2; index++) {
+            final Row row = index < expected.size() ? expected.get(index) : null;
+            Assert.assertEquals(row == null ? 0 : row.getCellCount(), table.getCellCount(index));
+            for (int column = 0; column < 4; column++) {
+                final PWidget widget = row == null ? null : row.widgets.get(column);
+                Assert.assertSame(widget, table.getWidget(index, column));
+                if (widget != null) Assert.assertSame(table, widget.getParent());
+            }
+            if (row != null && row.hasCells()) rowCount = index + 1;
+        }
+        Assert.assertEquals(rowCount, table.getRowCount());
+    }
+
+    private static void clearCell(final Row row, final int column) {
+        final PWidget widget = row.widgets.remove(column);
+        if (widget != null) Assert.assertNull(widget.getParent());
+        row.texts.remove(column);
+    }
+
+    private static Row getOrCreate(final List<Row> expected, final int index) {
+        while (expected.size() <= index) {
+            expected.add(null);
+        }
+        Row row = expected.get(index);
+        if (row == null) {
+            row = new Row();
+            expected.set(index, row);
+        }
+        return row;
+    }
+
+    // The empty rows are null, the last one holds something
+    private static void trim(final List<Row> expected) {
+        for (int index = 0; index < expected.size(); index++) {
+            final Row row = expected.get(index);
+            if (row != null && row.isEmpty()) expected.set(index, null);
+        }
+        while (!expected.isEmpty() && expected.get(expected.size() - 1) == null) {
+            expected.remove(expected.size() - 1);
+        }
+    }
+
+    private static class Row {
+
+        private final Map<Integer, PWidget> widgets = new TreeMap<Integer, PWidget>();
+
+        private final TreeSet<Integer> texts = new TreeSet<Integer>();
+
+        private final Set<String> styles = new HashSet<String>();
+
+        boolean hasCells() {
+            return !widgets.isEmpty() || !texts.isEmpty();
+        }
+
+        boolean isEmpty() {
+            return !hasCells() && styles.isEmpty();
+        }
+
+        int getCellCount() {
+            int count = texts.isEmpty() ? 0 : texts.last() + 1;
+            for (final Integer column : widgets.keySet()) {
+                count = Math.max(count, column + 1);
+            }
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.ponysdk.test.server.basic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.socket.ConnectionListener;
+import com.ponysdk.core.socket.MessageListener;
+import com.ponysdk.core.socket.WebSocket;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.DataListener;
+import com.ponysdk.ui.server.basic.PLabel;
+import com.ponysdk.ui.server.basic.PPusher;
+import com.ponysdk.ui.server.basic.PPusher.PusherState;
+import com.ponysdk.ui.terminal.Dictionnary.APPLICATION;
+
+/**
+ * The data pushed while the connection of a resumable session is lost is sent to the terminal when it resumes.
+ */
+public class PPusherTest {
+
+    private static final int REPLAY_BUFFER_SIZE = 8;
+
+    private PPusher pusher;
+
+    @Before
+    public void beforeTest() {
+        final ApplicationManagerOption options = new ApplicationManagerOption();
+        options.setResumableSocket(REPLAY_BUFFER_SIZE, 1, TimeUnit.MINUTES);
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), options)));
+
+        final Txn txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+        final PLabel label = new PLabel();
+        pusher = PPusher.initialize();
+        pusher.addDataListener(new DataListener() {
+
+            @Override
+            public void onData(final Object data) {
+                label.setText((String) data);
+            }
+        });
+        txn.commit();
+        UIContext.remove();
+    }
+
+    @After
+    public void afterTest() {
+        UIContext.remove();
+    }
+
+    @Test
+    public void testPushesReplayedOnResume() throws Exception {
+        final TestSocket socket = new TestSocket();
+        pusher.initialize(socket);
+        socket.open();
+        Assert.assertEquals(PusherState.STARTED, pusher.getPusherState());
+
+        pusher.pushToClient("before");
+        Assert.assertEquals(1, socket.frames.size());
+        final long lastSeqNum = seqNum(socket.frames.get(0));
+
+        socket.lose();
+        Assert.assertEquals(PusherState.STOPPED, pusher.getPusherState());
+        pusher.pushToClient("during 1");
+        pusher.pushToClient("during 2");
+        // Nothing written on the lost connection
+        Assert.assertEquals(1, socket.frames.size());
+
+        final TestSocket resumed = new TestSocket();
+        Assert.assertTrue(pusher.resume(resumed, lastSeqNum));
+        pusher.pushToClient("before open");
+        Assert.assertTrue(resumed.frames.isEmpty());
+
+        resumed.open();
+        Assert.assertEquals(PusherState.STARTED, pusher.getPusherState());
+        Assert.assertEquals(3, resumed.frames.size());
+        final String[] expected = { "during 1", "during 2", "before open" };
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(lastSeqNum + 1 + i, seqNum(resumed.frames.get(i)));
+            Assert.assertTrue(resumed.frames.get(i).contains(JSONObject.quote(expected[i])));
+        }
+
+        pusher.pushToClient("after");
+        Assert.assertEquals(4, resumed.frames.size());
+        Assert.assertEquals(lastSeqNum + 4, seqNum(resumed.frames.get(3)));
+        Assert.assertEquals(1, socket.frames.size());
+    }
+
+    @Test
+    public void testResumeRefusedWhenTheBufferOverflowed() throws Exception {
+        final TestSocket socket = new TestSocket();
+        pusher.initialize(socket);
+        socket.open();
+        pusher.pushToClient("before");
+        final long lastSeqNum = seqNum(socket.frames.get(0));
+
+        socket.lose();
+        for (int i = 0; i < REPLAY_BUFFER_SIZE; i++) {
+            pusher.pushToClient("during " + i);
+        }
+        Assert.assertTrue(pusher.getTxContext().canResume(lastSeqNum));
+        // The first frame the terminal missed is evicted
+        pusher.pushToClient("evicting");
+
+        // The terminal has to reload the application
+        Assert.assertFalse(pusher.resume(new TestSocket(), lastSeqNum));
+    }
+
+    @Test
+    public void testPushesDroppedWhenNotStarted() {
+        final TestSocket socket = new TestSocket();
+        pusher.initialize(socket);
+        pusher.pushToClient("not open");
+        Assert.assertTrue(socket.frames.isEmpty());
+    }
+
+    private static long seqNum(final String frame) throws Exception {
+        return new JSONObject(frame).getLong(APPLICATION.SEQ_NUM);
+    }
+
+    private static class TestSocket implements WebSocket {
+
+        private final List<String> frames = new ArrayList<String>();
+
+        private final List<ConnectionListener> listeners = new ArrayList<ConnectionListener>();
+
+        void open() {
+            for (final ConnectionListener listener : listeners) {
+                listener.onOpen();
+            }
+        }
+
+        void lose() {
+            for (final ConnectionListener listener : listeners) {
+                listener.onClose();
+            }
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void send(final String msg) throws IOException {
+            frames.add(msg);
+        }
+
+        @Override
+        public void send(final byte[] bytes, final int offset, final int length) throws IOException {
+            throw new IOException("Binary frames are not expected");
+        }
+
+        @Override
+        public void sendText(final byte[] utf8, final int offset, final int length) throws IOException {
+            frames.add(new String(utf8, offset, length, "UTF-8"));
+        }
+
+        @Override
+        public void addConnectionListener(final ConnectionListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void addMessageListener(final MessageListener listener) {}
+    }
+
+}
@@ -0,0 +1,286 @@
+package com.ponysdk.test.server.list2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.instruction.Add;
+import com.ponysdk.core.instruction.Instruction;
+import com.ponysdk.core.instruction.Update;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.IsPWidget;
+import com.ponysdk.ui.server.basic.PHTML;
+import com.ponysdk.ui.server.list2.DataGridActivity;
+import com.ponysdk.ui.server.list2.DataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.DefaultSimpleListView;
+import com.ponysdk.ui.server.list2.renderer.cell.CellRenderer;
+import com.ponysdk.ui.server.list2.renderer.cell.TextCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
+import com.ponysdk.ui.terminal.Dictionnary.PROPERTY;
+
+/**
+ * The rows of a {@link DataGridActivity} with a key provider are reconciled with the new data. The table of the
+ * terminal is rebuilt from the instructions sent and compared with the data after each refresh.
+ */
+public class DataGridActivityTest {
+
+    private Txn txn;
+
+    private DefaultSimpleListView view;
+
+    private DataGridActivity<String[]> grid;
+
+    // Cells of the table of the terminal, by row and column
+    private final List<List<String>> terminal = new ArrayList<List<String>>();
+
+    private final Map<Long, PHTML> widgets = new HashMap<Long, PHTML>();
+
+    private int instructions;
+
+    @Before
+    public void beforeTest() {
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), new ApplicationManagerOption())));
+        txn = Txn.get();
+        txn.begin(new TerminalTxnContext());
+
+        view = new DefaultSimpleListView();
+        grid = new DataGridActivity<String[]>(view);
+
+        // A widget column with the value, a light column with the key and the version
+        final DataGridColumnDescriptor<String[], String> value = new DataGridColumnDescriptor<String[], String>();
+        value.setHeaderCellRenderer(new StringHeaderCellRenderer("Value"));
+        value.setCellRenderer(new CellRenderer<String>() {
+
+            @Override
+            public IsPWidget render(final int row, final String value) {
+                final PHTML widget = new PHTML(value);
+                widgets.put(widget.getID(), widget);
+                return widget;
+            }
+        });
+        value.setValueProvider(new ValueProvider<String[], String>() {
+
+            @Override
+            public String getValue(final String[] data) {
+                return data[1];
+            }
+        });
+        grid.addDataGridColumnDescriptor(value);
+
+        final DataGridColumnDescriptor<String[], String> version = new DataGridColumnDescriptor<String[], String>();
+        version.setHeaderCellRenderer(new StringHeaderCellRenderer("Version"));
+        version.setCellRenderer(new TextCellRenderer<String>());
+        version.setValueProvider(new ValueProvider<String[], String>() {
+
+            @Override
+            public String getValue(final String[] data) {
+                return data[0] + ":" + data[2];
+            }
+        });
+        grid.addDataGridColumnDescriptor(version);
+
+        grid.setKeyProvider(new ValueProvider<String[], String>() {
+
+            @Override
+            public String getValue(final String[] data) {
+                return data[0];
+            }
+        });
+    }
+
+    @After
+    public void afterTest() {
+        txn.commit();
+        UIContext.remove();
+    }
+
+    @Test
+    public void testRandomRefreshes() {
+        final Random random = new Random(7);
+        List<String[]> current = new ArrayList<String[]>();
+
+        for (int i = 0; i < 3000; i++) {
+            final List<String[]> next = new ArrayList<String[]>();
+            for (final String[] data : current) {
+                if (random.nextInt(10) == 0) continue;
+                if (random.nextInt(5) == 0) next.add(new String[] { data[0], "v" + random.nextInt(3), random.nextInt(4) == 0 ? "x" + i : data[2] });
+                else next.add(data);
+            }
+            if (random.nextInt(3) == 0) {
+                Collections.shuffle(next, random);
+            } else {
+                for (int moves = random.nextInt(3); moves > 0 && next.size() > 1; moves--) {
+                    next.add(random.nextInt(next.size()), next.remove(random.nextInt(next.size())));
+                }
+            }
+            for (int added = random.nextInt(4); added > 0; added--) {
+                next.add(random.nextInt(next.size() + 1), new String[] { "k" + i + "_" + added, "v" + random.nextInt(3), "y" });
+            }
+
+            grid.setData(next);
+            current = next;
+            assertRows(current);
+        }
+    }
+
+    @Test
+    public void testLargeShuffle() {
+        final Random random = new Random(11);
+        final List<String[]> data = newData(5000);
+        grid.setData(data);
+        assertRows(data);
+
+        final List<String[]> shuffled = new ArrayList<String[]>(data);
+        Collections.shuffle(shuffled, random);
+        shuffled.subList(0, 1000).clear();
+        shuffled.addAll(2000, newData(500));
+        grid.setData(shuffled);
+        assertRows(shuffled);
+
+        Collections.reverse(shuffled);
+        grid.setData(shuffled);
+        assertRows(shuffled);
+    }
+
+    @Test
+    public void testUnchangedRefreshSendsNothing() {
+        final List<String[]> data = newData(20);
+        grid.setData(data);
+
+        instructions = 0;
+        grid.setData(new ArrayList<String[]>(data));
+        Assert.assertEquals(0, instructions);
+        assertRows(data);
+    }
+
+    @Test
+    public void testSingleMoveSendsOneInstruction() {
+        final List<String[]> data = newData(20);
+        grid.setData(data);
+
+        instructions = 0;
+        final List<String[]> moved = new ArrayList<String[]>(data);
+        moved.add(moved.remove(0));
+        grid.setData(moved);
+        Assert.assertEquals(1, instructions);
+        assertRows(moved);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateKeys() {
+        grid.setData(newData(2));
+        final List<String[]> data = newData(2);
+        data.add(data.get(0));
+        grid.setData(data);
+    }
+
+    private void assertRows(final List<String[]> data) {
+        Assert.assertEquals(data.size(), grid.getVisibleItemCount());
+        // The header and the rows
+        Assert.assertEquals(data.size() + 1, terminal.size());
+        Assert.assertEquals(data.size() + 1, view.getRowCount());
+
+        for (int row = 0; row < data.size(); row++) {
+            final String[] expected = data.get(row);
+            final List<String> cells = terminal.get(row + 1);
+            Assert.assertSame(expected, grid.getVisibleItem(row));
+            Assert.assertEquals(expected[1], cells.get(0));
+            Assert.assertEquals(expected[0] + ":" + expected[2], cells.get(1));
+            Assert.assertEquals(expected[1], ((PHTML) view.getWidget(row + 1, 0)).getHTML());
+        }
+    }
+
+    private static List<String[]> newData(final int size) {
+        final List<String[]> data = new ArrayList<String[]>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(new String[] { "n" + size + "_" + i, "v" + i, "y" });
+        }
+        return data;
+    }
+
+    private void setCell(final int row, final int column, final String value) {
+        while (terminal.size() <= row) {
+            terminal.add(new ArrayList<String>());
+        }
+        final List<String> cells = terminal.get(row);
+        while (cells.size() <= column) {
+            cells.add(null);
+        }
+        cells.set(column, value);
+    }
+
+    /**
+     * Applies the instructions addressed to the table to the cells of the terminal
+     */
+    private class TerminalTxnContext extends EmptyTxnContext {
+
+        @Override
+        public void save(final Instruction instruction) {
+            // The instructions of the creation of the table
+            if (!instruction.has(PROPERTY.OBJECT_ID) || view == null) return;
+            final long objectID = instruction.getObjectID();
+
+            if (instruction instanceof Add && instruction.has(PROPERTY.PARENT_ID) && instruction.getParentID() == view.getID()) {
+                instructions++;
+                final PHTML widget = widgets.get(objectID);
+                setCell(instruction.optInt(PROPERTY.ROW), instruction.optInt(PROPERTY.CELL), widget == null ? "panel" : widget.getHTML());
+            } else if (instruction instanceof Update && objectID == view.getID()) {
+                instructions++;
+                if (instruction.has(PROPERTY.CLEAR_ROW)) {
+                    final int row = instruction.optInt(PROPERTY.CLEAR_ROW);
+                    if (row < terminal.size()) terminal.remove(row);
+                } else if (instruction.has(PROPERTY.INSERT_ROW)) {
+                    final int row = instruction.optInt(PROPERTY.INSERT_ROW);
+                    if (row <= terminal.size()) terminal.add(row, new ArrayList<String>());
+                } else if (instruction.has(PROPERTY.MOVE_ROW)) {
+                    final List<String> cells = terminal.remove(instruction.optInt(PROPERTY.ROW));
+                    terminal.add(Math.min(instruction.optInt(PROPERTY.MOVE_ROW), terminal.size()), cells);
+                } else if (instruction.has(PROPERTY.HTMLTABLE_ROW_HTML)) {
+                    final JSONArray html = instruction.optJSONArray(PROPERTY.HTMLTABLE_ROW_HTML);
+                    for (int i = 0; i < html.length(); i++) {
+                        if (!html.isNull(i)) setCell(instruction.optInt(PROPERTY.ROW), instruction.optInt(PROPERTY.COLUMN) + i, html.optString(i));
+                    }
+                }
+            } else if (objectID != view.getID()) {
+                instructions++;
+            }
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final boolean value) {
+            final Update update = new Update(objectID);
+            update.put(key, value);
+            save(update);
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final long value) {
+            final Update update = new Update(objectID);
+            update.put(key, value);
+            save(update);
+        }
+
+        @Override
+        public void saveUpdate(final long objectID, final String key, final Object value) {
+            final Update update = new Update(objectID);
+            update.put(key, value);
+            save(update);
+        }
+    }
+
+}
@@ -1,6 +1,11 @@
 
 package com.ponysdk.test.server.list2;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -13,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import com.ponysdk.core.Application;
 import com.ponysdk.core.ApplicationManagerOption;
 import com.ponysdk.core.UIContext;
+import com.ponysdk.core.concurrent.UIScheduledThreadPoolExecutor;
 import com.ponysdk.core.stm.Txn;
 import com.ponysdk.test.server.mock.EmptySession;
 import com.ponysdk.test.server.mock.EmptyTxnContext;
@@ -25,8 +31,11 @@ import com.ponysdk.ui.server.list2.refreshable.Cell;
 import com.ponysdk.ui.server.list2.refreshable.RefreshableCellRenderer;
 import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGrid;
 import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.renderer.cell.TextCellRenderer;
 import com.ponysdk.ui.server.list2.renderer.header.HeaderCellRenderer;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
 import com.ponysdk.ui.server.list2.valueprovider.IdentityValueProvider;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
 
 public class RefreshableDataGridTest {
 
@@ -780,6 +789,71 @@ public class RefreshableDataGridTest {
         checkIndex("03", 3);
     }
 
+    @Test
+    public void testRandomOperationsAgainstList() {
+        final Random random = new Random(42);
+        // Key of each row, null for the inserted rows
+        final List<String> expected = new ArrayList<String>();
+        int keys = 0;
+
+        for (int i = 0; i < 5000; i++) {
+            final int operation = random.nextInt(6);
+            if (operation <= 1 || expected.isEmpty()) {
+                final String key = "k" + keys++;
+                setData(key, "Data " + key);
+                expected.add(key);
+            } else if (operation <= 3) {
+                final int index = random.nextInt(expected.size());
+                remove(index);
+                expected.remove(index);
+            } else if (operation == 4) {
+                final String key = expected.get(random.nextInt(expected.size()));
+                if (key == null) continue;
+                final int to = random.nextInt(expected.size());
+                moveRow(key, to);
+                expected.remove(key);
+                expected.add(to, key);
+            } else {
+                final int index = random.nextInt(expected.size() + 1);
+                insertColspan(index);
+                expected.add(index, null);
+            }
+
+            checkRowCount(expected.size());
+            if (i % 10 == 0) checkRows(expected);
+        }
+    }
+
+    @Test
+    public void testColumnAddedAfterGrowth() {
+        for (int i = 0; i < 40; i++) {
+            setData("a" + i, "Data a" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            remove(0);
+        }
+
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<Data, String, PHTML>();
+        descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("Value"));
+        descriptor.setCellRenderer(renderer);
+        descriptor.setValueProvider(new ValueProvider<Data, String>() {
+
+            @Override
+            public String getValue(final Data data) {
+                return data.v1;
+            }
+        });
+        datagrid.addDataGridColumnDescriptor(descriptor);
+
+        for (int i = 0; i < 200; i++) {
+            setData("b" + i, "Data b" + i);
+        }
+        checkRowCount(230);
+        Assert.assertEquals(200, renderer.renders);
+        Assert.assertEquals(200, datagrid.getColumn(descriptor).size());
+    }
+
     @Test
     public void testIterateVisible01() {
         setData("00", "Data 00");
@@ -833,6 +907,231 @@ public class RefreshableDataGridTest {
         }
     }
 
+    @Test
+    public void testLightCells() {
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<Data, String, PHTML>();
+        descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("Light"));
+        descriptor.setCellRenderer(new TextCellRenderer<String>());
+        descriptor.setValueProvider(new ValueProvider<Data, String>() {
+
+            @Override
+            public String getValue(final Data data) {
+                return data.v1;
+            }
+        });
+        datagrid = new RefreshableDataGrid<String, Data>(new DefaultSimpleListView());
+        datagrid.addDataGridColumnDescriptor(descriptor);
+        final DefaultSimpleListView view = (DefaultSimpleListView) datagrid.getListView();
+
+        setData("00", "Data 00");
+        setData("01", "Data 01");
+        setData("02", "Data 02");
+
+        // Header and rows
+        Assert.assertEquals(4, view.getRowCount());
+        Assert.assertEquals(2, view.getCellCount(1));
+        Assert.assertNull(view.getWidget(1, 0));
+        Assert.assertNull(datagrid.getColumn(descriptor).iterator().next().getW());
+
+        setData("01", "Data 01 bis");
+        moveRow("02", 0);
+        checkIndex("02", 0);
+        checkIndex("00", 1);
+        checkIndex("01", 2);
+
+        remove("00");
+        Assert.assertEquals(3, view.getRowCount());
+        checkIndex("01", 1);
+
+        datagrid.clear();
+        Assert.assertEquals(1, view.getRowCount());
+    }
+
+    @Test
+    public void testTextCellRendererEscapes() {
+        final TextCellRenderer<String> renderer = new TextCellRenderer<String>();
+        Assert.assertEquals("Data 00", renderer.renderHTML("Data 00"));
+        Assert.assertEquals("&lt;b&gt;&quot;R&amp;D&quot; &#39;00&#39;&lt;/b&gt;", renderer.renderHTML("<b>\"R&D\" '00'</b>"));
+        Assert.assertEquals("-", renderer.renderHTML(null));
+        Assert.assertEquals("<b>Data</b>", new TextCellRenderer<String>(true).renderHTML("<b>Data</b>"));
+    }
+
+    @Test
+    public void testEqualitySkipsUnchangedCells() {
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = newValueColumn(renderer);
+        descriptor.setEquality(RefreshableDataGridColumnDescriptor.EQUALS);
+
+        setData("00", "Data 00");
+        setData("00", "Data 00");
+        Assert.assertEquals(0, renderer.updates);
+
+        setData("00", "Data 00 bis");
+        Assert.assertEquals(1, renderer.updates);
+        Assert.assertEquals("Data 00 bis", datagrid.getColumn(descriptor).iterator().next().getW().getHTML());
+
+        setData("00", null);
+        setData("00", null);
+        Assert.assertEquals(2, renderer.updates);
+    }
+
+    @Test
+    public void testWithoutEqualityCellsAlwaysUpdated() {
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        newValueColumn(renderer);
+
+        setData("00", "Data 00");
+        setData("00", "Data 00");
+        Assert.assertEquals(1, renderer.updates);
+    }
+
+    @Test
+    public void testHashDetectsValuesMutatedInPlace() {
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        final RefreshableDataGridColumnDescriptor<Data, Data, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<Data, Data, PHTML>();
+        descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("Hash"));
+        descriptor.setValueProvider(new IdentityValueProvider<Data>());
+        descriptor.setCellRenderer(new RefreshableCellRenderer<Data, PHTML>() {
+
+            @Override
+            public PHTML render(final int row, final Data value) {
+                return renderer.render(row, value.v1);
+            }
+
+            @Override
+            public void update(final Data value, final Cell<Data, PHTML> previous) {
+                renderer.updates++;
+                previous.getW().setHTML(value.v1);
+            }
+        });
+        descriptor.setHashFunction(new RefreshableDataGridColumnDescriptor.HashFunction<Data>() {
+
+            @Override
+            public int hash(final Data value) {
+                return value.hashCode();
+            }
+        });
+        datagrid = new RefreshableDataGrid<String, Data>(new DefaultSimpleListView());
+        datagrid.addDataGridColumnDescriptor(descriptor);
+
+        final Data data = new Data();
+        data.key = "00";
+        data.v1 = "Data 00";
+        datagrid.setData(data.key, data);
+        datagrid.setData(data.key, data);
+        Assert.assertEquals(0, renderer.updates);
+
+        // Same instance, an equality would compare it with itself
+        data.v1 = "Data 00 bis";
+        datagrid.setData(data.key, data);
+        Assert.assertEquals(1, renderer.updates);
+    }
+
+    @Test
+    public void testHashCollisionUpdatesCell() {
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = newValueColumn(renderer);
+        descriptor.setHashFunction(new RefreshableDataGridColumnDescriptor.HashFunction<String>() {
+
+            @Override
+            public int hash(final String value) {
+                return value.hashCode();
+            }
+        });
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        setData("00", "Aa");
+        setData("00", "Aa");
+        Assert.assertEquals(0, renderer.updates);
+
+        // Same hash, the values differ
+        setData("00", "BB");
+        Assert.assertEquals(1, renderer.updates);
+        Assert.assertEquals("BB", datagrid.getColumn(descriptor).iterator().next().getW().getHTML());
+
+        setData("00", "Data 00");
+        Assert.assertEquals(2, renderer.updates);
+    }
+
+    @Test
+    public void testConflation() {
+        if (UIScheduledThreadPoolExecutor.get() == null) UIScheduledThreadPoolExecutor.initDefault();
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = newValueColumn(renderer);
+
+        setData("00", "Data 00");
+        setData("01", "Data 01");
+        datagrid.setConflationPeriod(1, TimeUnit.HOURS);
+
+        setData("00", "Data 00 bis");
+        setData("00", "Data 00 ter");
+        setData("01", "Data 01 bis");
+        // The additions are not conflated
+        setData("02", "Data 02");
+        Assert.assertEquals(0, renderer.updates);
+        Assert.assertEquals(3, renderer.renders);
+        checkIndex("02", 2);
+
+        datagrid.flush();
+        Assert.assertEquals(2, renderer.updates);
+        Assert.assertEquals("Data 00 ter", datagrid.getColumn(descriptor).iterator().next().getW().getHTML());
+
+        datagrid.flush();
+        Assert.assertEquals(2, renderer.updates);
+
+        // The pending updates are flushed when the conflation is disabled
+        setData("01", "Data 01 ter");
+        datagrid.setConflationPeriod(0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(3, renderer.updates);
+
+        setData("01", "Data 01 quater");
+        Assert.assertEquals(4, renderer.updates);
+    }
+
+    @Test
+    public void testConflationOfRemovedRow() {
+        if (UIScheduledThreadPoolExecutor.get() == null) UIScheduledThreadPoolExecutor.initDefault();
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        newValueColumn(renderer);
+
+        setData("00", "Data 00");
+        datagrid.setConflationPeriod(1, TimeUnit.HOURS);
+        setData("00", "Data 00 bis");
+        remove("00");
+
+        datagrid.setConflationPeriod(0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(0, renderer.updates);
+    }
+
+    @Test
+    public void testConflationWithoutPusher() {
+        final CountingCellRenderer renderer = new CountingCellRenderer();
+        newValueColumn(renderer);
+        setData("00", "Data 00");
+
+        // Nothing can schedule the flush, the updates are applied immediately
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), new ApplicationManagerOption())));
+        datagrid.setConflationPeriod(1, TimeUnit.HOURS);
+        setData("00", "Data 00 bis");
+        Assert.assertEquals(1, renderer.updates);
+    }
+
+    private RefreshableDataGridColumnDescriptor<Data, String, PHTML> newValueColumn(final CountingCellRenderer renderer) {
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<Data, String, PHTML>();
+        descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("Value"));
+        descriptor.setCellRenderer(renderer);
+        descriptor.setValueProvider(new ValueProvider<Data, String>() {
+
+            @Override
+            public String getValue(final Data data) {
+                return data.v1;
+            }
+        });
+        datagrid = new RefreshableDataGrid<String, Data>(new DefaultSimpleListView());
+        datagrid.addDataGridColumnDescriptor(descriptor);
+        return descriptor;
+    }
+
     private void setData(final String key, final String value) {
         final Data d = new Data();
         d.key = key;
@@ -874,6 +1173,42 @@ public class RefreshableDataGridTest {
         Assert.assertEquals(expectedSize, datagrid.getRowCount());
     }
 
+    private void checkRows(final List<String> expected) {
+        final List<String> visibleKeys = new ArrayList<String>();
+        for (int index = 0; index < expected.size(); index++) {
+            final String key = expected.get(index);
+            if (key == null) continue;
+            checkIndex(key, index);
+            visibleKeys.add(key);
+        }
+        checkVisibleItemCount(visibleKeys.size());
+
+        final List<String> keys = new ArrayList<String>();
+        for (final Data data : datagrid.getVisibleItems()) {
+            keys.add(data.key);
+        }
+        Assert.assertEquals(visibleKeys, keys);
+    }
+
+    private static class CountingCellRenderer implements RefreshableCellRenderer<String, PHTML> {
+
+        private int renders;
+
+        private int updates;
+
+        @Override
+        public PHTML render(final int row, final String value) {
+            renders++;
+            return new PHTML(value);
+        }
+
+        @Override
+        public void update(final String value, final Cell<String, PHTML> previous) {
+            updates++;
+            previous.getW().setHTML(value);
+        }
+    }
+
     private static class Data {
 
         public String key;
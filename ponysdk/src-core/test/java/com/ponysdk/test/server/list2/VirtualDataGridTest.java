@@ -0,0 +1,211 @@
+package com.ponysdk.test.server.list2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ponysdk.core.Application;
+import com.ponysdk.core.ApplicationManagerOption;
+import com.ponysdk.core.UIContext;
+import com.ponysdk.core.stm.Txn;
+import com.ponysdk.test.server.mock.EmptySession;
+import com.ponysdk.test.server.mock.EmptyTxnContext;
+import com.ponysdk.ui.server.basic.PHTML;
+import com.ponysdk.ui.server.basic.event.PScrollEvent;
+import com.ponysdk.ui.server.list2.DefaultSimpleListView;
+import com.ponysdk.ui.server.list2.refreshable.Cell;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableCellRenderer;
+import com.ponysdk.ui.server.list2.refreshable.RefreshableDataGridColumnDescriptor;
+import com.ponysdk.ui.server.list2.renderer.header.StringHeaderCellRenderer;
+import com.ponysdk.ui.server.list2.valueprovider.ValueProvider;
+import com.ponysdk.ui.server.list2.virtual.VirtualDataGrid;
+
+public class VirtualDataGridTest {
+
+    private static final int ROW_HEIGHT = 20;
+
+    // 30 visible rows plus the partial ones at the edges
+    private static final int VIEWPORT_HEIGHT = 600;
+
+    private static final int WINDOW_SIZE = VIEWPORT_HEIGHT / ROW_HEIGHT + 2 + 2 * 10;
+
+    private Txn txn;
+
+    private DefaultSimpleListView view;
+
+    private VirtualDataGrid<Data> grid;
+
+    private CountingRenderer renderer;
+
+    @Before
+    public void beforeTest() {
+        UIContext.setCurrent(new UIContext(new Application(new EmptySession(), new ApplicationManagerOption())));
+        txn = Txn.get();
+        txn.begin(new EmptyTxnContext());
+
+        renderer = new CountingRenderer();
+        final RefreshableDataGridColumnDescriptor<Data, String, PHTML> descriptor = new RefreshableDataGridColumnDescriptor<Data, String, PHTML>();
+        descriptor.setHeaderCellRenderer(new StringHeaderCellRenderer("Value"));
+        descriptor.setCellRenderer(renderer);
+        descriptor.setValueProvider(new ValueProvider<Data, String>() {
+
+            @Override
+            public String getValue(final Data data) {
+                return data.value;
+            }
+        });
+
+        view = new DefaultSimpleListView();
+        grid = new VirtualDataGrid<Data>(view, ROW_HEIGHT);
+        grid.addDataGridColumnDescriptor(descriptor);
+    }
+
+    @After
+    public void afterTest() {
+        txn.commit();
+        UIContext.remove();
+    }
+
+    @Test
+    public void testOnlyTheWindowIsMaterialized() {
+        grid.setData(newData(1000));
+        scrollToRow(0);
+
+        Assert.assertEquals(1000, grid.getVisibleItemCount());
+        Assert.assertEquals(WINDOW_SIZE, grid.getMaterializedRowCount());
+        Assert.assertEquals(0, grid.getFirstMaterializedRow());
+        Assert.assertEquals(WINDOW_SIZE, renderer.renders);
+        // The header and the materialized rows
+        Assert.assertEquals(WINDOW_SIZE + 1, view.getRowCount());
+        assertBound(0);
+    }
+
+    @Test
+    public void testScrollRecyclesTheRows() {
+        grid.setData(newData(1000));
+        scrollToRow(0);
+
+        scrollToRow(500);
+        Assert.assertEquals(WINDOW_SIZE, grid.getMaterializedRowCount());
+        // One row above the viewport and the buffer
+        Assert.assertEquals(500 - 1 - 10, grid.getFirstMaterializedRow());
+        Assert.assertEquals(WINDOW_SIZE, renderer.renders);
+        Assert.assertEquals(WINDOW_SIZE, renderer.updates);
+        assertBound(489);
+
+        scrollToRow(1000);
+        Assert.assertEquals(1000 - WINDOW_SIZE, grid.getFirstMaterializedRow());
+        assertBound(1000 - WINDOW_SIZE);
+        Assert.assertEquals(WINDOW_SIZE, renderer.renders);
+    }
+
+    @Test
+    public void testSmallScrollKeepsTheWindow() {
+        grid.setData(newData(1000));
+        scrollToRow(100);
+        final int firstRow = grid.getFirstMaterializedRow();
+        final int updates = renderer.updates;
+
+        scrollToRow(102);
+        Assert.assertEquals(firstRow, grid.getFirstMaterializedRow());
+        Assert.assertEquals(updates, renderer.updates);
+    }
+
+    @Test
+    public void testRowsUnchangedAreNotSent() {
+        final List<Data> data = newData(1000);
+        grid.setData(data);
+        scrollToRow(0);
+
+        // Same values, different data
+        grid.setData(newData(1000));
+        Assert.assertEquals(0, renderer.updates);
+
+        data.get(3).value = "changed";
+        grid.setData(data);
+        Assert.assertEquals(1, renderer.updates);
+        Assert.assertEquals("changed", getHTML(3));
+    }
+
+    @Test
+    public void testRefreshIndex() {
+        final List<Data> data = newData(100);
+        grid.setData(data);
+        scrollToRow(0);
+
+        data.get(5).value = "changed";
+        grid.refresh(5);
+        Assert.assertEquals("changed", getHTML(5));
+
+        // Not materialized, nothing to bind
+        grid.refresh(99);
+        Assert.assertEquals(1, renderer.updates);
+    }
+
+    @Test
+    public void testDataShrinks() {
+        grid.setData(newData(1000));
+        scrollToRow(500);
+
+        grid.setData(newData(10));
+        Assert.assertEquals(10, grid.getMaterializedRowCount());
+        Assert.assertEquals(0, grid.getFirstMaterializedRow());
+        Assert.assertEquals(11, view.getRowCount());
+        assertBound(0);
+    }
+
+    private void scrollToRow(final int row) {
+        grid.onScroll(new PScrollEvent(grid.asWidget(), row * ROW_HEIGHT, VIEWPORT_HEIGHT));
+    }
+
+    private void assertBound(final int firstRow) {
+        for (int i = 0; i < grid.getMaterializedRowCount(); i++) {
+            Assert.assertEquals("R" + (firstRow + i), getHTML(i));
+        }
+    }
+
+    private String getHTML(final int position) {
+        return ((PHTML) view.getWidget(position + 1, 0)).getHTML();
+    }
+
+    private static List<Data> newData(final int size) {
+        final List<Data> data = new ArrayList<Data>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(new Data("R" + i));
+        }
+        return data;
+    }
+
+    private static class Data {
+
+        private String value;
+
+        Data(final String value) {
+            this.value = value;
+        }
+    }
+
+    private static class CountingRenderer implements RefreshableCellRenderer<String, PHTML> {
+
+        private int renders;
+
+        private int updates;
+
+        @Override
+        public PHTML render(final int row, final String value) {
+            renders++;
+            return new PHTML(value);
+        }
+
+        @Override
+        public void update(final String value, final Cell<String, PHTML> previous) {
+            updates++;
+            previous.getW().setHTML(value);
+        }
+    }
+
+}
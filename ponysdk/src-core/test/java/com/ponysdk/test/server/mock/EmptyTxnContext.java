@@ -16,6 +16,15 @@ public class EmptyTxnContext implements TxnContext {
     @Override
     public void save(final Instruction instruction) {}
 
+    @Override
+    public void saveUpdate(final long objectID, final String key, final boolean value) {}
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final long value) {}
+
+    @Override
+    public void saveUpdate(final long objectID, final String key, final Object value) {}
+
     @Override
     public void flush() throws Exception {}
 
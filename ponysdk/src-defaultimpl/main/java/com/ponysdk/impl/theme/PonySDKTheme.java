@@ -66,6 +66,8 @@ public interface PonySDKTheme {
     String SIMPLELIST_SUBROW = "pony-SimpleList-SubRow";
     String SIMPLELIST_SELECTEDROW = "pony-SimpleList-Row-Selected";
 
+    String VIRTUALDATAGRID = "pony-VirtualDataGrid";
+
     String ORACLE_ITEM = "pony-Oracle-Item";
 
     String ORACLE_LIST_BOX_SELECTED = "pony-OracleListBox-Selected";